@@ -15,7 +15,7 @@ import lombok.NoArgsConstructor;
 @EqualsAndHashCode(callSuper = true)
 @Data
 @NoArgsConstructor
-public class AiResponseMessage extends StreamMessage{
+public final class AiResponseMessage extends StreamMessage{
     // AI 返回的数据内容
     private String data;
     /**
@@ -0,0 +1,33 @@
+package com.ruhuo.xuaizerobackend.ai.model.message;
+
+import com.ruhuo.xuaizerobackend.model.enums.VueBuildStatusEnum;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 构建状态消息
+ * 继承自StreamMessage，用于把 Vue 项目的构建进度推送给前端
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public final class BuildStatusMessage extends StreamMessage {
+    // 构建状态值，对应 VueBuildStatusEnum 的 value
+    private String status;
+    // 展示给用户的状态描述
+    private String message;
+
+    /**
+     * 构造函数，根据构建状态创建消息
+     *
+     * @param statusEnum 构建状态
+     * @param message    附加描述，为空时使用状态默认描述
+     */
+    public BuildStatusMessage(VueBuildStatusEnum statusEnum, String message) {
+        // 调用父类构造函数，设置消息类型为构建状态消息
+        super(StreamMessageTypeEnum.BUILD_STATUS.getValue());
+        this.status = statusEnum.getValue();
+        this.message = message != null ? message : statusEnum.getText();
+    }
+}
@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 /**
  * 流式消息响应基类
  * 该类作为流式消息的基类，提供了基本的属性和自动生成的常用方法
+ * 消息在门面和流处理器之间以对象形式传递（Flux<StreamMessage>），不再序列化为 JSON 字符串，
+ * 密封类限定了全部消息类型，处理器用 switch 模式匹配时由编译器检查是否遗漏
  *
  * @author CodeGeeX
  * @version 1.0
@@ -14,6 +16,7 @@ import lombok.NoArgsConstructor;
 @Data                 // 自动生成 Getter/Setter/ToString
 @AllArgsConstructor   // 生成全参构造器
 @NoArgsConstructor    // 生成无参构造器
-public class StreamMessage {
+public abstract sealed class StreamMessage
+        permits AiResponseMessage, ToolRequestMessage, ToolExecutedMessage, BuildStatusMessage {
     private String type;
 }
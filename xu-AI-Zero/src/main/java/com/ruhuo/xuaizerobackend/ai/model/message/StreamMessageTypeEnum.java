@@ -4,17 +4,18 @@ import lombok.Getter;
 
 /**
  * 流式消息类型枚举
- * 该枚举定义了流式消息的不同类型，包括AI响应、工具请求和工具执行结果。
+ * 该枚举定义了流式消息的不同类型，包括AI响应、工具请求、工具执行结果和构建状态。
  * 使用@Getter注解为枚举值自动生成getter方法。
  */
 
 @Getter
 public enum StreamMessageTypeEnum {
 
-    // 定义三个枚举常量，每个常量包含值和对应的文本描述
+    // 定义枚举常量，每个常量包含值和对应的文本描述
     AI_RESPONSE("ai_response","AI响应"),      // AI响应类型的消息
     TOOL_REQUEST("tool_request","工具请求"),  // 工具请求类型的消息
-    TOOL_EXECUTED("tool_executed","工具执行结果"); // 工具执行结果类型的消息
+    TOOL_EXECUTED("tool_executed","工具执行结果"), // 工具执行结果类型的消息
+    BUILD_STATUS("build_status","构建状态");    // Vue项目构建状态类型的消息
 
 
 
@@ -12,7 +12,7 @@ import lombok.NoArgsConstructor;
 @Data
 @EqualsAndHashCode(callSuper = true)
 @NoArgsConstructor
-public class ToolExecutedMessage extends StreamMessage{
+public final class ToolExecutedMessage extends StreamMessage{
     // 工具执行请求的唯一标识符
     private String id;
     // 工具执行的名称
@@ -13,7 +13,7 @@ import lombok.NoArgsConstructor;
 @Data // 使用Lombok注解，自动生成getter、setter、toString等方法
 @EqualsAndHashCode(callSuper = true) // 使用Lombok注解，生成equals和hashCode方法，并包含父类的字段
 @NoArgsConstructor // 使用Lombok注解，生成无参构造方法
-public class ToolRequestMessage extends StreamMessage{ // 定义ToolRequestMessage类，继承自StreamMessage
+public final class ToolRequestMessage extends StreamMessage{ // 定义ToolRequestMessage类，继承自StreamMessage
     private String id; // 工具请求的唯一标识符
     private String name; // 工具的名称
     private String arguments; // 工具调用的参数，以JSON格式字符串存储
@@ -0,0 +1,133 @@
+package com.ruhuo.xuaizerobackend.ai.stream;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpClientBuilderLoader;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 可以中断流式请求的 HTTP 客户端构建器
+ * 包装 langchain4j 默认的 HTTP 客户端（classpath 中的 Spring RestClient 实现），
+ * 流式请求的响应流登记到发起请求时线程绑定的 {@link ModelStreamCancellation}，取消时关闭响应流，
+ * 浏览器断开后不再继续接收模型输出，也不再发起工具调用后的下一轮请求。
+ * <p>
+ * 模型的回调（包括工具调用完成后发起的下一轮请求）在 HTTP 客户端的线程上执行，
+ * 这里在每个回调期间重新绑定同一个句柄。
+ */
+public class CancellableHttpClientBuilder implements HttpClientBuilder {
+
+    private final HttpClientBuilder delegate;
+
+    public CancellableHttpClientBuilder() {
+        this(HttpClientBuilderLoader.loadHttpClientBuilder());
+    }
+
+    public CancellableHttpClientBuilder(HttpClientBuilder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public HttpClientBuilder connectTimeout(Duration timeout) {
+        delegate.connectTimeout(timeout);
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return delegate.readTimeout();
+    }
+
+    @Override
+    public HttpClientBuilder readTimeout(Duration timeout) {
+        delegate.readTimeout(timeout);
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        return new CancellableHttpClient(delegate.build());
+    }
+
+    /**
+     * 登记响应流的 HTTP 客户端
+     */
+    private record CancellableHttpClient(HttpClient delegate) implements HttpClient {
+
+        @Override
+        public SuccessfulHttpResponse execute(HttpRequest request) {
+            return delegate.execute(request);
+        }
+
+        @Override
+        public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+            ModelStreamCancellation cancellation = ModelStreamCancellation.current();
+            if (cancellation == null) {
+                delegate.execute(request, parser, listener);
+                return;
+            }
+            if (cancellation.isCancelled()) {
+                listener.onError(new CancellationException("模型流已取消"));
+                return;
+            }
+            delegate.execute(request, new RegisteringParser(parser, cancellation),
+                    new BoundListener(listener, cancellation));
+        }
+    }
+
+    /**
+     * 解析前登记响应流，解析结束后取消登记
+     */
+    private record RegisteringParser(ServerSentEventParser delegate,
+                                     ModelStreamCancellation cancellation) implements ServerSentEventParser {
+
+        @Override
+        public void parse(InputStream inputStream, ServerSentEventListener listener) {
+            cancellation.register(inputStream);
+            try {
+                cancellation.runBound(() -> delegate.parse(inputStream, listener));
+            } finally {
+                cancellation.unregister(inputStream);
+            }
+        }
+    }
+
+    /**
+     * 回调期间绑定句柄
+     */
+    private record BoundListener(ServerSentEventListener delegate,
+                                 ModelStreamCancellation cancellation) implements ServerSentEventListener {
+
+        @Override
+        public void onOpen(SuccessfulHttpResponse response) {
+            cancellation.runBound(() -> delegate.onOpen(response));
+        }
+
+        @Override
+        public void onEvent(ServerSentEvent event) {
+            cancellation.runBound(() -> delegate.onEvent(event));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            cancellation.runBound(() -> delegate.onError(throwable));
+        }
+
+        @Override
+        public void onClose() {
+            cancellation.runBound(() -> delegate.onClose());
+        }
+    }
+}
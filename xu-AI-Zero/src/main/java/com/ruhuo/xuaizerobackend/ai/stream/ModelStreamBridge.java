@@ -0,0 +1,70 @@
+package com.ruhuo.xuaizerobackend.ai.stream;
+
+import com.ruhuo.xuaizerobackend.exception.BusinessException;
+import com.ruhuo.xuaizerobackend.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.function.BiConsumer;
+
+/**
+ * 把模型回调桥接为 Flux
+ * 模型按自己的速度推送 token，无法暂停，所以在桥接处设置有界缓冲：下游（SSE 客户端）跟不上时先缓冲，
+ * 缓冲满了说明客户端已经长时间没有读取，这时立即中止生成，已缓冲的内容发送完后以错误结束，而不是无限占用内存。
+ * <p>
+ * 下游取消（浏览器断开）或缓冲溢出时，通过 {@link ModelStreamCancellation} 关闭到模型的 HTTP 流，
+ * 不再继续消耗模型 token。
+ */
+@Slf4j
+public class ModelStreamBridge {
+
+    private ModelStreamBridge() {
+    }
+
+    /**
+     * 创建由回调推送数据的 Flux
+     * emitter 在绑定取消句柄的情况下执行，期间发起的模型请求都会在取消时中断
+     *
+     * @param emitter     注册回调并启动模型请求，参数为 sink 和取消句柄
+     * @param maxBuffered 最多缓冲的元素数
+     * @return 有界缓冲、可取消的 Flux
+     */
+    public static <T> Flux<T> create(BiConsumer<FluxSink<T>, ModelStreamCancellation> emitter, int maxBuffered) {
+        Flux<T> source = Flux.create(sink -> {
+            ModelStreamCancellation cancellation = ModelStreamCancellation.create();
+            sink.onCancel(cancellation::cancel);
+            cancellation.runBound(() -> emitter.accept(sink, cancellation));
+            // 由下游的有界缓冲负责限流，这里不再额外缓冲
+        }, FluxSink.OverflowStrategy.ERROR);
+        return bounded(source, maxBuffered);
+    }
+
+    /**
+     * 为 AI 服务返回的 Flux（内部由 TokenStream 无界推送）加上有界缓冲，下游取消时中断模型请求
+     *
+     * @param source      AI 服务返回的 Flux，订阅时才发起模型请求
+     * @param maxBuffered 最多缓冲的元素数
+     * @return 有界缓冲、可取消的 Flux
+     */
+    public static <T> Flux<T> cancellable(Flux<T> source, int maxBuffered) {
+        Flux<T> cancellableSource = Flux.defer(() -> {
+            ModelStreamCancellation cancellation = ModelStreamCancellation.create();
+            //订阅时才会启动模型请求，在绑定句柄的情况下订阅
+            Flux<T> bound = Flux.from(subscriber -> cancellation.runBound(() -> source.subscribe(subscriber)));
+            return bound.doOnCancel(cancellation::cancel);
+        });
+        return bounded(cancellableSource, maxBuffered);
+    }
+
+    private static <T> Flux<T> bounded(Flux<T> source, int maxBuffered) {
+        return source
+                .onBackpressureBuffer(maxBuffered,
+                        dropped -> log.warn("SSE 客户端接收过慢，缓冲已满（{}），中止模型生成", maxBuffered),
+                        BufferOverflowStrategy.ERROR)
+                .onErrorMap(Exceptions::isOverflow,
+                        e -> new BusinessException(ErrorCode.OPERATION_ERROR, "客户端接收过慢，已停止生成"));
+    }
+}
@@ -0,0 +1,159 @@
+package com.ruhuo.xuaizerobackend.ai.stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * 模型流的取消句柄
+ * 一次生成（可能包含工具调用后的多轮模型请求）共用一个句柄。句柄在发起模型请求的线程上绑定，
+ * {@link CancellableHttpClientBuilder} 发起流式请求时取出当前线程的句柄，登记响应的输入流；
+ * 取消时关闭这些输入流，正在读取的 HTTP 流随之中断，取消之后发起的请求直接失败。
+ * <p>
+ * 绑定只在调用期间有效，模型回调所在的线程由 {@link CancellableHttpClientBuilder} 负责重新绑定，
+ * 所以工具调用后的下一轮请求仍然属于同一个句柄。
+ */
+@Slf4j
+public class ModelStreamCancellation {
+
+    private static final ThreadLocal<ModelStreamCancellation> CURRENT = new ThreadLocal<>();
+
+    // 正在读取的响应流
+    private final List<Closeable> openStreams = new CopyOnWriteArrayList<>();
+    // 取消时需要一并执行的操作，例如取消子句柄、中断执行线程
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+
+    private volatile boolean cancelled;
+
+    /**
+     * 获取当前线程绑定的句柄
+     *
+     * @return 句柄，没有绑定时返回null
+     */
+    public static ModelStreamCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 创建句柄，当前线程已绑定句柄时，上层句柄取消时新句柄也随之取消
+     *
+     * @return 新句柄
+     */
+    public static ModelStreamCancellation create() {
+        ModelStreamCancellation cancellation = new ModelStreamCancellation();
+        ModelStreamCancellation parent = current();
+        if (parent != null) {
+            parent.onCancel(cancellation::cancel);
+        }
+        return cancellation;
+    }
+
+    /**
+     * 在绑定当前句柄的情况下执行操作，执行结束后恢复原来的绑定
+     *
+     * @param action 操作
+     */
+    public void runBound(Runnable action) {
+        callBound(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 在绑定当前句柄的情况下执行操作并返回结果，执行结束后恢复原来的绑定
+     *
+     * @param action 操作
+     * @return 操作的结果
+     */
+    public <T> T callBound(Supplier<T> action) {
+        ModelStreamCancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 登记取消时要执行的操作，已经取消时立即执行
+     *
+     * @param hook 操作
+     */
+    public void onCancel(Runnable hook) {
+        cancelHooks.add(hook);
+        if (cancelled && cancelHooks.remove(hook)) {
+            hook.run();
+        }
+    }
+
+    /**
+     * 登记正在读取的响应流，已经取消时立即关闭
+     *
+     * @param stream 响应流
+     */
+    void register(Closeable stream) {
+        openStreams.add(stream);
+        if (cancelled) {
+            closeQuietly(stream);
+        }
+    }
+
+    /**
+     * 响应流读取结束，取消登记
+     *
+     * @param stream 响应流
+     */
+    void unregister(Closeable stream) {
+        openStreams.remove(stream);
+    }
+
+    /**
+     * 是否已取消
+     *
+     * @return 已取消返回true
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 取消：关闭正在读取的响应流并执行取消操作，重复调用没有影响
+     */
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        for (Closeable stream : openStreams) {
+            closeQuietly(stream);
+        }
+        for (Runnable hook : cancelHooks) {
+            if (cancelHooks.remove(hook)) {
+                try {
+                    hook.run();
+                } catch (Exception e) {
+                    log.warn("执行模型流取消操作失败:{}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void closeQuietly(Closeable stream) {
+        try {
+            stream.close();
+            log.info("已中断模型响应流");
+        } catch (IOException e) {
+            log.warn("关闭模型响应流失败:{}", e.getMessage());
+        }
+    }
+}
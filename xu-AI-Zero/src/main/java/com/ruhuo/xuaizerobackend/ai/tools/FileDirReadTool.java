@@ -48,7 +48,7 @@ public class FileDirReadTool extends BaseTool {
      * 需要忽略的文件扩展名
      */
     private static final Set<String> IGNORED_EXTENSIONS = Set.of(
-            ".log", ".tmp", ".cache", ".lock"
+            ".log", ".tmp", ".cache", ".lock", ".gz", ".br"
     );
 
     /**
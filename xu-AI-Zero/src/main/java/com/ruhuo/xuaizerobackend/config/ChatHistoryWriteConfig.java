@@ -0,0 +1,40 @@
+package com.ruhuo.xuaizerobackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对话历史异步写入配置
+ * 绑定配置文件中以"chat-history.write"为前缀的属性，未配置时使用默认值
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat-history.write")
+public class ChatHistoryWriteConfig {
+
+    /**
+     * 是否启用异步批量写入，关闭后每条消息同步写入数据库
+     */
+    private boolean asyncEnabled = true;
+
+    /**
+     * 写入缓冲队列容量
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 单条 INSERT 语句最多包含的记录数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 刷盘间隔（毫秒），缓冲区中的消息最多等待这么久就会写入数据库
+     */
+    private long flushIntervalMillis = 200;
+
+    /**
+     * 队列已满时调用方最多等待的时间（毫秒），超时后改为同步写入
+     */
+    private long offerTimeoutMillis = 500;
+}
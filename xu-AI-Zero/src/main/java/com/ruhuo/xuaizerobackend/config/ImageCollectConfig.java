@@ -0,0 +1,107 @@
+package com.ruhuo.xuaizerobackend.config;
+
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 图片收集执行配置
+ * 绑定配置文件中以"image-collect"为前缀的属性，按提供方（pexels/undraw/mermaid/dashscope）配置，
+ * 未配置的提供方使用默认值
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "image-collect")
+public class ImageCollectConfig {
+
+    /**
+     * 各提供方同时执行的最大任务数
+     * Mermaid CLI 每次都会启动浏览器渲染，DashScope 有调用频率限制，因此默认值较小
+     */
+    private Map<String, Integer> maxConcurrency = new HashMap<>(Map.of(
+            "pexels", 8,
+            "undraw", 8,
+            "mermaid", 2,
+            "dashscope", 2
+    ));
+
+    /**
+     * 各提供方单个任务的超时时间（秒），包含排队等待的时间，超时后该任务返回空结果
+     */
+    private Map<String, Integer> timeoutSeconds = new HashMap<>(Map.of(
+            "pexels", 15,
+            "undraw", 15,
+            "mermaid", 60,
+            "dashscope", 120
+    ));
+
+    /**
+     * 单个收集节点内同时执行的任务数上限
+     */
+    private int nodeParallelism = 4;
+
+    /**
+     * 单个收集节点最多收集的图片数，收集够后不再等待剩余任务，0 表示不限制
+     * 架构图和 Logo 每个任务的结果都不可替代，默认不限制
+     */
+    private Map<String, Integer> nodeMaxResults = new HashMap<>(Map.of(
+            "pexels", 24,
+            "undraw", 24,
+            "mermaid", 0,
+            "dashscope", 0
+    ));
+
+    /**
+     * 单个收集节点的截止时间（秒），到期后返回已经收集到的部分结果
+     */
+    private Map<String, Integer> nodeDeadlineSeconds = new HashMap<>(Map.of(
+            "pexels", 30,
+            "undraw", 30,
+            "mermaid", 90,
+            "dashscope", 150
+    ));
+
+    /**
+     * 获取提供方的最大并发数
+     *
+     * @param provider 提供方
+     * @return 最大并发数，至少为1
+     */
+    public int getMaxConcurrency(ImageProviderEnum provider) {
+        return Math.max(1, maxConcurrency.getOrDefault(provider.getValue(), 4));
+    }
+
+    /**
+     * 获取提供方的任务超时时间
+     *
+     * @param provider 提供方
+     * @return 超时时间（秒），至少为1
+     */
+    public int getTimeoutSeconds(ImageProviderEnum provider) {
+        return Math.max(1, timeoutSeconds.getOrDefault(provider.getValue(), 30));
+    }
+
+    /**
+     * 获取收集节点最多收集的图片数
+     *
+     * @param provider 提供方
+     * @return 图片数上限，0 表示不限制
+     */
+    public int getNodeMaxResults(ImageProviderEnum provider) {
+        return Math.max(0, nodeMaxResults.getOrDefault(provider.getValue(), 0));
+    }
+
+    /**
+     * 获取收集节点的截止时间
+     *
+     * @param provider 提供方
+     * @return 截止时间（秒），至少为1
+     */
+    public int getNodeDeadlineSeconds(ImageProviderEnum provider) {
+        return Math.max(1, nodeDeadlineSeconds.getOrDefault(provider.getValue(), 60));
+    }
+}
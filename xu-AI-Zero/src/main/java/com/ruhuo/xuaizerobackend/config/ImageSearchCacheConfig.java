@@ -0,0 +1,40 @@
+package com.ruhuo.xuaizerobackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片搜索结果缓存配置
+ * 绑定配置文件中以"image-search.cache"为前缀的属性，未配置时使用默认值
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "image-search.cache")
+public class ImageSearchCacheConfig {
+
+    /**
+     * 是否启用缓存，关闭后每次搜索都直接调用 Pexels API
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存最多保存的关键词数
+     */
+    private long localMaximumSize = 2000;
+
+    /**
+     * 本地缓存有效期（分钟）
+     */
+    private long localTtlMinutes = 30;
+
+    /**
+     * Redis 缓存有效期（小时）
+     */
+    private long redisTtlHours = 24;
+
+    /**
+     * 搜索结果为空时的缓存有效期（分钟），本地和 Redis 都使用这个时间
+     */
+    private long negativeTtlMinutes = 10;
+}
@@ -0,0 +1,60 @@
+package com.ruhuo.xuaizerobackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Mermaid 渲染配置
+ * 绑定配置文件中以"mermaid.render"为前缀的属性，未配置时使用默认值
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mermaid.render")
+public class MermaidRenderConfig {
+
+    /**
+     * 是否使用常驻渲染进程（不可用时自动回退为每张图执行一次 mmdc）
+     */
+    private boolean workerEnabled = true;
+
+    /**
+     * 常驻渲染进程数，每个进程持有一个无头浏览器
+     */
+    private int workerPoolSize = 2;
+
+    /**
+     * 单个批次最多包含的图表数
+     */
+    private int maxBatchSize = 8;
+
+    /**
+     * 单个进程最多渲染的图表数，达到后重建进程，避免浏览器内存持续增长
+     */
+    private int workerMaxRenders = 500;
+
+    /**
+     * 单张图表的渲染超时时间（秒），包含排队等待的时间
+     */
+    private int renderTimeoutSeconds = 30;
+
+    /**
+     * 进程启动（包括打开浏览器）的超时时间（秒）
+     */
+    private int workerStartTimeoutSeconds = 60;
+
+    /**
+     * 空闲进程健康检查的间隔（秒）
+     */
+    private int workerHealthCheckSeconds = 30;
+
+    /**
+     * mermaid-cli 的安装目录，为空时使用全局 node_modules 中的 @mermaid-js/mermaid-cli
+     */
+    private String cliDir;
+
+    /**
+     * puppeteer 配置文件，与 mmdc -p 参数格式相同（例如容器中需要 --no-sandbox）
+     */
+    private String puppeteerConfigFile;
+}
@@ -1,5 +1,6 @@
 package com.ruhuo.xuaizerobackend.config;
 
+import com.ruhuo.xuaizerobackend.ai.stream.CancellableHttpClientBuilder;
 import com.ruhuo.xuaizerobackend.monitor.AiModelMonitorListener;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
@@ -56,6 +57,7 @@ public class ReasoningStreamingChatModelConfig {
                 .temperature(temperature) // 设置温度参数，控制输出的随机性
                 .logRequests(logRequests) // 设置是否记录请求日志
                 .logResponses(logResponses) // 设置是否记录响应日志
+                .httpClientBuilder(new CancellableHttpClientBuilder()) // 浏览器断开时可以中断到模型的流式请求
                 //.listeners(List.of(aiModelMonitorListener)) // 暂时禁用监听器，避免langchain4j内部null错误
                 .build(); // 构建并返回StreamingChatModel实例
     }
@@ -0,0 +1,100 @@
+package com.ruhuo.xuaizerobackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 网页截图配置
+ * 绑定配置文件中以"screenshot"为前缀的属性，未配置时使用默认值
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "screenshot")
+public class ScreenshotConfig {
+
+    /**
+     * 浏览器会话数上限，即同时进行的截图数
+     */
+    private int poolSize = 3;
+
+    /**
+     * 单个浏览器会话最多截图的页面数，达到后关闭并重建会话
+     */
+    private int maxPagesPerSession = 50;
+
+    /**
+     * 等待空闲浏览器会话的最长时间（秒）
+     */
+    private int borrowTimeoutSeconds = 30;
+
+    /**
+     * 页面加载超时时间（秒），超时的会话视为已损坏
+     */
+    private int pageLoadTimeoutSeconds = 30;
+
+    /**
+     * 浏览器窗口宽度
+     */
+    private int windowWidth = 1600;
+
+    /**
+     * 浏览器窗口高度
+     */
+    private int windowHeight = 900;
+
+    /**
+     * 等待页面就绪的最长时间（毫秒），到期后不论页面状态直接截图
+     */
+    private long readyTimeoutMillis = 5000;
+
+    /**
+     * 网络空闲判定时间（毫秒），最近一个资源加载完成后这段时间内没有新的资源加载视为网络空闲
+     */
+    private long networkIdleMillis = 300;
+
+    /**
+     * 检查页面是否就绪的间隔（毫秒）
+     */
+    private long readyPollMillis = 100;
+
+    /**
+     * 截图压缩为 JPEG 的质量（0-1）
+     */
+    private float imageQuality = 0.3f;
+
+    /**
+     * 截图的最大宽度，超过时等比缩小，0 表示保持原始大小
+     */
+    private int imageMaxWidth = 0;
+
+    /**
+     * 执行截图任务的线程数，一般不超过浏览器会话数
+     */
+    private int jobWorkerCount = 2;
+
+    /**
+     * 单个截图任务最多执行的次数（含首次）
+     */
+    private int jobMaxAttempts = 3;
+
+    /**
+     * 首次重试前等待的时间（秒），之后每次翻倍
+     */
+    private int jobRetryBackoffSeconds = 10;
+
+    /**
+     * 队列为空时，截图线程再次查询队列的间隔（毫秒）
+     */
+    private long jobPollIntervalMillis = 1000;
+
+    /**
+     * 截图任务的租约时间（秒），执行中的任务超过这个时间没有结束（例如服务重启）会重新入队
+     */
+    private int jobLeaseSeconds = 180;
+
+    /**
+     * 任务状态的保留时间（小时）
+     */
+    private int jobRetentionHours = 24;
+}
@@ -0,0 +1,51 @@
+package com.ruhuo.xuaizerobackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 代码生成 SSE 输出配置
+ * 绑定配置文件中以"sse-stream"为前缀的属性，未配置时使用默认值
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "sse-stream")
+public class SseStreamConfig {
+
+    /**
+     * 默认的合并窗口（毫秒），窗口内到达的片段合并为一帧发送；0 表示不合并，每个片段单独一帧
+     */
+    private long coalesceWindowMillis = 30;
+
+    /**
+     * 客户端可以指定的合并窗口上限（毫秒），避免过大的窗口让页面输出一卡一卡
+     */
+    private long maxCoalesceWindowMillis = 50;
+
+    /**
+     * 单帧的字节上限，合并中的帧达到这个大小时立即发送
+     */
+    private int coalesceMaxBytes = 8 * 1024;
+
+    /**
+     * 模型输出和 SSE 写出之间最多缓冲的消息数，客户端长时间不读取导致缓冲满时中止生成
+     */
+    private int maxBufferedMessages = 4096;
+
+    /**
+     * 每次生成在内存中保留的最近片段数，更早的片段写入 Redis，断线重连时从中补发；
+     * 写入 Redis 期间最多占用两倍的空间，写入跟不上时放弃写入
+     */
+    private int replayBufferSize = 1024;
+
+    /**
+     * 生成结束后保留多久（分钟），期间重连仍可以补发全部内容
+     */
+    private long runRetentionMinutes = 10;
+
+    /**
+     * 所有客户端都断开后继续生成多久（秒），超时没有客户端重连时中止生成，不再消耗模型 token
+     */
+    private long detachGraceSeconds = 60;
+}
@@ -0,0 +1,60 @@
+package com.ruhuo.xuaizerobackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 预览静态资源配置
+ * 绑定配置文件中以"static-resource"为前缀的属性，未配置时使用默认值
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "static-resource")
+public class StaticResourceConfig {
+
+    /**
+     * 最多缓存多少个项目的文件索引
+     */
+    private long indexMaximumSize = 500;
+
+    /**
+     * 项目文件索引闲置多久后移除（分钟）
+     */
+    private long indexIdleMinutes = 30;
+
+    /**
+     * 文件信息的复查间隔（毫秒），超过这个时间后重新读取文件属性，生成中的文件修改后最多延迟这么久可见
+     */
+    private long revalidateMillis = 1000;
+
+    /**
+     * 带内容哈希的 Vite 构建产物的缓存时间（秒），默认一年
+     */
+    private long immutableMaxAgeSeconds = 31536000;
+
+    /**
+     * 小于这个大小（字节）的文件不生成压缩版本，压缩收益抵不上额外的文件和协商开销
+     */
+    private long compressMinBytes = 1024;
+
+    /**
+     * gzip 压缩级别（1-9）
+     */
+    private int gzipLevel = 9;
+
+    /**
+     * 是否生成 Brotli 压缩版本，需要服务器安装 brotli 命令
+     */
+    private boolean brotliEnabled = true;
+
+    /**
+     * brotli 命令
+     */
+    private String brotliCommand = "brotli";
+
+    /**
+     * Brotli 压缩质量（0-11）
+     */
+    private int brotliQuality = 11;
+}
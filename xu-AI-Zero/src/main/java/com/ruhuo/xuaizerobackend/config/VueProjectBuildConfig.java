@@ -0,0 +1,65 @@
+package com.ruhuo.xuaizerobackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Vue 项目构建调度配置
+ * 绑定配置文件中以"vue-build"为前缀的属性，未配置时使用默认值
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "vue-build")
+public class VueProjectBuildConfig {
+
+    /**
+     * 同时执行构建的线程数（npm 构建很吃 CPU 和内存，不宜过多）
+     */
+    private int workerCount = 2;
+
+    /**
+     * 构建队列容量，超过后新的构建请求直接失败
+     */
+    private int queueCapacity = 50;
+
+    /**
+     * 部署时等待构建完成的最长时间（秒），需大于 npm install + npm run build 的超时之和
+     */
+    private int deployWaitSeconds = 600;
+
+    /**
+     * 是否启用共享的 node_modules 缓存（按依赖指纹复用已安装的依赖）
+     */
+    private boolean nodeModulesCacheEnabled = true;
+
+    /**
+     * node_modules 缓存最多保留的依赖组合数，超过后淘汰最久未使用的
+     */
+    private int nodeModulesCacheMaxEntries = 20;
+
+    /**
+     * 是否使用常驻 Vite 构建进程执行 vite build（不可用时自动回退为 npm run build）
+     */
+    private boolean viteWorkerEnabled = true;
+
+    /**
+     * 常驻构建进程数量
+     */
+    private int viteWorkerPoolSize = 2;
+
+    /**
+     * 单个构建进程最多执行的构建次数，超过后回收重建，避免内存持续增长
+     */
+    private int viteWorkerMaxBuilds = 50;
+
+    /**
+     * 单次构建的超时时间（秒）
+     */
+    private int viteWorkerBuildTimeoutSeconds = 180;
+
+    /**
+     * 空闲构建进程的健康检查间隔（秒）
+     */
+    private int viteWorkerHealthCheckSeconds = 30;
+}
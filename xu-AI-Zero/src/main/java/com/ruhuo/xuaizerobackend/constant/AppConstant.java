@@ -5,5 +5,9 @@ public interface AppConstant {
     Integer DEFAULT_APP_PRIORITY = 0;
     String CODE_OUTPUT_ROOT_DIR = System.getProperty("user.dir")+"/tmp/code_output";
     String CODE_DEPLOY_ROOT_DIR = System.getProperty("user.dir")+"/tmp/code_deploy";
+    String NODE_MODULES_CACHE_ROOT_DIR = System.getProperty("user.dir")+"/tmp/node_modules_cache";
+    String BUILD_STATE_ROOT_DIR = System.getProperty("user.dir")+"/tmp/build_state";
+    String CHAT_HISTORY_FALLBACK_DIR = System.getProperty("user.dir")+"/tmp/chat_history_fallback";
+    String DOWNLOAD_ARCHIVE_CACHE_DIR = System.getProperty("user.dir")+"/tmp/download_cache";
     String CODE_DEPLOY_HOST = "http://localhost";
 }
@@ -2,15 +2,18 @@ package com.ruhuo.xuaizerobackend.controller;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.ruhuo.xuaizerobackend.annotation.AuthCheck;
 import com.ruhuo.xuaizerobackend.common.BaseResponse;
 import com.ruhuo.xuaizerobackend.common.DeleteRequest;
 import com.ruhuo.xuaizerobackend.common.ResultUtils;
+import com.ruhuo.xuaizerobackend.config.SseStreamConfig;
 import com.ruhuo.xuaizerobackend.constant.AppConstant;
 import com.ruhuo.xuaizerobackend.constant.UserConstant;
+import com.ruhuo.xuaizerobackend.core.sse.GenerationRun;
+import com.ruhuo.xuaizerobackend.core.sse.SseCoalescePolicy;
+import com.ruhuo.xuaizerobackend.core.sse.SseStreamWriter;
 import com.ruhuo.xuaizerobackend.exception.BusinessException;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
 import com.ruhuo.xuaizerobackend.exception.ThrowUtils;
@@ -18,7 +21,11 @@ import com.ruhuo.xuaizerobackend.model.dto.app.*;
 import com.ruhuo.xuaizerobackend.model.entity.App;
 import com.ruhuo.xuaizerobackend.model.entity.User;
 import com.ruhuo.xuaizerobackend.model.enums.CodeGenTypeEnum;
+import com.ruhuo.xuaizerobackend.manager.GenerationRunManager;
+import com.ruhuo.xuaizerobackend.manager.ScreenshotJobManager;
 import com.ruhuo.xuaizerobackend.model.vo.AppVO;
+import com.ruhuo.xuaizerobackend.model.vo.ScreenshotJobVO;
+import com.ruhuo.xuaizerobackend.monitor.SseStreamMetricsCollector;
 import com.ruhuo.xuaizerobackend.ratelimiter.annotation.RateLimit;
 import com.ruhuo.xuaizerobackend.ratelimiter.enums.RateLimitType;
 import com.ruhuo.xuaizerobackend.service.AppService;
@@ -31,15 +38,14 @@ import org.apache.logging.log4j.util.PerformanceSensitive;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.MediaType;
-import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 import java.io.File;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 应用 控制层。
@@ -52,6 +58,9 @@ import java.util.Map;
 @RequestMapping("/app")
 public class AppController {
 
+    // EventSource 断线重连时携带最后一个事件ID的请求头
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
     @Resource
     private AppService appService; // 应用服务接口
 
@@ -61,20 +70,40 @@ public class AppController {
     @Resource
     private ProjectDownloadService projectDownloadService; // 项目下载服务接口
 
+    @Resource
+    private ScreenshotJobManager screenshotJobManager; // 封面截图任务队列
+
+    @Resource
+    private SseStreamConfig sseStreamConfig; // SSE 输出配置
+
+    @Resource
+    private SseStreamMetricsCollector sseStreamMetricsCollector; // SSE 输出指标
+
+    @Resource
+    private GenerationRunManager generationRunManager; // 代码生成记录管理
+
     /**
      * 处理生成代码的聊天请求，使用Server-Sent Events(SSE)实现流式响应
      *
      * @param appId   应用ID，用于标识具体的应用
      * @param message 用户输入的消息内容
+     * @param coalesceMs 合并窗口（毫秒），窗口内的片段合并为一帧发送，不传时使用服务端默认值
+     * @param latencySensitive 是否对延迟敏感，为true时每个片段单独发送，不做合并
+     * @param lastEventId EventSource 断线重连时自动带上的最后一个事件ID，有值时继续原来的生成，不会重新调用模型
      * @param request HTTP请求对象，可以获取请求相关信息
-     * @return 返回一个Flux流，包含多个ServerSentEvent<String>事件，用于流式返回生成结果
+     * @return SSE 响应，内容片段为带事件ID的 data 帧（输出较快时多个片段合并为一帧），最后发送 done 事件
      * @GetMapping 映射HTTP GET请求，路径为"/chat/gen/code"
      * @produces 指定响应内容类型为MediaType.TEXT_EVENT_STREAM_VALUE，即SSE格式
-     * @RateLimit 请求限注解，限制同一用户60秒内最多发起5次请求，超限则返回提示信息"AI对话请求过于频繁，请稍后再试"
+     * @RateLimit 请求限注解，限制同一用户60秒内最多发起5次请求，超限则返回提示信息"AI对话请求过于频繁，请稍后再试"，断线重连不计入次数
      */
     @GetMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    @RateLimit(limitType = RateLimitType.USER, rate = 5, rateInterval = 60, message = "AI对话请求过于频繁，请稍后再试")
-    public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId, @RequestParam String message, HttpServletRequest request) {
+    @RateLimit(limitType = RateLimitType.USER, rate = 5, rateInterval = 60, message = "AI对话请求过于频繁，请稍后再试",
+            exemptHeader = LAST_EVENT_ID_HEADER)
+    public ResponseEntity<ResponseBodyEmitter> chatToGenCode(@RequestParam Long appId, @RequestParam String message,
+                                                             @RequestParam(required = false) Long coalesceMs,
+                                                             @RequestParam(defaultValue = "false") boolean latencySensitive,
+                                                             @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId,
+                                                             HttpServletRequest request) {
         //参数校验：检查应用ID是否有效
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
         // 参数校验：检查用户消息是否为空
@@ -83,31 +112,19 @@ public class AppController {
         //获取当前登录用户信息
         User loginUser = userService.getLoginUser(request);
 
-        //调用服务生成代码（流式）
+        SseCoalescePolicy policy = SseCoalescePolicy.resolve(sseStreamConfig, coalesceMs, latencySensitive);
+        if (StrUtil.isNotBlank(lastEventId)) {
+            //断线重连：从客户端收到的最后一个片段之后继续，补发断线期间的内容后接着接收进行中的生成
+            GenerationRun run = generationRunManager.getResumableRun(lastEventId, appId, loginUser.getId());
+            long lastSeq = GenerationRun.parseSeq(lastEventId);
+            return SseStreamWriter.write(run.subscribe(lastSeq + 1), run.getRunId(), lastSeq, policy, sseStreamMetricsCollector);
+        }
+
+        //调用服务生成代码（流式），由生成记录订阅，客户端断开后生成继续进行，重连时可以补发
         Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
-        //转换为 ServerSentEvent 格式
-        return contentFlux.map(chunk -> {
-            //将内容包装成JSON对象
-            /**
-             * 在流式传输（Streaming）中，这个 JSON 结构会被重复发送成百上千次。
-             * 如果用全称：{"content": "你好"} —— 每次多浪费 6 个字符。
-             * 如果用缩写：{"d": "你好"} —— "d" 是最短的合法 Key，能把无效的载荷降到最低。
-             */
-// 创建一个Map，将chunk数据包装为键值对形式
-            Map<String, String> wrapper = Map.of("d", chunk);
-// 将Map转换为JSON字符串格式
-            String jsonData = JSONUtil.toJsonStr(wrapper);
-// 构建一个ServerSentEvent事件，包含JSON数据
-            return ServerSentEvent.<String>builder()
-                    .data(jsonData)
-                    .build();
-        }).concatWith(Mono.just(    // 将上述事件流与另一个事件连接起来
-                //发送结束事件，标记数据传输完成
-                ServerSentEvent.<String>builder()
-                        .event("done")  // 设置事件类型为"done"
-                        .data("")      // 设置事件数据为空
-                        .build()
-        ));
+        GenerationRun run = generationRunManager.start(appId, loginUser.getId(), contentFlux);
+        //直接编码为 SSE 帧写出：片段包装为 {"d": "..."}，按客户端的合并策略合并后发送，结束时发送 done 事件
+        return SseStreamWriter.write(run.subscribe(0), run.getRunId(), GenerationRun.NO_CHUNK_SEQ, policy, sseStreamMetricsCollector);
     }
 
     /**
@@ -256,6 +273,28 @@ public class AppController {
     }
 
 
+    /**
+     * 查询应用封面截图任务的状态
+     *
+     * @param appId   应用ID
+     * @param request HTTP请求对象
+     * @return 截图任务状态，应用没有部署过或任务已过期时返回null
+     */
+    @GetMapping("/screenshot/status")
+    public BaseResponse<ScreenshotJobVO> getScreenshotStatus(@RequestParam Long appId, HttpServletRequest request) {
+        // 参数校验：检查应用ID是否有效
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        // 查询应用信息
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        // 权限校验：只有应用创建者可以查看
+        User loginUser = userService.getLoginUser(request);
+        if (!app.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限查看该应用");
+        }
+        return ResultUtils.success(screenshotJobManager.getJob(appId));
+    }
+
     /**
      * 分页查询当前用户的应用列表（视图对象）
      *
@@ -500,6 +539,6 @@ public class AppController {
         String downloadFileName = String.valueOf(appId);
 
         //7.调用通用下载任务
-        projectDownloadService.downloadProjectAsZip(sourceDirPath, downloadFileName, response);
+        projectDownloadService.downloadProjectAsZip(sourceDirPath, downloadFileName, request, response);
     }
 }
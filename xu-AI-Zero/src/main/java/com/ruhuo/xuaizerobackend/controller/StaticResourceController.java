@@ -1,20 +1,23 @@
 package com.ruhuo.xuaizerobackend.controller;
 
 
-import com.ruhuo.xuaizerobackend.constant.AppConstant;
+import com.ruhuo.xuaizerobackend.config.StaticResourceConfig;
+import com.ruhuo.xuaizerobackend.manager.StaticFileIndexManager;
+import com.ruhuo.xuaizerobackend.manager.StaticFileIndexManager.CompressedVariant;
+import com.ruhuo.xuaizerobackend.manager.StaticFileIndexManager.StaticFileMeta;
+import com.ruhuo.xuaizerobackend.utils.FileTransferUtils;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.HandlerMapping;
 
-import java.io.File;
+import java.io.IOException;
 
 /***
  * 一个简易版的 Nginx
@@ -24,12 +27,20 @@ import java.io.File;
  * 所以需要写这个 Controller 来“搬运”文件。
  *
  * 让浏览器能够直接访问存储在服务器硬盘（tmp/code_output 目录）中的 AI 生成代码（HTML/CSS/JS）。
+ * 文件信息来自 {@link StaticFileIndexManager} 的缓存索引，支持 ETag/Last-Modified 协商缓存（304）、
+ * Range 断点续传，带内容哈希的 Vite 构建产物允许浏览器长期缓存，文件以零拷贝的方式发送。
+ * 部署时生成了 .br / .gz 预压缩版本的文件，按 Accept-Encoding 直接发送压缩版本。
  */
+@Slf4j
 @RestController
 @RequestMapping("/static")
 public class StaticResourceController {
-    //应用生成根目录（用于浏览）
-    private static final String PREVIEW_ROOT_DIR = AppConstant.CODE_OUTPUT_ROOT_DIR;
+
+    @Resource
+    private StaticFileIndexManager staticFileIndexManager;
+
+    @Resource
+    private StaticResourceConfig staticResourceConfig;
 
     /**
      * 提供静态资源访问，支持目录重定向
@@ -39,10 +50,10 @@ public class StaticResourceController {
      * 根据部署键和请求路径提供相应的静态资源文件
      * @param deployKey 部署密钥，用于标识不同的资源集合
      * @param request HTTP请求对象，包含请求的详细信息
-     * @return ResponseEntity 包含请求的资源或适当的错误响应
+     * @param response HTTP响应对象，用于写出文件内容
      */
     @GetMapping("/{deployKey}/**")
-    public ResponseEntity<Resource> serveStaticResource(@PathVariable String deployKey, HttpServletRequest request){
+    public void serveStaticResource(@PathVariable String deployKey, HttpServletRequest request, HttpServletResponse response){
 
         try{
             //获取资源路径，从请求属性中获取
@@ -52,11 +63,10 @@ public class StaticResourceController {
 
             //如果是目录访问（不带斜杠），重定向到带斜杠的URL
             if(resourcePath.isEmpty()){
-            // 设置重定向头信息
-                HttpHeaders headers = new HttpHeaders();
-                headers.add("Location",request.getRequestURI()+"/");
                 // 返回永久重定向响应
-                return new ResponseEntity<>(headers, HttpStatus.MOVED_PERMANENTLY);
+                response.setStatus(HttpServletResponse.SC_MOVED_PERMANENTLY);
+                response.setHeader(HttpHeaders.LOCATION, request.getRequestURI()+"/");
+                return;
             }
 
             //默认返回index.html
@@ -64,64 +74,67 @@ public class StaticResourceController {
                 resourcePath = "/index.html";
             }
 
-            //构建文件路径
-            String filePath = PREVIEW_ROOT_DIR + "/" + deployKey + resourcePath;
-            File file = new File(filePath);
+            //从索引中查找文件
+            StaticFileMeta meta = staticFileIndexManager.lookup(deployKey, resourcePath);
+            if(meta == null){
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+
+            //带内容哈希的构建产物内容不会变化，允许长期缓存；其他文件每次使用前都要向服务器确认
+            response.setHeader(HttpHeaders.CACHE_CONTROL, meta.isImmutable()
+                    ? "public, max-age=" + staticResourceConfig.getImmutableMaxAgeSeconds() + ", immutable"
+                    : "no-cache");
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, meta.getLastModified());
 
-            //检查文件是否存在
-            if(!file.exists()){
-                return ResponseEntity.notFound().build();
+            //选择预压缩版本，同一地址的内容随 Accept-Encoding 变化，需要告诉缓存服务器
+            CompressedVariant variant = selectVariant(request, meta);
+            if(meta.hasCompressedVariant()){
+                response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
             }
+            String etag = variant == null ? meta.getEtag() : variant.etag();
 
-            //返回文件资源
-            // 创建一个文件系统资源对象
-            Resource resource = new FileSystemResource(file);
-            // 返回一个HTTP响应实体，包含以下设置：
-            // 1. 状态码设置为OK
-            // 2. 设置Content-Type头部，使用getContentTypeWithCharset方法获取内容类型和字符集
-            // 3. 响应体设置为文件资源
-            return ResponseEntity.ok()
-                    .header("Content-Type",getContentTypeWithCharset(filePath))
-                    .body(resource);
-            // 捕获异常处理
+            //浏览器缓存仍然有效时返回304，不再传输文件内容
+            if(FileTransferUtils.isNotModified(request, etag, meta.getLastModified())){
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                response.setHeader(HttpHeaders.ETAG, etag);
+                return;
+            }
+
+            //返回文件内容
+            response.setContentType(meta.getContentType());
+            if(variant != null){
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, variant.encoding());
+                FileTransferUtils.transferFile(request, response, variant.file(), etag);
+            }else{
+                FileTransferUtils.transferFile(request, response, meta.getFile(), etag);
+            }
+        }catch (IOException e){
+            // 客户端中断连接（例如刷新页面），无需处理
+            log.debug("静态资源发送中断:{}", e.getMessage());
         }catch (Exception e){
-            // 如果发生异常，返回一个HTTP响应实体，状态码设置为INTERNAL_SERVER_ERROR
-            // 不包含响应体
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            // 如果发生异常，返回状态码 INTERNAL_SERVER_ERROR，不包含响应体
+            log.error("静态资源访问异常", e);
+            if(!response.isCommitted()){
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
         }
     }
 
     /**
-     * 根据文件路径获取对应的Content-Type值，包含字符集信息（如适用）
-     * @param filePath 文件路径字符串
-     * @return 返回对应的Content-Type字符串，如"text/html; charset=UTF-8"
+     * 按 Accept-Encoding 选择预压缩版本，Brotli 压缩率更高，优先使用
+     *
+     * @param request HTTP请求对象
+     * @param meta    文件信息
+     * @return 预压缩版本，客户端不支持或没有压缩版本时返回null
      */
-    private String getContentTypeWithCharset(String filePath){
-        // 检查文件是否为HTML文件
-        if(filePath.endsWith(".html")){
-            return "text/html; charset=UTF-8";
-        }
-
-        // 检查文件是否为CSS文件
-        if(filePath.endsWith(".css")){
-            return "text/css; charset=UTF-8";
-        }
-
-        // 检查文件是否为JavaScript文件
-        if(filePath.endsWith(".js")){
-            return "application/javascript; charset=UTF-8";
-        }
-
-        // 检查文件是否为PNG图片
-        if(filePath.endsWith(".png")){
-            return "image/png";
+    private CompressedVariant selectVariant(HttpServletRequest request, StaticFileMeta meta){
+        if(meta.getBrotli() != null && FileTransferUtils.acceptsEncoding(request, "br")){
+            return meta.getBrotli();
         }
-
-        // 检查文件是否为JPG图片
-        if(filePath.endsWith(".jpg")){
-            return "image/jpeg";
+        if(meta.getGzip() != null && FileTransferUtils.acceptsEncoding(request, "gzip")){
+            return meta.getGzip();
         }
-        // 默认返回二进制流类型
-        return "application/octet-stream";
+        return null;
     }
 }
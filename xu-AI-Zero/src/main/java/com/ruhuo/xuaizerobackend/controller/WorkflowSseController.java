@@ -2,6 +2,7 @@ package com.ruhuo.xuaizerobackend.controller;
 
 import com.ruhuo.xuaizerobackend.langgraph4j.CodeGenWorkflow;
 import com.ruhuo.xuaizerobackend.langgraph4j.state.WorkflowContext;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +17,7 @@ import reactor.core.publisher.Flux;
  * 1. 同步执行
  * 2. Flux 流式执行
  * 3. SSE 流式执行
+ * 以及按需查看工作流图
  */
 
 @RestController // 标识这是一个RESTful控制器
@@ -23,6 +25,9 @@ import reactor.core.publisher.Flux;
 @Slf4j // Lombok日志注解，自动生成日志器
 public class WorkflowSseController { // 工作流SSE控制器类
 
+    @Resource
+    private CodeGenWorkflow codeGenWorkflow; // 代码生成工作流（启动时编译一次，所有请求共享）
+
     /**
      * 同步执行工作流
      *
@@ -33,7 +38,7 @@ public class WorkflowSseController { // 工作流SSE控制器类
     @PostMapping("/execute") // 处理POST请求
     public WorkflowContext executeWorkflow(@RequestParam String prompt){ // 接收prompt参数
         log.info("收到同步工作流执行请求：{}",prompt); // 记录请求日志
-        return new CodeGenWorkflow().executeWorkflow(prompt); // 创建工作流实例并执行
+        return codeGenWorkflow.executeWorkflow(prompt); // 使用共享的工作流执行
     }
 
     /**
@@ -46,7 +51,7 @@ public class WorkflowSseController { // 工作流SSE控制器类
     @GetMapping(value = "/execute-flux",produces = MediaType.TEXT_EVENT_STREAM_VALUE) // 处理GET请求，设置SSE响应类型
     public Flux<String> executeWorkflowWithFlux(@RequestParam String prompt){ // 接收prompt参数
         log.info("收到 Flux 工作流执行请求：{}",prompt); // 记录请求日志
-        return new CodeGenWorkflow().executeWorkflowWithFlux(prompt); // 创建工作流实例并执行流式输出
+        return codeGenWorkflow.executeWorkflowWithFlux(prompt); // 使用共享的工作流执行流式输出
     }
 
     /**
@@ -59,6 +64,17 @@ public class WorkflowSseController { // 工作流SSE控制器类
     @GetMapping(value = "/execute-sse",produces = MediaType.TEXT_EVENT_STREAM_VALUE) // 处理GET请求，设置SSE响应类型
     public SseEmitter executeWorkflowWithSse(@RequestParam String prompt){ // 接收prompt参数
         log.info("收到 Flux 工作流执行请求：{}",prompt); // 记录请求日志
-        return new CodeGenWorkflow().executeWorkflowWithSse(prompt); // 创建工作流实例并执行SSE流式输出
+        return codeGenWorkflow.executeWorkflowWithSse(prompt); // 使用共享的工作流执行SSE流式输出
+    }
+
+    /**
+     * 获取工作流图
+     *
+     * @return String Mermaid 格式的工作流图
+     * 工作流图只在调用该接口时渲染，渲染结果会被缓存
+     */
+    @GetMapping("/graph") // 处理GET请求
+    public String getWorkflowGraph(){
+        return codeGenWorkflow.getWorkflowGraph(); // 返回 Mermaid 格式的工作流图
     }
 }
@@ -1,16 +1,18 @@
 package com.ruhuo.xuaizerobackend.core;
 
-import cn.hutool.json.JSONUtil;
 import com.ruhuo.xuaizerobackend.ai.AiCodeGeneratorService;
 import com.ruhuo.xuaizerobackend.ai.AiCodeGeneratorServiceFactory;
 import com.ruhuo.xuaizerobackend.ai.model.HtmlCodeResult;
 import com.ruhuo.xuaizerobackend.ai.model.MultiFileCodeResult;
 import com.ruhuo.xuaizerobackend.ai.model.message.AiResponseMessage;
+import com.ruhuo.xuaizerobackend.ai.model.message.StreamMessage;
 import com.ruhuo.xuaizerobackend.ai.model.message.ToolExecutedMessage;
 import com.ruhuo.xuaizerobackend.ai.model.message.ToolRequestMessage;
+import com.ruhuo.xuaizerobackend.ai.stream.ModelStreamBridge;
+import com.ruhuo.xuaizerobackend.config.SseStreamConfig;
 import com.ruhuo.xuaizerobackend.constant.AppConstant;
-import com.ruhuo.xuaizerobackend.core.builder.VueProjectBuilder;
-import com.ruhuo.xuaizerobackend.core.parser.CodeParserExecutor;
+import com.ruhuo.xuaizerobackend.core.builder.VueProjectBuildScheduler;
+import com.ruhuo.xuaizerobackend.core.parser.StreamingCodeParser;
 import com.ruhuo.xuaizerobackend.core.saver.CodeFileSaverExecutor;
 import com.ruhuo.xuaizerobackend.exception.BusinessException;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
@@ -38,59 +40,65 @@ public class AiCodeGeneratorFacade {
     @Resource
     private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
-    // 注入Vue项目构建器
+    // 注入Vue项目构建调度器
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueProjectBuildScheduler vueProjectBuildScheduler;
+
+    // 注入SSE输出配置，用于确定模型输出的缓冲上限
+    @Resource
+    private SseStreamConfig sseStreamConfig;
 
     /**
-     * 处理令牌流并返回一个Flux<String>类型的响应流
+     * 处理令牌流并返回一个Flux<StreamMessage>类型的响应流
      * 该方法通过创建一个Flux流来处理异步的令牌流事件，包括部分响应、工具执行请求、工具执行完成和完整响应等
+     * 事件直接以消息对象发出，由流处理器按类型处理，只在 SSE 输出时序列化一次
+     * 消息进入有界缓冲，客户端断开或长时间不读取时中断到模型的 HTTP 流
      *
      * @param tokenStream 输入的令牌流，包含需要处理的事件
      * @param appId       应用程序ID，用于标识和生成项目路径
-     * @return 返回一个Flux<String>流，包含处理后的JSON格式消息
+     * @return 返回一个Flux<StreamMessage>流，包含各类型的消息对象
      */
-    private Flux<String> processTokenStream(TokenStream tokenStream, Long appId) {
-        return Flux.create(sink -> { // 创建一个Flux流，使用sink来发射事件
-            // 注册部分响应处理函数，当收到部分响应时，将其转换为JSON格式并发送到流中
-            tokenStream.onPartialResponse((String partialResponse) -> {
-                        AiResponseMessage aiResponseMessage = new AiResponseMessage(partialResponse);
-                        sink.next(JSONUtil.toJsonStr(aiResponseMessage));
-                    })
-                    // 注册部分工具执行请求处理函数，当收到工具执行请求时，将其转换为JSON格式并发送到流中
-                    .onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
-                        ToolRequestMessage toolRequestMessage = new ToolRequestMessage(toolExecutionRequest);
-                        sink.next(JSONUtil.toJsonStr(toolRequestMessage));
-                    })
+    private Flux<StreamMessage> processTokenStream(TokenStream tokenStream, Long appId) {
+        return ModelStreamBridge.<StreamMessage>create((sink, cancellation) -> { // 创建一个Flux流，使用sink来发射事件
+            // 注册部分响应处理函数，当收到部分响应时，封装为消息对象发送到流中
+            tokenStream.onPartialResponse((String partialResponse) ->
+                            sink.next(new AiResponseMessage(partialResponse)))
+                    // 注册部分工具执行请求处理函数，当收到工具执行请求时，封装为消息对象发送到流中
+                    .onPartialToolExecutionRequest((index, toolExecutionRequest) ->
+                            sink.next(new ToolRequestMessage(toolExecutionRequest)))
                     // 注册工具执行完成处理函数，当工具执行完成时，创建相应的消息并发送到流中
-                    .onToolExecuted((ToolExecution toolExecution) -> {
-                        ToolExecutedMessage toolExecutedMessage = new ToolExecutedMessage(toolExecution);
-                        sink.next(JSONUtil.toJsonStr(toolExecutedMessage));
-                    })
-                    // 注册完整响应处理函数，当收到完整响应时，执行Vue项目构建并完成流
+                    .onToolExecuted((ToolExecution toolExecution) ->
+                            sink.next(new ToolExecutedMessage(toolExecution)))
+                    // 注册完整响应处理函数，当收到完整响应时，提交Vue项目构建任务，构建结束后完成流
                     .onCompleteResponse((ChatResponse response) -> {
-                        if (response != null && response.aiMessage() != null) {
-                            //执行 Vue 项目构建（同步执行，确保预览时项目已就绪）
-                            String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + "vue_project_" + appId;
-                            vueProjectBuilder.buildProject(projectPath);
-                        } else {
+                        if (response == null || response.aiMessage() == null) {
                             log.warn("AI 返回空响应，跳过 Vue 项目构建");
+                            sink.complete(); // 完成流
+                            return;
                         }
-                        sink.complete(); // 完成流
+                        //交给构建调度器异步执行，不占用模型的回调线程；构建状态实时推送给前端，确保预览时项目已就绪
+                        String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + "vue_project_" + appId;
+                        vueProjectBuildScheduler.submit(appId, projectPath, sink::next)
+                                .whenComplete((success, error) -> sink.complete()); // 构建结束后完成流
                     })
                     // 注册错误处理函数，当发生错误时打印错误信息并将错误传递到流中
                     .onError((Throwable error) -> {
+                        if (cancellation.isCancelled()) {
+                            //客户端断开后主动中断的模型流，不是异常
+                            log.info("代码生成已取消，appId: {}", appId);
+                            return;
+                        }
                         error.printStackTrace();
                         sink.error(error);
                     })
                     .start(); // 启动令牌流处理
-        });
+        }, sseStreamConfig.getMaxBufferedMessages());
     }
 
 
     /**
      * 处理代码流的方法
-     * 该方法负责收集代码片段，并在流完成后保存代码
+     * 该方法使用流式解析器边接收边解析代码片段，每个代码块结束时立即保存到文件
      *
      * @param codeStream  代码流，包含多个代码片段
      * @param codeGenType 代码生成类型
@@ -99,29 +107,27 @@ public class AiCodeGeneratorFacade {
      */
     private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
 
-        // 使用StringBuilder来收集所有的代码片段
-        StringBuilder codeBuilder = new StringBuilder();
-
-        // 处理代码流，对每个代码片段进行收集
-        return codeStream.doOnNext(chunk -> {
-            //实时收集代码片段
-            codeBuilder.append(chunk);
-        }).doOnComplete(() -> {
-            //流式返回完成后保存代码
+        // 流式解析器：每解析出一个完整的代码块就立即落盘，前端无需等整个流结束即可预览
+        StreamingCodeParser streamingCodeParser = new StreamingCodeParser(codeGenType, (language, code) -> {
             try {
-                // 获取完整的代码
-                String completeCode = codeBuilder.toString();
-
-                //使用执行器解析代码
-                Object parseResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-
-                //使用执行器保存代码
-                File saveDir = CodeFileSaverExecutor.executeSaver(parseResult, codeGenType, appId);
-                log.info("保存成功，目录为：{}", saveDir.getAbsolutePath());
+                File savedFile = CodeFileSaverExecutor.executeBlockSaver(language, code, codeGenType, appId);
+                if (savedFile != null) {
+                    log.info("保存成功，文件为：{}", savedFile.getAbsolutePath());
+                }
             } catch (Exception e) {
                 log.error("保存失败：{}", e.getMessage());
             }
         });
+
+        // 处理代码流，对每个代码片段进行增量解析
+        return codeStream.doOnNext(streamingCodeParser::append)
+                .doOnComplete(() -> {
+                    //流式返回完成后处理兜底逻辑（HTML 模式下没有代码块时保存全部内容）
+                    streamingCodeParser.finish();
+                    if (!streamingCodeParser.hasEmitted("html")) {
+                        log.error("保存失败：HTML代码内容不能为空");
+                    }
+                });
     }
 
 
@@ -179,9 +185,9 @@ public class AiCodeGeneratorFacade {
      * @param userMessage     用户输入的消息
      * @param codeGenTypeEnum 代码生成类型枚举
      * @param appId           应用ID
-     * @return 返回生成的代码流（Flux<String>类型）
+     * @return 返回生成的消息流（Flux<StreamMessage>类型），HTML 和多文件模式的代码片段封装为 AI 响应消息
      */
-    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+    public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
         // 1. 防御性检查：检查生成类型是否为空
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "生成类型不能为空");
@@ -201,16 +207,18 @@ public class AiCodeGeneratorFacade {
             // HTML代码生成分支
             case HTML -> {
                 // 调用AI代码生成服务生成HTML代码流
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
+                Flux<String> codeStream = ModelStreamBridge.cancellable(
+                        aiCodeGeneratorService.generateHtmlCodeStream(userMessage), sseStreamConfig.getMaxBufferedMessages());
                 // 处理代码流并返回结果，传入HTML类型和应用ID
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
+                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId).map(AiResponseMessage::new);
             }
             // 多文件代码生成分支
             case MULTI_FILE -> {
                 // 调用AI代码生成服务生成多文件代码流
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
+                Flux<String> codeStream = ModelStreamBridge.cancellable(
+                        aiCodeGeneratorService.generateMultiFileCodeStream(userMessage), sseStreamConfig.getMaxBufferedMessages());
                 // 处理代码流并返回结果，传入多文件类型和应用ID
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
+                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId).map(AiResponseMessage::new);
             }
             // Vue项目代码生成分支
             // 处理VUE_PROJECT类型的代码生成
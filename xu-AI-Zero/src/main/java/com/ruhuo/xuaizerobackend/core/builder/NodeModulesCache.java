@@ -0,0 +1,236 @@
+package com.ruhuo.xuaizerobackend.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.ruhuo.xuaizerobackend.config.VueProjectBuildConfig;
+import com.ruhuo.xuaizerobackend.constant.AppConstant;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享 node_modules 缓存
+ * 生成的 Vue 项目几乎都使用同一套模板依赖，每个项目单独 npm install 会重复下载、解压相同的包。
+ * 这里按 package.json 中依赖声明的指纹把安装好的 node_modules 放到共享目录，
+ * 之后依赖相同的项目只需创建一个指向共享目录的符号链接，缓存未命中时才真正执行 npm install。
+ * <p>
+ * 目录结构：{缓存根目录}/{依赖指纹}/node_modules、package-lock.json、.ready
+ */
+@Slf4j
+@Component
+public class NodeModulesCache {
+
+    private static final String NODE_MODULES = "node_modules";
+    private static final String PACKAGE_JSON = "package.json";
+    private static final String LOCK_FILE = "package-lock.json";
+    // 缓存就绪标记，同时用它的修改时间记录最近一次使用时间
+    private static final String READY_MARKER = ".ready";
+
+    // 参与指纹计算的依赖声明字段
+    private static final List<String> DEPENDENCY_FIELDS = List.of(
+            "dependencies", "devDependencies", "peerDependencies", "optionalDependencies", "overrides"
+    );
+
+    // 最近使用过的缓存不参与淘汰，避免删除正在构建的项目引用的依赖
+    private static final long EVICT_PROTECT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    @Resource
+    private VueProjectBuildConfig vueProjectBuildConfig;
+
+    /**
+     * 是否启用缓存
+     *
+     * @return 启用返回true
+     */
+    public boolean isEnabled() {
+        return vueProjectBuildConfig.isNodeModulesCacheEnabled();
+    }
+
+    /**
+     * 计算项目的依赖指纹
+     * 只取 package.json 中的依赖声明并按键排序，项目名称、脚本等字段不影响指纹
+     *
+     * @param projectDir 项目目录
+     * @return 依赖指纹，package.json 无法解析时返回null
+     */
+    public String computeFingerprint(File projectDir) {
+        File packageJson = new File(projectDir, PACKAGE_JSON);
+        try {
+            JSONObject packageObj = JSONUtil.parseObj(FileUtil.readUtf8String(packageJson));
+            Map<String, Object> normalized = new TreeMap<>();
+            for (String field : DEPENDENCY_FIELDS) {
+                JSONObject section = packageObj.getJSONObject(field);
+                if (section != null && !section.isEmpty()) {
+                    normalized.put(field, new TreeMap<>(section));
+                }
+            }
+            return SecureUtil.sha256(JSONUtil.toJsonStr(normalized));
+        } catch (Exception e) {
+            log.warn("计算依赖指纹失败:{}，error:{}", packageJson.getAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 尝试从缓存链接依赖到项目中
+     *
+     * @param projectDir  项目目录
+     * @param fingerprint 依赖指纹
+     * @return 命中缓存并链接成功返回true
+     */
+    public boolean linkFromCache(File projectDir, String fingerprint) {
+        Path entryDir = entryDir(fingerprint);
+        Path cachedModules = entryDir.resolve(NODE_MODULES);
+        if (!Files.exists(entryDir.resolve(READY_MARKER)) || !Files.isDirectory(cachedModules)) {
+            return false;
+        }
+        Path projectModules = projectDir.toPath().resolve(NODE_MODULES);
+        try {
+            //已经链接到同一份缓存，无需重复创建
+            if (Files.isSymbolicLink(projectModules)
+                    && Files.readSymbolicLink(projectModules).equals(cachedModules)) {
+                touch(entryDir);
+                return true;
+            }
+            //项目中已有真实安装的依赖时不覆盖，交给调用方决定是否重新安装
+            if (Files.exists(projectModules, LinkOption.NOFOLLOW_LINKS) && !Files.isSymbolicLink(projectModules)) {
+                return false;
+            }
+            Files.deleteIfExists(projectModules);
+            Files.createSymbolicLink(projectModules, cachedModules);
+            copyLockFile(entryDir.resolve(LOCK_FILE), projectDir.toPath().resolve(LOCK_FILE));
+            touch(entryDir);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("链接共享依赖失败，回退为普通安装:{}，error:{}", projectDir.getAbsolutePath(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 移除项目中指向共享缓存的符号链接
+     * 真实执行 npm install 前必须调用，否则安装会写入共享目录，影响其他项目
+     *
+     * @param projectDir 项目目录
+     */
+    public void unlinkShared(File projectDir) {
+        Path projectModules = projectDir.toPath().resolve(NODE_MODULES);
+        try {
+            if (Files.isSymbolicLink(projectModules)) {
+                Files.delete(projectModules);
+            }
+        } catch (IOException e) {
+            log.warn("移除共享依赖链接失败:{}，error:{}", projectModules, e.getMessage());
+        }
+    }
+
+    /**
+     * 把项目中刚安装好的依赖放入缓存，并改为链接到缓存
+     * 依赖目录通过同一文件系统内的移动完成，不会复制文件
+     *
+     * @param projectDir  项目目录
+     * @param fingerprint 依赖指纹
+     */
+    public void saveToCache(File projectDir, String fingerprint) {
+        Path projectModules = projectDir.toPath().resolve(NODE_MODULES);
+        if (Files.isSymbolicLink(projectModules) || !Files.isDirectory(projectModules)) {
+            return;
+        }
+        Path entryDir = entryDir(fingerprint);
+        Path cachedModules = entryDir.resolve(NODE_MODULES);
+        //其他项目已经放入了同一份依赖，保留本项目自己的安装即可
+        if (Files.exists(entryDir.resolve(READY_MARKER))) {
+            return;
+        }
+        try {
+            Files.createDirectories(entryDir);
+            Files.move(projectModules, cachedModules, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            //并发安装时可能被其他项目抢先放入，这里不视为错误
+            log.info("依赖未放入缓存:{}，原因:{}", fingerprint, e.getMessage());
+            return;
+        }
+        try {
+            Files.createSymbolicLink(projectModules, cachedModules);
+        } catch (IOException | UnsupportedOperationException e) {
+            //当前系统不支持符号链接，把依赖移回项目，保持项目可用
+            log.warn("创建共享依赖链接失败，依赖移回项目:{}，error:{}", projectDir.getAbsolutePath(), e.getMessage());
+            try {
+                Files.move(cachedModules, projectModules, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException moveBackError) {
+                log.error("依赖移回项目失败:{}，error:{}", projectDir.getAbsolutePath(), moveBackError.getMessage());
+            }
+            return;
+        }
+        copyLockFile(projectDir.toPath().resolve(LOCK_FILE), entryDir.resolve(LOCK_FILE));
+        touch(entryDir);
+        log.info("依赖已放入共享缓存:{}", entryDir);
+        evictIfNecessary();
+    }
+
+    /**
+     * 淘汰最久未使用的缓存，控制共享目录的磁盘占用
+     */
+    private void evictIfNecessary() {
+        File[] entries = new File(AppConstant.NODE_MODULES_CACHE_ROOT_DIR).listFiles(File::isDirectory);
+        int maxEntries = Math.max(1, vueProjectBuildConfig.getNodeModulesCacheMaxEntries());
+        if (entries == null || entries.length <= maxEntries) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Arrays.stream(entries)
+                .sorted(Comparator.comparingLong(this::lastUsedTime))
+                .limit(entries.length - maxEntries)
+                .filter(entry -> now - lastUsedTime(entry) > EVICT_PROTECT_MILLIS)
+                .forEach(entry -> {
+                    log.info("淘汰共享依赖缓存:{}", entry.getName());
+                    FileUtil.del(entry);
+                });
+    }
+
+    /**
+     * 获取缓存最近一次使用时间
+     */
+    private long lastUsedTime(File entry) {
+        return new File(entry, READY_MARKER).lastModified();
+    }
+
+    /**
+     * 更新缓存的就绪标记和使用时间
+     */
+    private void touch(Path entryDir) {
+        FileUtil.touch(entryDir.resolve(READY_MARKER).toFile()).setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * 复制锁文件，让共享同一份依赖的项目拥有一致的 package-lock.json
+     */
+    private void copyLockFile(Path source, Path target) {
+        if (Files.exists(source)) {
+            try {
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.warn("复制 {} 失败:{}", LOCK_FILE, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 缓存条目目录
+     */
+    private Path entryDir(String fingerprint) {
+        return Paths.get(AppConstant.NODE_MODULES_CACHE_ROOT_DIR, fingerprint);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ruhuo.xuaizerobackend.core.builder;
+
+import cn.hutool.json.JSONObject;
+import com.ruhuo.xuaizerobackend.core.sidecar.JsonLineSidecarWorker;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 常驻 Vite 构建进程
+ * 封装一个长期运行的 Node 进程（build-worker.cjs），
+ * 进程内已加载的 vite 模块会被后续构建复用，省去每次构建的 Node 启动和 Vite 冷启动开销。
+ */
+@Slf4j
+public class ViteBuildWorker extends JsonLineSidecarWorker {
+
+    // 协议响应行前缀，与 build-worker.cjs 保持一致
+    private static final String RESPONSE_PREFIX = "@@vite-worker@@";
+
+    // 已执行的构建次数，超过上限后回收进程
+    private final AtomicInteger buildCount = new AtomicInteger();
+
+    private ViteBuildWorker(String name, Process process) {
+        super(name, process, RESPONSE_PREFIX);
+    }
+
+    /**
+     * 启动一个构建进程
+     *
+     * @param name       进程名称，用于日志
+     * @param nodeBinary node 可执行文件
+     * @param scriptFile 构建脚本
+     * @return 构建进程
+     * @throws IOException 启动失败
+     */
+    public static ViteBuildWorker start(String name, String nodeBinary, File scriptFile) throws IOException {
+        ViteBuildWorker worker = new ViteBuildWorker(name, launch(nodeBinary, scriptFile, Map.of()));
+        worker.startReaders();
+        return worker;
+    }
+
+    /**
+     * 在该进程中构建项目
+     *
+     * @param projectDir     项目目录
+     * @param timeoutSeconds 超时时间（秒）
+     * @return 构建成功返回true，Vite 报告构建失败返回false；
+     * 进程退出、超时或协议异常导致没有得到响应时返回null，构建结果未知，调用方应回退为 npm run build
+     */
+    public Boolean build(File projectDir, int timeoutSeconds) {
+        buildCount.incrementAndGet();
+        JSONObject request = new JSONObject();
+        request.set("type", "build");
+        request.set("projectDir", projectDir.getAbsolutePath());
+        JSONObject response = request(request, Duration.ofSeconds(timeoutSeconds));
+        if (response == null) {
+            log.warn("[{}] 构建进程没有返回结果:{}", getName(), projectDir.getAbsolutePath());
+            return null;
+        }
+        if (!response.getBool("success", false)) {
+            //返回失败后进程随即退出（例如内存不足），失败可能是进程本身导致的，不作为构建结果
+            if (!isAlive()) {
+                log.warn("[{}] 构建进程返回失败后已退出:{}", getName(), response.getStr("error"));
+                return null;
+            }
+            log.error("[{}] Vite 构建失败:{}", getName(), response.getStr("error"));
+            return false;
+        }
+        log.info("[{}] Vite 构建完成，耗时{}ms:{}", getName(), response.getLong("durationMs"), projectDir.getAbsolutePath());
+        return true;
+    }
+
+    /**
+     * 已执行的构建次数
+     *
+     * @return 构建次数
+     */
+    public int getBuildCount() {
+        return buildCount.get();
+    }
+}
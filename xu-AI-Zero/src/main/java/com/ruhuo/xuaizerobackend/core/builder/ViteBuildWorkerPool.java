@@ -0,0 +1,221 @@
+package com.ruhuo.xuaizerobackend.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import com.ruhuo.xuaizerobackend.config.VueProjectBuildConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 常驻 Vite 构建进程池
+ * 维护若干个长期运行的 Node 构建进程，构建请求借用空闲进程执行，执行完归还。
+ * <p>
+ * 1. 健康检查：定时 ping 空闲进程，无响应的进程直接重建
+ * 2. 回收：单个进程执行的构建次数达到上限、超时或退出后销毁并重建
+ * 3. 回退：进程池不可用或暂无空闲进程时返回null，由调用方回退为 npm run build
+ */
+@Slf4j
+@Component
+public class ViteBuildWorkerPool {
+
+    // 构建脚本在类路径中的位置
+    private static final String WORKER_SCRIPT = "vite-worker/build-worker.cjs";
+
+    // 构建脚本释放到本地的目录（jar 中的资源不能直接被 node 执行）
+    private static final String WORKER_SCRIPT_DIR = System.getProperty("user.dir") + "/tmp/vite_worker";
+
+    // 健康检查的超时时间（秒）
+    private static final int PING_TIMEOUT_SECONDS = 5;
+
+    // 借用空闲进程的最长等待时间（秒），超过后回退为 npm run build，避免构建排队过久
+    private static final int BORROW_TIMEOUT_SECONDS = 30;
+
+    @Resource
+    private VueProjectBuildConfig vueProjectBuildConfig;
+
+    // 空闲的构建进程
+    private final BlockingQueue<ViteBuildWorker> idleWorkers = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger workerIndex = new AtomicInteger();
+
+    private File workerScript;
+
+    private ScheduledExecutorService healthCheckExecutor;
+
+    // 进程池是否可用（node 不存在等情况下为false）
+    private volatile boolean available;
+
+    /**
+     * 释放构建脚本并启动构建进程
+     */
+    @PostConstruct
+    public void init() {
+        if (!vueProjectBuildConfig.isViteWorkerEnabled()) {
+            return;
+        }
+        try (InputStream inputStream = new ClassPathResource(WORKER_SCRIPT).getInputStream()) {
+            workerScript = FileUtil.writeFromStream(inputStream, new File(WORKER_SCRIPT_DIR, "build-worker.cjs"));
+        } catch (Exception e) {
+            log.warn("释放 Vite 构建脚本失败，使用 npm run build:{}", e.getMessage());
+            return;
+        }
+        int poolSize = Math.max(1, vueProjectBuildConfig.getViteWorkerPoolSize());
+        for (int i = 0; i < poolSize; i++) {
+            ViteBuildWorker worker = startWorker();
+            if (worker == null) {
+                //第一个进程就启动失败，说明环境不支持（例如没有安装 node），整个进程池不启用
+                if (i == 0) {
+                    log.warn("Vite 构建进程启动失败，使用 npm run build");
+                    return;
+                }
+                break;
+            }
+            idleWorkers.offer(worker);
+        }
+        available = true;
+
+        healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vite-worker-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int interval = Math.max(5, vueProjectBuildConfig.getViteWorkerHealthCheckSeconds());
+        healthCheckExecutor.scheduleWithFixedDelay(this::healthCheck, interval, interval, TimeUnit.SECONDS);
+        log.info("Vite 构建进程池已启动，进程数:{}", idleWorkers.size());
+    }
+
+    /**
+     * 销毁所有构建进程
+     */
+    @PreDestroy
+    public void destroy() {
+        available = false;
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+        }
+        ViteBuildWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+        }
+    }
+
+    /**
+     * 使用常驻进程构建项目
+     *
+     * @param projectDir 项目目录
+     * @return 构建成功返回true，Vite 报告构建失败返回false；进程池不可用或进程没有返回结果时返回null，调用方应回退为 npm run build
+     */
+    public Boolean build(File projectDir) {
+        if (!available) {
+            return null;
+        }
+        ViteBuildWorker worker = borrow();
+        if (worker == null) {
+            log.warn("暂无空闲的 Vite 构建进程，回退为 npm run build");
+            return null;
+        }
+        try {
+            return worker.build(projectDir, vueProjectBuildConfig.getViteWorkerBuildTimeoutSeconds());
+        } finally {
+            release(worker);
+        }
+    }
+
+    /**
+     * 借用一个可用的空闲进程，两次健康检查之间退出的进程在借出前替换掉
+     *
+     * @return 构建进程，等待超时返回null
+     */
+    private ViteBuildWorker borrow() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(BORROW_TIMEOUT_SECONDS);
+        try {
+            while (true) {
+                ViteBuildWorker worker = idleWorkers.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (worker == null || worker.isAlive()) {
+                    return worker;
+                }
+                log.warn("Vite 构建进程已退出，重建:{}", worker.getName());
+                replace(worker);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * 归还构建进程，已损坏或达到构建次数上限的进程会被重建
+     *
+     * @param worker 构建进程
+     */
+    private void release(ViteBuildWorker worker) {
+        if (worker.isAlive() && worker.getBuildCount() < vueProjectBuildConfig.getViteWorkerMaxBuilds()) {
+            idleWorkers.offer(worker);
+            return;
+        }
+        log.info("回收 Vite 构建进程:{}，已构建{}次", worker.getName(), worker.getBuildCount());
+        replace(worker);
+    }
+
+    /**
+     * 定时检查空闲进程，无响应的进程重建
+     */
+    private void healthCheck() {
+        List<ViteBuildWorker> workers = new ArrayList<>();
+        idleWorkers.drainTo(workers);
+        for (ViteBuildWorker worker : workers) {
+            if (worker.ping(PING_TIMEOUT_SECONDS)) {
+                idleWorkers.offer(worker);
+            } else {
+                log.warn("Vite 构建进程健康检查失败，重建:{}", worker.getName());
+                replace(worker);
+            }
+        }
+    }
+
+    /**
+     * 销毁旧进程并启动新进程补充到池中
+     *
+     * @param worker 旧进程
+     */
+    private void replace(ViteBuildWorker worker) {
+        worker.destroy();
+        if (!available) {
+            return;
+        }
+        ViteBuildWorker newWorker = startWorker();
+        if (newWorker != null) {
+            idleWorkers.offer(newWorker);
+        }
+    }
+
+    /**
+     * 启动一个构建进程
+     *
+     * @return 构建进程，启动失败返回null
+     */
+    private ViteBuildWorker startWorker() {
+        String name = "vite-worker-" + workerIndex.incrementAndGet();
+        try {
+            ViteBuildWorker worker = ViteBuildWorker.start(name, "node", workerScript);
+            if (worker.ping(PING_TIMEOUT_SECONDS)) {
+                return worker;
+            }
+            worker.destroy();
+            log.error("Vite 构建进程启动后无响应:{}", name);
+        } catch (Exception e) {
+            log.error("启动 Vite 构建进程失败:{}，error:{}", name, e.getMessage());
+        }
+        return null;
+    }
+}
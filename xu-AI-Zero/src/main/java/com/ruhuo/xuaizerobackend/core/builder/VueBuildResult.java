@@ -0,0 +1,39 @@
+package com.ruhuo.xuaizerobackend.core.builder;
+
+import com.ruhuo.xuaizerobackend.model.enums.VueBuildModeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Vue 项目构建结果
+ * 除了是否成功，还记录本次构建走的路径（完整构建、跳过安装、直接复用等）
+ */
+@Data
+@AllArgsConstructor
+public class VueBuildResult {
+
+    // 是否构建成功
+    private boolean success;
+
+    // 构建路径，构建失败时为null
+    private VueBuildModeEnum mode;
+
+    /**
+     * 构建失败的结果
+     *
+     * @return 失败结果
+     */
+    public static VueBuildResult failed() {
+        return new VueBuildResult(false, null);
+    }
+
+    /**
+     * 构建成功的结果
+     *
+     * @param mode 构建路径
+     * @return 成功结果
+     */
+    public static VueBuildResult success(VueBuildModeEnum mode) {
+        return new VueBuildResult(true, mode);
+    }
+}
@@ -0,0 +1,137 @@
+package com.ruhuo.xuaizerobackend.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.json.JSONUtil;
+import com.ruhuo.xuaizerobackend.constant.AppConstant;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Vue 项目构建状态存储
+ * 记录每个项目上一次成功构建时的依赖指纹和源码指纹，用于判断能否跳过安装或整次构建。
+ * 状态保存在内存中，同时写入独立的状态目录（不放在项目目录里，避免被下载或部署出去），重启后仍然有效。
+ */
+@Slf4j
+@Component
+public class VueBuildStateStore {
+
+    // 计算源码指纹时忽略的目录和文件（依赖、构建产物、锁文件由依赖指纹负责）
+    private static final Set<String> IGNORED_NAMES = Set.of(
+            "node_modules", "dist", ".git", ".vite", "package-lock.json"
+    );
+
+    // 内存中的构建状态，键为项目目录名
+    private final ConcurrentMap<String, BuildState> stateCache = new ConcurrentHashMap<>();
+
+    /**
+     * 计算项目源码指纹
+     * 使用相对路径、文件大小和修改时间计算，不读取文件内容，遍历成本很低
+     *
+     * @param projectDir 项目目录
+     * @return 源码指纹，遍历失败时返回null
+     */
+    public String computeSourceFingerprint(File projectDir) {
+        Path root = projectDir.toPath();
+        // 使用TreeMap保证遍历顺序不影响指纹
+        TreeMap<String, String> entries = new TreeMap<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return !dir.equals(root) && IGNORED_NAMES.contains(dir.getFileName().toString())
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!IGNORED_NAMES.contains(file.getFileName().toString())) {
+                        entries.put(root.relativize(file).toString().replace('\\', '/'),
+                                attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("计算源码指纹失败:{}，error:{}", projectDir.getAbsolutePath(), e.getMessage());
+            return null;
+        }
+        return SecureUtil.sha256(JSONUtil.toJsonStr(entries));
+    }
+
+    /**
+     * 获取项目上一次成功构建的状态
+     *
+     * @param projectDir 项目目录
+     * @return 构建状态，没有记录时返回null
+     */
+    public BuildState get(File projectDir) {
+        return stateCache.computeIfAbsent(projectDir.getName(), key -> {
+            File stateFile = stateFile(key);
+            if (!stateFile.exists()) {
+                return null;
+            }
+            try {
+                return JSONUtil.toBean(FileUtil.readUtf8String(stateFile), BuildState.class);
+            } catch (Exception e) {
+                log.warn("读取构建状态失败:{}，error:{}", stateFile.getAbsolutePath(), e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 保存项目成功构建后的状态
+     *
+     * @param projectDir 项目目录
+     * @param state      构建状态
+     */
+    public void save(File projectDir, BuildState state) {
+        stateCache.put(projectDir.getName(), state);
+        try {
+            FileUtil.writeUtf8String(JSONUtil.toJsonStr(state), stateFile(projectDir.getName()));
+        } catch (Exception e) {
+            log.warn("保存构建状态失败:{}，error:{}", projectDir.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 清除项目的构建状态（构建失败后调用，下次必须完整构建）
+     *
+     * @param projectDir 项目目录
+     */
+    public void invalidate(File projectDir) {
+        stateCache.remove(projectDir.getName());
+        FileUtil.del(stateFile(projectDir.getName()));
+    }
+
+    /**
+     * 状态文件路径
+     */
+    private File stateFile(String projectDirName) {
+        return new File(AppConstant.BUILD_STATE_ROOT_DIR, projectDirName + ".json");
+    }
+
+    /**
+     * 项目构建状态
+     */
+    @Data
+    public static class BuildState {
+        // 依赖指纹（package.json 依赖声明）
+        private String dependencyFingerprint;
+        // 源码指纹（构建前的源码文件）
+        private String sourceFingerprint;
+        // 构建完成时间戳
+        private Long buildTime;
+    }
+}
@@ -0,0 +1,219 @@
+package com.ruhuo.xuaizerobackend.core.builder;
+
+import com.ruhuo.xuaizerobackend.ai.model.message.BuildStatusMessage;
+import com.ruhuo.xuaizerobackend.config.VueProjectBuildConfig;
+import com.ruhuo.xuaizerobackend.model.enums.VueBuildStatusEnum;
+import com.ruhuo.xuaizerobackend.monitor.VueBuildMetricsCollector;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Vue 项目构建调度器
+ * 把 npm install / npm run build 从 AI 流式回调线程中剥离出来，交给专用的构建线程池执行
+ * <p>
+ * 1. 有界队列：队列满时直接拒绝，避免构建任务无限堆积
+ * 2. 按应用合并：同一个 appId 还在排队的构建会被更新的请求替换，只构建最新的代码
+ * 3. 同一应用串行：同一个项目目录不会同时执行两次构建
+ * 4. 状态推送：通过监听器把排队、构建中、成功、失败等状态推送给调用方
+ */
+@Slf4j
+@Component
+public class VueProjectBuildScheduler {
+
+    // 同一应用串行构建使用的分段锁数量
+    private static final int LOCK_STRIPES = 64;
+
+    @Resource
+    private VueProjectBuilder vueProjectBuilder;
+
+    @Resource
+    private VueProjectBuildConfig vueProjectBuildConfig;
+
+    @Resource
+    private VueBuildMetricsCollector vueBuildMetricsCollector;
+
+    // 每个应用当前还在排队的构建任务，用于合并重复请求
+    private final ConcurrentMap<Long, BuildTask> pendingTasks = new ConcurrentHashMap<>();
+
+    // 分段锁，保证同一应用的构建串行执行，同时避免为每个 appId 都创建锁对象
+    private final Object[] appLocks = new Object[LOCK_STRIPES];
+
+    // 正在执行的构建数
+    private final AtomicInteger runningCount = new AtomicInteger();
+
+    // 构建线程池
+    private ThreadPoolExecutor buildExecutor;
+
+    /**
+     * 初始化构建线程池并注册监控指标
+     */
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            appLocks[i] = new Object();
+        }
+        int workerCount = Math.max(1, vueProjectBuildConfig.getWorkerCount());
+        AtomicInteger threadIndex = new AtomicInteger();
+        buildExecutor = new ThreadPoolExecutor(
+                workerCount, workerCount,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, vueProjectBuildConfig.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "vue-build-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        vueBuildMetricsCollector.registerQueueGauges(() -> buildExecutor.getQueue().size(), runningCount::get);
+        log.info("Vue 项目构建调度器已启动，构建线程数:{}，队列容量:{}", workerCount, vueProjectBuildConfig.getQueueCapacity());
+    }
+
+    /**
+     * 关闭构建线程池
+     */
+    @PreDestroy
+    public void destroy() {
+        if (buildExecutor != null) {
+            buildExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交构建任务（不阻塞调用线程）
+     *
+     * @param appId          应用ID，用于合并同一应用的构建请求
+     * @param projectPath    项目路径
+     * @param statusListener 构建状态监听器，可以为null
+     * @return 构建结果，成功为true
+     */
+    public CompletableFuture<Boolean> submit(Long appId, String projectPath, Consumer<BuildStatusMessage> statusListener) {
+        BuildTask task = new BuildTask(appId, projectPath);
+        if (statusListener != null) {
+            task.listeners.add(statusListener);
+        }
+
+        //替换同一应用还在排队的旧任务，旧任务的调用方改为等待新任务的结果
+        BuildTask previous = pendingTasks.put(appId, task);
+        if (previous != null && previous.state.compareAndSet(VueBuildStatusEnum.QUEUED, VueBuildStatusEnum.SUPERSEDED)) {
+            buildExecutor.remove(previous);
+            previous.notifyStatus(VueBuildStatusEnum.SUPERSEDED, null);
+            task.listeners.addAll(previous.listeners);
+            task.future.whenComplete((result, error) -> previous.future.complete(Boolean.TRUE.equals(result)));
+            vueBuildMetricsCollector.recordTask(VueBuildStatusEnum.SUPERSEDED.getValue());
+            log.info("应用 {} 的排队构建任务已被新请求合并", appId);
+        }
+
+        task.notifyStatus(VueBuildStatusEnum.QUEUED, null);
+        try {
+            buildExecutor.execute(task);
+            vueBuildMetricsCollector.recordTask(VueBuildStatusEnum.QUEUED.getValue());
+        } catch (RejectedExecutionException e) {
+            log.error("构建队列已满，拒绝应用 {} 的构建请求", appId);
+            pendingTasks.remove(appId, task);
+            task.state.set(VueBuildStatusEnum.FAILED);
+            task.finish(false, "构建队列已满，请稍后重试");
+        }
+        return task.future;
+    }
+
+    /**
+     * 获取同一应用对应的分段锁
+     *
+     * @param appId 应用ID
+     * @return 锁对象
+     */
+    private Object lockFor(Long appId) {
+        return appLocks[Math.floorMod(appId.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * 构建任务
+     */
+    private class BuildTask implements Runnable {
+        private final Long appId;
+        private final String projectPath;
+        private final long enqueueNanos = System.nanoTime();
+        private final AtomicReference<VueBuildStatusEnum> state = new AtomicReference<>(VueBuildStatusEnum.QUEUED);
+        private final List<Consumer<BuildStatusMessage>> listeners = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private BuildTask(Long appId, String projectPath) {
+            this.appId = appId;
+            this.projectPath = projectPath;
+        }
+
+        @Override
+        public void run() {
+            //已被合并的任务直接跳过
+            if (!state.compareAndSet(VueBuildStatusEnum.QUEUED, VueBuildStatusEnum.BUILDING)) {
+                return;
+            }
+            pendingTasks.remove(appId, this);
+            Duration waitDuration = Duration.ofNanos(System.nanoTime() - enqueueNanos);
+
+            VueBuildResult result = VueBuildResult.failed();
+            long buildStart = System.nanoTime();
+            synchronized (lockFor(appId)) {
+                runningCount.incrementAndGet();
+                try {
+                    notifyStatus(VueBuildStatusEnum.BUILDING, null);
+                    result = vueProjectBuilder.buildProjectWithResult(projectPath);
+                } catch (Exception e) {
+                    log.error("构建 Vue 项目时发生异常:{}", e.getMessage(), e);
+                } finally {
+                    runningCount.decrementAndGet();
+                }
+            }
+            boolean success = result.isSuccess();
+            String status = success ? VueBuildStatusEnum.SUCCESS.getValue() : VueBuildStatusEnum.FAILED.getValue();
+            vueBuildMetricsCollector.recordDuration(status, "wait", waitDuration);
+            vueBuildMetricsCollector.recordDuration(status, "build", Duration.ofNanos(System.nanoTime() - buildStart));
+            if (success) {
+                vueBuildMetricsCollector.recordMode(result.getMode().getValue());
+            }
+            //成功时把实际走的构建路径一并告诉前端
+            finish(success, success ? String.format("%s（%s）", VueBuildStatusEnum.SUCCESS.getText(), result.getMode().getText()) : null);
+        }
+
+        /**
+         * 结束任务，推送终态并完成结果
+         *
+         * @param success 是否成功
+         * @param message 附加描述
+         */
+        private void finish(boolean success, String message) {
+            VueBuildStatusEnum finalStatus = success ? VueBuildStatusEnum.SUCCESS : VueBuildStatusEnum.FAILED;
+            state.set(finalStatus);
+            vueBuildMetricsCollector.recordTask(finalStatus.getValue());
+            notifyStatus(finalStatus, message);
+            future.complete(success);
+        }
+
+        /**
+         * 通知所有监听器，单个监听器异常不影响构建
+         *
+         * @param statusEnum 构建状态
+         * @param message    附加描述
+         */
+        private void notifyStatus(VueBuildStatusEnum statusEnum, String message) {
+            BuildStatusMessage statusMessage = new BuildStatusMessage(statusEnum, message);
+            for (Consumer<BuildStatusMessage> listener : listeners) {
+                try {
+                    listener.accept(statusMessage);
+                } catch (Exception e) {
+                    log.warn("推送构建状态失败，appId:{}，error:{}", appId, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.ruhuo.xuaizerobackend.core.builder;
 
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.RuntimeUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.ruhuo.xuaizerobackend.model.enums.VueBuildModeEnum;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -15,6 +20,15 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class VueProjectBuilder {
 
+    @Resource
+    private NodeModulesCache nodeModulesCache; // 共享 node_modules 缓存
+
+    @Resource
+    private VueBuildStateStore vueBuildStateStore; // 项目构建状态，用于增量构建
+
+    @Resource
+    private ViteBuildWorkerPool viteBuildWorkerPool; // 常驻 Vite 构建进程池
+
     /**
      * 在指定工作目录中执行命令，并设置超时时间
      *
@@ -68,6 +82,33 @@ public class VueProjectBuilder {
         return executeCommand(projectDir, command, 300);//5分钟超时
     }
 
+    /**
+     * 安装项目依赖
+     * 优先链接共享缓存中依赖相同的 node_modules，缓存未命中时才执行 npm install 并把结果放入缓存
+     *
+     * @param projectDir  项目目录
+     * @param fingerprint 依赖指纹，为null时不使用共享缓存
+     * @return 安装成功返回实际走的构建路径，失败返回null
+     */
+    private VueBuildModeEnum installDependencies(File projectDir, String fingerprint) {
+        if (!nodeModulesCache.isEnabled() || fingerprint == null) {
+            //不使用共享缓存时同样要断开旧链接，避免安装写入共享目录
+            nodeModulesCache.unlinkShared(projectDir);
+            return executeNpmInstall(projectDir) ? VueBuildModeEnum.FULL : null;
+        }
+        if (nodeModulesCache.linkFromCache(projectDir, fingerprint)) {
+            log.info("命中共享依赖缓存，跳过 npm install:{}", fingerprint);
+            return VueBuildModeEnum.CACHED_DEPENDENCIES;
+        }
+        //缓存未命中：先断开可能存在的旧链接，再真实安装
+        nodeModulesCache.unlinkShared(projectDir);
+        if (!executeNpmInstall(projectDir)) {
+            return null;
+        }
+        nodeModulesCache.saveToCache(projectDir, fingerprint);
+        return VueBuildModeEnum.FULL;
+    }
+
     /**
      * 执行 npm run build 命令
      *
@@ -75,6 +116,13 @@ public class VueProjectBuilder {
      * @return 执行成功返回true，失败返回false
      */
     private boolean executeNpmBuild(File projectDir) {
+        // 构建脚本就是 vite build 时优先交给常驻构建进程，省去 Node 和 Vite 的冷启动
+        if (isPlainViteBuild(projectDir)) {
+            Boolean result = viteBuildWorkerPool.build(projectDir);
+            if (result != null) {
+                return result;
+            }
+        }
         // 记录开始执行npm build的信息
         log.info("执行 npm run build...");
         // 构建完整的npm命令，格式为"npm run build"
@@ -85,6 +133,26 @@ public class VueProjectBuilder {
         return executeCommand(projectDir, command, 180);//3分钟超时
     }
 
+    /**
+     * 判断项目的构建脚本是否就是 vite build
+     * 自定义了构建脚本（例如先执行类型检查）的项目仍然走 npm run build，保证行为一致
+     *
+     * @param projectDir 项目目录
+     * @return 是返回true
+     */
+    private boolean isPlainViteBuild(File projectDir) {
+        File packageJson = new File(projectDir, "package.json");
+        if (!packageJson.exists()) {
+            return false;
+        }
+        try {
+            JSONObject scripts = JSONUtil.parseObj(FileUtil.readUtf8String(packageJson)).getJSONObject("scripts");
+            return scripts != null && "vite build".equals(scripts.getStr("build", "").trim());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /**
      * 判断当前系统是否为Windows系统
      * 该方法通过获取系统属性中的操作系统名称，并将其转换为小写后进行判断
@@ -123,46 +191,92 @@ public class VueProjectBuilder {
      * @return 构建成功返回true，失败返回false
      */
     public boolean buildProject(String projectPath) {
+        return buildProjectWithResult(projectPath).isSuccess();
+    }
+
+    /**
+     * 增量构建Vue项目，并返回实际走的构建路径
+     * 1. 源码和依赖都与上次成功构建一致，且 dist 仍然存在：直接复用，不执行任何命令
+     * 2. 依赖声明未变化且 node_modules 仍然存在：跳过依赖安装，只执行 npm run build
+     * 3. 其他情况：安装依赖（优先共享缓存）后执行 npm run build
+     *
+     * @param projectPath 项目路径，指向Vue项目的根目录
+     * @return 构建结果
+     */
+    public VueBuildResult buildProjectWithResult(String projectPath) {
         // 获取项目路径对应的 File 对象
         File projectDir = new File(projectPath);
 
         // 检查项目目录是否存在且为有效目录
         if (!projectDir.exists() || !projectDir.isDirectory()) {
             log.error("项目目录不存在:{}", projectPath);
-            return false;
+            return VueBuildResult.failed();
         }
 
         //检查 package.json 是否存在，这是Node.js项目的必要配置文件
         File packageJson = new File(projectDir, "package.json");
         if (!packageJson.exists()) {
             log.error("package.json 文件不存在:{}", packageJson.getAbsolutePath());
-            return false;
+            return VueBuildResult.failed();
         }
+
+        //计算依赖指纹和源码指纹（在构建前计算，构建产物不参与）
+        String dependencyFingerprint = nodeModulesCache.computeFingerprint(projectDir);
+        String sourceFingerprint = vueBuildStateStore.computeSourceFingerprint(projectDir);
+        VueBuildStateStore.BuildState lastState = vueBuildStateStore.get(projectDir);
+        File distDir = new File(projectDir, "dist");
+        boolean dependenciesUnchanged = lastState != null && dependencyFingerprint != null
+                && dependencyFingerprint.equals(lastState.getDependencyFingerprint())
+                && new File(projectDir, "node_modules").isDirectory();
+
+        //源码和依赖都没有变化，直接复用上次的构建产物
+        if (dependenciesUnchanged && sourceFingerprint != null
+                && sourceFingerprint.equals(lastState.getSourceFingerprint()) && distDir.isDirectory()) {
+            log.info("Vue 项目源码未变化，复用上次构建产物:{}", distDir.getAbsolutePath());
+            return VueBuildResult.success(VueBuildModeEnum.UP_TO_DATE);
+        }
+
         // 记录开始构建的信息
         log.info("开始构建 Vue 项目:{}", projectPath);
 
-        //执行 npm install 安装项目依赖
-        if (!executeNpmInstall(projectDir)) {
-            log.error("npm install 执行失败");
-            return false;
+        //安装项目依赖：依赖未变化时跳过，否则优先使用共享缓存
+        VueBuildModeEnum mode;
+        if (dependenciesUnchanged) {
+            log.info("依赖声明未变化，跳过依赖安装");
+            mode = VueBuildModeEnum.SKIP_INSTALL;
+        } else {
+            mode = installDependencies(projectDir, dependencyFingerprint);
+            if (mode == null) {
+                log.error("npm install 执行失败");
+                vueBuildStateStore.invalidate(projectDir);
+                return VueBuildResult.failed();
+            }
         }
 
         //执行 npm run build 构建生产版本
         if (!executeNpmBuild(projectDir)) {
             log.error("npm run build 执行失败");
-            return false;
+            vueBuildStateStore.invalidate(projectDir);
+            return VueBuildResult.failed();
         }
 
         //验证 dist 目录是否生成，这是Vue项目构建后的输出目录
-        File distDir = new File(projectDir, "dist");
         if (!distDir.exists() || !distDir.isDirectory()) {
             log.error("构建完成但 dist 目录未生成:{}", distDir.getAbsolutePath());
-            return false;
+            vueBuildStateStore.invalidate(projectDir);
+            return VueBuildResult.failed();
         }
 
+        //记录本次成功构建的状态，供下次增量构建判断
+        VueBuildStateStore.BuildState newState = new VueBuildStateStore.BuildState();
+        newState.setDependencyFingerprint(dependencyFingerprint);
+        newState.setSourceFingerprint(sourceFingerprint);
+        newState.setBuildTime(System.currentTimeMillis());
+        vueBuildStateStore.save(projectDir, newState);
+
         // 记录构建成功的日志信息
-        log.info("Vue 项目构建成功，dist 目录:{}", distDir.getAbsolutePath());
-        return true;
+        log.info("Vue 项目构建成功（{}），dist 目录:{}", mode.getText(), distDir.getAbsolutePath());
+        return VueBuildResult.success(mode);
     }
 
     /**
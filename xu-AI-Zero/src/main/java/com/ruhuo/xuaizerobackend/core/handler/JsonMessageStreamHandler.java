@@ -35,15 +35,15 @@ public class JsonMessageStreamHandler {
     private ToolManager toolManager; // 工具管理器，用于管理各种工具
     /**
      * 处理TokenStream （VUE_PROJECT）
-     * 解析JSON消息并重组为完整的响应格式
+     * 按消息类型转换为前端展示的内容，并重组为完整的响应格式
      *
-     * @param originFlux         原始流，包含未处理的JSON消息
+     * @param originFlux         原始流，包含各类型的消息对象
      * @param chatHistoryService 聊天历史服务，用于记录对话历史
      * @param appId              应用ID，标识当前应用
      * @param loginUser          登录用户，标识当前用户
      * @return 处理后的流，格式化后的消息流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
                                ChatHistoryService chatHistoryService,
                                long appId, User loginUser) {
         //收集数据用于生成后端记忆格式
@@ -52,9 +52,9 @@ public class JsonMessageStreamHandler {
         //用于跟踪已经见过的工具ID，判断是否是第一次调用
         Set<String> seenToolIds = new HashSet<>();
 
-        return originFlux.map(chunk -> {
-                    //解析每个 JSON 消息块并处理
-                    return handleJsonMessageChunk(chunk, chatHistoryStringBuilder, seenToolIds);
+        return originFlux.map(message -> {
+                    //按类型处理每条消息
+                    return handleStreamMessage(message, chatHistoryStringBuilder, seenToolIds);
                 })
                 .filter(StrUtil::isNotEmpty)//过滤空字串，只保留有效内容
                 .doOnComplete(() -> {
@@ -74,52 +74,38 @@ public class JsonMessageStreamHandler {
 
 
     /**
-     * 解析并收集TokenStream数据
-     * 处理不同类型的消息流，包括AI响应、工具请求和工具执行结果
+     * 处理并收集TokenStream数据
+     * 处理不同类型的消息，包括AI响应、工具请求、工具执行结果和构建状态
+     * StreamMessage 是密封类，新增消息类型而这里没有处理时无法通过编译
      *
-     * @param chunk                      JSON消息块
+     * @param message                    消息对象
      * @param chatHistoryStringBuilder   用于构建聊天历史内容的字符串构建器
      * @param seenToolIds                已见过的工具ID集合，用于判断工具是否首次调用
      * @return 处理后的消息内容，空字符串表示不需要输出的内容
      */
-    private String handleJsonMessageChunk(String chunk, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
-        //解析JSON为StreamMessage对象，用于后续的消息类型判断和处理
-        StreamMessage streamMessage = JSONUtil.toBean(chunk, StreamMessage.class);
-        // 根据消息类型获取对应的枚举值，以便进行后续的类型判断
-        StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
-        // 根据不同消息类型进行相应处理，包括AI响应、工具请求和工具执行结果三种情况
-        switch (typeEnum) {
+    private String handleStreamMessage(StreamMessage message, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
+        return switch (message) {
             // 处理AI响应消息的情况
-            case AI_RESPONSE -> {
-                // 处理AI响应消息
-                AiResponseMessage aiMessage = JSONUtil.toBean(chunk, AiResponseMessage.class);
+            case AiResponseMessage aiMessage -> {
                 String data = aiMessage.getData();
                 //直接拼接响应内容到聊天历史记录构建器
                 chatHistoryStringBuilder.append(data);
-                return data;
+                yield data;
             }
-            case TOOL_REQUEST -> {
-                //将JSON数据转换为工具请求消息对象
-                ToolRequestMessage toolRequestMessage = JSONUtil.toBean(chunk, ToolRequestMessage.class);
+            case ToolRequestMessage toolRequestMessage -> {
                 //获取工具ID和名称
                 String toolId = toolRequestMessage.getId();
                 String toolName = toolRequestMessage.getName();
                 //检查是否是第一次看到这个工具ID
-                if (toolId != null && !seenToolIds.contains(toolId)) {
-                    //第一次调用这个工具，记录ID并完整返回工具信息
-                    seenToolIds.add(toolId);
-                    //根据工具名称获取工具实例
+                if (toolId != null && seenToolIds.add(toolId)) {
+                    //第一次调用这个工具，根据工具名称获取工具实例并返回格式化的工具调用信息
                     BaseTool tool = toolManager.getTool(toolName);
-                    //返回格式化的工具调用信息
-                    return tool.generateToolRequestResponse();
-                } else {
-                    //不是第一次调用这个工具，直接返回空
-                    return "";
+                    yield tool.generateToolRequestResponse();
                 }
+                //不是第一次调用这个工具，直接返回空
+                yield "";
             }
-            case TOOL_EXECUTED -> {
-                //将JSON数据转换为工具执行消息对象
-                ToolExecutedMessage toolExecutedMessage = JSONUtil.toBean(chunk, ToolExecutedMessage.class);
+            case ToolExecutedMessage toolExecutedMessage -> {
                 //解析工具执行参数
                 JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
                 String toolName = toolExecutedMessage.getName();
@@ -132,13 +118,11 @@ public class JsonMessageStreamHandler {
                 String output = String.format("\n\n%s\n\n", result);
                 //将结果添加到聊天历史记录中
                 chatHistoryStringBuilder.append(output);
-                return output;
+                yield output;
             }
-            default -> {
-                //记录不支持的消息类型错误
-                log.error("不支持的消息类型:{}", typeEnum);
-                return "";
-            }
-        }
+            //构建状态只展示给前端，不写入对话历史
+            case BuildStatusMessage buildStatusMessage ->
+                    String.format("\n\n[构建状态] %s\n\n", buildStatusMessage.getMessage());
+        };
     }
 }
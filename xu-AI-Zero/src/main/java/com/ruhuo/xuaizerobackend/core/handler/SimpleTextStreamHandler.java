@@ -1,6 +1,8 @@
 package com.ruhuo.xuaizerobackend.core.handler;
 
 import cn.hutool.core.util.StrUtil;
+import com.ruhuo.xuaizerobackend.ai.model.message.AiResponseMessage;
+import com.ruhuo.xuaizerobackend.ai.model.message.StreamMessage;
 import com.ruhuo.xuaizerobackend.model.entity.User;
 import com.ruhuo.xuaizerobackend.model.enums.ChatHistoryMessageTypeEnum;
 import com.ruhuo.xuaizerobackend.service.ChatHistoryService;
@@ -15,18 +17,19 @@ import reactor.core.publisher.Flux;
 public class SimpleTextStreamHandler {
     /**
      * 处理AI的流式响应
-     * @param originFlux 原始响应流
+     * @param originFlux 原始消息流，HTML 和多文件模式只有 AI 响应消息
      * @param chatHistoryService 对话历史服务，用于记录对话内容
      * @param appId 应用ID
      * @param loginUser 登录用户信息
-     * @return 返回处理后的响应流，原始内容不变，但会记录对话历史
+     * @return 返回处理后的响应流，内容为AI响应的原始文本，同时会记录对话历史
      */
-    public Flux<String> handle(Flux<String> originFlux, ChatHistoryService chatHistoryService,
+    public Flux<String> handle(Flux<StreamMessage> originFlux, ChatHistoryService chatHistoryService,
                                 long appId, User loginUser){
         // 使用StringBuilder来累积AI的响应内容
         StringBuilder aiResponseBuilder = new StringBuilder();
-        return originFlux.map(chunk->{
+        return originFlux.ofType(AiResponseMessage.class).map(message->{
             //收集AI响应内容，将每个响应块追加到StringBuilder中
+            String chunk = message.getData();
             aiResponseBuilder.append(chunk);
             return chunk;
         })
@@ -1,5 +1,6 @@
 package com.ruhuo.xuaizerobackend.core.handler;
 
+import com.ruhuo.xuaizerobackend.ai.model.message.StreamMessage;
 import com.ruhuo.xuaizerobackend.model.entity.User;
 import com.ruhuo.xuaizerobackend.model.enums.CodeGenTypeEnum;
 import com.ruhuo.xuaizerobackend.service.ChatHistoryService;
@@ -24,14 +25,14 @@ public class StreamHandlerExecutor {
 
     /**
      * 根据代码生成类型执行相应的流处理
-     * @param originFlux 输入的数据流
+     * @param originFlux 输入的消息流
      * @param chatHistoryService 聊天历史服务，用于处理聊天历史记录
      * @param appId 应用ID，用于标识当前应用
      * @param loginUser 登录用户信息
      * @param codeGenType 代码生成类型，决定使用哪种处理器
      * @return 处理后的数据流Flux<String>
      */
-    public Flux<String> doExecute(Flux<String> originFlux,
+    public Flux<String> doExecute(Flux<StreamMessage> originFlux,
                                   ChatHistoryService chatHistoryService,
                                   long appId, User loginUser,
                                   CodeGenTypeEnum codeGenType){
@@ -0,0 +1,265 @@
+package com.ruhuo.xuaizerobackend.core.parser;
+
+import com.ruhuo.xuaizerobackend.exception.BusinessException;
+import com.ruhuo.xuaizerobackend.exception.ErrorCode;
+import com.ruhuo.xuaizerobackend.model.enums.CodeGenTypeEnum;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * 流式代码解析器
+ * 基于状态机逐段消费 AI 返回的内容，识别 ```html / ```css / ```js 代码块，
+ * 每个代码块结束时立即回调，不需要等整个流结束后再对完整内容做一次正则匹配。
+ * <p>
+ * 解析规则与 {@link MultiFileCodeParser}、{@link HtmlCodeParser} 保持一致：
+ * 1. 每种语言只取第一个代码块，内容去除首尾空白
+ * 2. 未闭合的代码块不会输出
+ * 3. HTML 模式下没有解析出 html 代码时，把全部内容作为 HTML 代码
+ * <p>
+ * 除 HTML 兜底所需的原始内容外，只缓存当前正在解析的代码块，内存占用与单个文件大小相关。
+ * 该类不是线程安全的，一个实例只用于一次流式响应。
+ */
+public class StreamingCodeParser {
+
+    // 代码块围栏
+    private static final String FENCE = "```";
+
+    // 围栏后语言标识的最大长度，超过后视为普通文本
+    private static final int MAX_HEADER_LENGTH = 32;
+
+    /**
+     * 解析状态
+     */
+    private enum State {
+        // 代码块之外的普通文本
+        TEXT,
+        // 已读到 ```，正在读取语言标识
+        HEADER,
+        // 代码块内部
+        CODE
+    }
+
+    // 语言标识 -> 统一后的语言（js 和 javascript 都视为 js）
+    private final Map<String, String> languageAliases;
+
+    // 代码块结束时的回调，参数为统一后的语言和代码内容
+    private final BiConsumer<String, String> blockConsumer;
+
+    // 是否需要在没有 html 代码块时把全部内容作为 HTML 代码
+    private final boolean htmlFallback;
+
+    // 已经解析过的语言，每种语言只取第一个代码块
+    private final Set<String> parsedLanguages = new HashSet<>();
+
+    // 已经回调过（内容不为空）的语言
+    private final Set<String> emittedLanguages = new HashSet<>();
+
+    private State state = State.TEXT;
+
+    // 连续读到的反引号数量
+    private int backtickCount;
+
+    // 当前读取中的语言标识
+    private final StringBuilder header = new StringBuilder();
+
+    // 语言标识后是否已经读到空白，之后只允许继续出现空白
+    private boolean headerEnded;
+
+    // 当前代码块的语言，不需要解析的代码块为null
+    private String currentLanguage;
+
+    // 当前代码块的内容
+    private final StringBuilder code = new StringBuilder();
+
+    // HTML 兜底使用的原始内容，找到 html 代码块后释放
+    private StringBuilder rawContent;
+
+    /**
+     * 创建流式代码解析器
+     *
+     * @param codeGenType   代码生成类型（HTML或多文件）
+     * @param blockConsumer 代码块回调，参数为语言（html/css/js）和代码内容
+     * @throws BusinessException 当遇到不支持的代码生成类型时抛出业务异常
+     */
+    public StreamingCodeParser(CodeGenTypeEnum codeGenType, BiConsumer<String, String> blockConsumer) {
+        this.blockConsumer = blockConsumer;
+        this.languageAliases = new HashMap<>();
+        switch (codeGenType) {
+            case HTML -> {
+                languageAliases.put("html", "html");
+                htmlFallback = true;
+                rawContent = new StringBuilder();
+            }
+            case MULTI_FILE -> {
+                languageAliases.put("html", "html");
+                languageAliases.put("css", "css");
+                languageAliases.put("js", "js");
+                languageAliases.put("javascript", "js");
+                htmlFallback = false;
+            }
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型：" + codeGenType);
+        }
+    }
+
+    /**
+     * 消费一段流式内容
+     *
+     * @param chunk 内容片段
+     */
+    public void append(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        if (rawContent != null) {
+            rawContent.append(chunk);
+        }
+        for (int i = 0; i < chunk.length(); i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    /**
+     * 流结束，处理 HTML 兜底
+     * 未闭合的代码块直接丢弃，与正则解析的行为一致
+     */
+    public void finish() {
+        if (htmlFallback && rawContent != null) {
+            String content = rawContent.toString().trim();
+            rawContent = null;
+            emit("html", content);
+        }
+        code.setLength(0);
+    }
+
+    /**
+     * 指定语言的代码是否已经回调过
+     *
+     * @param language 语言（html/css/js）
+     * @return 已回调返回true
+     */
+    public boolean hasEmitted(String language) {
+        return emittedLanguages.contains(language);
+    }
+
+    /**
+     * 状态机处理单个字符
+     *
+     * @param c 字符
+     */
+    private void accept(char c) {
+        switch (state) {
+            case TEXT -> {
+                if (c != '`') {
+                    backtickCount = 0;
+                    return;
+                }
+                if (++backtickCount == FENCE.length()) {
+                    backtickCount = 0;
+                    header.setLength(0);
+                    headerEnded = false;
+                    state = State.HEADER;
+                }
+            }
+            case HEADER -> {
+                if (c == '\n') {
+                    openBlock();
+                    return;
+                }
+                //与正则 ```lang\s*\n 一致：围栏后只能是语言标识加空白，
+                //否则（例如正文中的 ```html``` 标签）不是代码块的开始，回到普通文本
+                if (c == ' ' || c == '\t' || c == '\r') {
+                    headerEnded = true;
+                } else if (headerEnded || !isLanguageChar(c)) {
+                    state = State.TEXT;
+                    backtickCount = c == '`' ? 1 : 0;
+                    return;
+                }
+                header.append(c);
+                if (header.length() > MAX_HEADER_LENGTH) {
+                    state = State.TEXT;
+                    backtickCount = 0;
+                }
+            }
+            case CODE -> {
+                if (c == '`') {
+                    if (++backtickCount == FENCE.length()) {
+                        backtickCount = 0;
+                        closeBlock();
+                    }
+                    return;
+                }
+                //之前读到的反引号不构成围栏，属于代码内容
+                if (currentLanguage != null) {
+                    for (int i = 0; i < backtickCount; i++) {
+                        code.append('`');
+                    }
+                    code.append(c);
+                }
+                backtickCount = 0;
+            }
+        }
+    }
+
+    /**
+     * 是否是语言标识中允许出现的字符，如 html、c++、c#、objective-c
+     *
+     * @param c 字符
+     * @return 允许返回true
+     */
+    private static boolean isLanguageChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '-' || c == '+' || c == '#' || c == '.';
+    }
+
+    /**
+     * 语言标识读取完毕，进入代码块
+     */
+    private void openBlock() {
+        String language = header.toString().stripTrailing().toLowerCase(Locale.ROOT);
+        String normalized = languageAliases.get(language);
+        //不需要解析的语言或已解析过的语言，只跳过内容，不做缓存
+        currentLanguage = normalized != null && !parsedLanguages.contains(normalized) ? normalized : null;
+        code.setLength(0);
+        backtickCount = 0;
+        state = State.CODE;
+    }
+
+    /**
+     * 读到结束围栏，输出代码块
+     */
+    private void closeBlock() {
+        state = State.TEXT;
+        if (currentLanguage == null) {
+            return;
+        }
+        String language = currentLanguage;
+        String content = code.toString().trim();
+        currentLanguage = null;
+        code.setLength(0);
+        //与正则解析一致：第一个代码块即使为空也算已解析
+        parsedLanguages.add(language);
+        if (!content.isEmpty()) {
+            //已经拿到 html 代码，不再需要兜底内容
+            if ("html".equals(language)) {
+                rawContent = null;
+            }
+            emit(language, content);
+        }
+    }
+
+    /**
+     * 回调代码块
+     *
+     * @param language 语言
+     * @param content  代码内容
+     */
+    private void emit(String language, String content) {
+        emittedLanguages.add(language);
+        blockConsumer.accept(language, content);
+    }
+}
@@ -39,4 +39,21 @@ public class CodeFileSaverExecutor {
         };
     }
 
+    /**
+     * 保存流式解析出的单个代码块
+     * @param language 代码块语言（html/css/js）
+     * @param content 代码内容
+     * @param codeGenType 代码生成类型枚举
+     * @param appId 应用ID，用于标识代码所属的应用
+     * @return 写入的文件，不需要保存的语言返回null
+     * @throws BusinessException 当遇到不支持的代码生成类型时抛出业务异常
+     */
+    public static File executeBlockSaver(String language, String content, CodeGenTypeEnum codeGenType, Long appId){
+        return switch(codeGenType){
+            case HTML -> htmlCodeFileSaver.saveCodeBlock(language, content, appId);
+            case MULTI_FILE -> multiFileCodeFileSaver.saveCodeBlock(language, content, appId);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR,"不支持的代码生成类型："+codeGenType);
+        };
+    }
+
 }
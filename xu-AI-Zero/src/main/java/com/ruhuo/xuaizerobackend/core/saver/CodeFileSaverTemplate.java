@@ -52,6 +52,28 @@ public abstract class CodeFileSaverTemplate<T> {
     }
 
 
+    /**
+     * 保存单个代码块，用于流式解析时每解析出一个文件就立即落盘
+     *
+     * @param language 代码块语言（html/css/js）
+     * @param content  代码内容
+     * @param appId    应用ID，用于构建唯一目录
+     * @return 写入的文件，不需要保存的语言返回null
+     */
+    public final File saveCodeBlock(String language, String content, Long appId) {
+        // 1. 根据语言确定文件名，子类不支持的语言直接忽略
+        String filename = getFileName(language);
+        if (filename == null) {
+            return null;
+        }
+
+        // 2. 构建基于 appId 的目录并写入文件
+        String baseDirPath = buildUniqueDir(appId);
+        writeToFile(baseDirPath, filename, content);
+        return new File(baseDirPath, filename);
+    }
+
+
     /**
      * 验证输入结果对象的合法性
      *
@@ -117,6 +139,15 @@ public abstract class CodeFileSaverTemplate<T> {
     protected abstract CodeGenTypeEnum getCodeType();
 
 
+    /**
+     * 获取代码块语言对应的文件名
+     *
+     * @param language 代码块语言（html/css/js）
+     * @return 文件名，不支持的语言返回null
+     */
+    protected abstract String getFileName(String language);
+
+
     /**
      * 这是一个抽象方法，用于保存文件
      *
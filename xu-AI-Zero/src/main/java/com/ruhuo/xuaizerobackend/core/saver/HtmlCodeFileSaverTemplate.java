@@ -21,6 +21,16 @@ public class HtmlCodeFileSaverTemplate extends CodeFileSaverTemplate<HtmlCodeRes
         return CodeGenTypeEnum.HTML;  // 返回HTML类型的代码生成类型枚举值
     }
 
+    /**
+     * 获取代码块对应的文件名
+     * @param language 代码块语言
+     * @return html代码块保存为index.html，其他语言返回null
+     */
+    @Override
+    protected String getFileName(String language){
+        return "html".equals(language) ? "index.html" : null;
+    }
+
     /**
      * 保存HTML代码文件
 
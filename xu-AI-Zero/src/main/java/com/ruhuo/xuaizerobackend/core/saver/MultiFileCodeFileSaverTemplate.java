@@ -25,6 +25,22 @@ public class MultiFileCodeFileSaverTemplate extends CodeFileSaverTemplate<MultiF
         return CodeGenTypeEnum.MULTI_FILE; // 返回多文件类型的枚举值
     }
 
+    /**
+     * 获取代码块对应的文件名，与saveFiles保存的文件名保持一致
+     *
+     * @param language 代码块语言
+     * @return 文件名，不支持的语言返回null
+     */
+    @Override
+    protected String getFileName(String language) {
+        return switch (language) {
+            case "html" -> "index.html";
+            case "css" -> "style.css";
+            case "js" -> "script.js";
+            default -> null;
+        };
+    }
+
     /**
      * 保存多文件代码结果到指定目录
      * 该方法将HTML、CSS和JavaScript代码分别保存到对应的文件中
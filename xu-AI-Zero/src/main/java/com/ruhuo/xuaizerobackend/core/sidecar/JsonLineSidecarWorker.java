@@ -0,0 +1,214 @@
+package com.ruhuo.xuaizerobackend.core.sidecar;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻 Node 辅助进程的基类
+ * 进程通过 stdin/stdout 按行收发 JSON 消息：每个请求带一个自增的 id，脚本输出以固定前缀开头的响应行，
+ * 读取线程按 id 完成对应的请求，其他输出行视为日志。stdin 关闭时脚本应自行退出。
+ * <p>
+ * 子类只负责具体的请求内容（构建、渲染等），进程启动、请求响应匹配、健康检查和销毁都在这里处理。
+ * 请求超时、进程退出或协议异常后进程被标记为损坏，由进程池回收重建。
+ */
+@Slf4j
+public abstract class JsonLineSidecarWorker {
+
+    @Getter
+    private final String name;
+    private final Process process;
+    private final BufferedWriter writer;
+    private final String responsePrefix;
+
+    // 等待响应的请求，键为请求ID
+    private final ConcurrentMap<String, CompletableFuture<JSONObject>> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicLong requestSequence = new AtomicLong();
+
+    // 进程是否已损坏（退出、超时等），损坏的进程不再复用
+    private volatile boolean broken;
+
+    /**
+     * @param name           进程名称，用于日志和线程名
+     * @param process        已启动的进程
+     * @param responsePrefix 协议响应行前缀，与脚本保持一致
+     */
+    protected JsonLineSidecarWorker(String name, Process process, String responsePrefix) {
+        this.name = name;
+        this.process = process;
+        this.responsePrefix = responsePrefix;
+        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 以脚本所在目录为工作目录启动 node 进程
+     *
+     * @param nodeBinary  node 可执行文件
+     * @param scriptFile  脚本
+     * @param environment 额外的环境变量
+     * @return 进程
+     * @throws IOException 启动失败
+     */
+    protected static Process launch(String nodeBinary, File scriptFile, Map<String, String> environment) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(nodeBinary, scriptFile.getAbsolutePath())
+                .directory(scriptFile.getParentFile());
+        processBuilder.environment().putAll(environment);
+        return processBuilder.start();
+    }
+
+    /**
+     * 启动读取 stdout 和 stderr 的线程，子类创建完实例后调用
+     */
+    protected void startReaders() {
+        Thread.ofVirtual().name(name + "-stdout").start(this::readResponses);
+        Thread.ofVirtual().name(name + "-stderr").start(this::drainLogs);
+    }
+
+    /**
+     * 健康检查
+     *
+     * @param timeoutSeconds 超时时间（秒）
+     * @return 进程正常响应返回true
+     */
+    public boolean ping(int timeoutSeconds) {
+        JSONObject request = new JSONObject();
+        request.set("type", "ping");
+        JSONObject response = request(request, Duration.ofSeconds(timeoutSeconds));
+        return response != null && response.getBool("success", false);
+    }
+
+    /**
+     * 发送请求并等待响应，超时或出错时标记进程损坏
+     *
+     * @param request 请求内容
+     * @param timeout 超时时间
+     * @return 响应内容，没有得到响应时返回null
+     */
+    protected JSONObject request(JSONObject request, Duration timeout) {
+        if (!isAlive()) {
+            return null;
+        }
+        String id = String.valueOf(requestSequence.incrementAndGet());
+        request.set("id", id);
+        CompletableFuture<JSONObject> future = new CompletableFuture<>();
+        pendingRequests.put(id, future);
+        try {
+            synchronized (writer) {
+                writer.write(request.toString());
+                writer.newLine();
+                writer.flush();
+            }
+            return future.get(Math.max(1, timeout.toMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.error("[{}] 请求超时({}ms)，进程将被回收", name, timeout.toMillis());
+            broken = true;
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            broken = true;
+            return null;
+        } catch (Exception e) {
+            log.error("[{}] 请求失败，进程将被回收:{}", name, e.getMessage());
+            broken = true;
+            return null;
+        } finally {
+            pendingRequests.remove(id);
+        }
+    }
+
+    /**
+     * 读取响应行并完成对应的请求
+     */
+    private void readResponses() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(responsePrefix)) {
+                    log.debug("[{}] {}", name, line);
+                    continue;
+                }
+                JSONObject response = JSONUtil.parseObj(line.substring(responsePrefix.length()));
+                CompletableFuture<JSONObject> future = pendingRequests.get(response.getStr("id"));
+                if (future != null) {
+                    future.complete(response);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[{}] 读取响应失败:{}", name, e.getMessage());
+        } finally {
+            //进程退出，所有等待中的请求直接失败
+            broken = true;
+            pendingRequests.values().forEach(future -> future.completeExceptionally(new IOException("进程已退出")));
+        }
+    }
+
+    /**
+     * 持续读取进程日志，避免缓冲区写满导致进程阻塞
+     */
+    private void drainLogs() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.debug("[{}] {}", name, line);
+            }
+        } catch (IOException ignored) {
+            // 进程退出时流会被关闭
+        }
+    }
+
+    /**
+     * 进程是否可用
+     *
+     * @return 可用返回true
+     */
+    public boolean isAlive() {
+        return !broken && process.isAlive();
+    }
+
+    /**
+     * 关闭 stdin 后等待脚本自行退出的时间（秒），0 表示直接结束进程
+     * 需要先关闭浏览器等子进程的脚本应留出时间
+     *
+     * @return 等待时间（秒）
+     */
+    protected int shutdownGraceSeconds() {
+        return 0;
+    }
+
+    /**
+     * 销毁进程：关闭 stdin，超过等待时间仍未退出时强制结束进程及其子进程
+     */
+    public void destroy() {
+        broken = true;
+        try {
+            writer.close();
+            int graceSeconds = shutdownGraceSeconds();
+            if (graceSeconds > 0 && process.waitFor(graceSeconds, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (IOException ignored) {
+            // 进程已退出
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        kill();
+    }
+
+    /**
+     * 立即结束进程及其子进程，不等待脚本自行退出
+     * 用于请求超时等异常情况，避免进程在调用方放弃后继续执行同一个请求
+     */
+    public void kill() {
+        broken = true;
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,11 @@
+package com.ruhuo.xuaizerobackend.core.sse;
+
+/**
+ * 带序号的生成内容片段
+ * 序号在一次生成内从0开始连续递增，作为 SSE 事件ID的一部分，断线重连时用来确定补发的起点
+ *
+ * @param seq     序号
+ * @param content 内容
+ */
+public record GenerationChunk(long seq, String content) {
+}
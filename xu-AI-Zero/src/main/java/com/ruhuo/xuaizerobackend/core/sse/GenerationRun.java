@@ -0,0 +1,539 @@
+package com.ruhuo.xuaizerobackend.core.sse;
+
+import com.ruhuo.xuaizerobackend.config.SseStreamConfig;
+import com.ruhuo.xuaizerobackend.exception.BusinessException;
+import com.ruhuo.xuaizerobackend.exception.ErrorCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 一次代码生成的运行记录
+ * 生成流由运行记录订阅，而不是直接由 HTTP 请求订阅：浏览器断开后生成继续进行，
+ * EventSource 带着 Last-Event-ID 重连时从断开的位置补发，然后继续接收后续内容，不需要重新调用模型。
+ * <p>
+ * 1. 片段按到达顺序编号，最近的片段保存在内存的环形缓冲中，缓冲满时较早的一半交给单独的线程批量写入 Redis 列表（下标即序号），
+ *    写入在锁外进行，Redis 变慢不会阻塞模型输出；写入确认后才从内存中移除，写入跟不上或失败时放弃写入，较早的内容无法补发
+ * 2. 每个客户端是一个读取位置，按客户端的请求量从 Redis 或内存中读取，跟不上的客户端不会占用额外内存；
+ *    读取 Redis 只在客户端自己的线程上进行，不占用接收模型输出的线程
+ * 3. 所有客户端都断开并超过宽限时间后中止生成，结束后的记录由 {@link #cleanup()} 删除
+ * <p>
+ * Redis 结构：
+ * sse:run:{runId}:chunks - List，从内存中移出的片段
+ */
+@Slf4j
+public class GenerationRun {
+
+    // 事件ID中运行ID和序号的分隔符，事件ID格式为 {runId}:{seq}
+    public static final char EVENT_ID_SEPARATOR = ':';
+
+    // 还没有收到任何片段时的序号，连接建立时先发送 {runId}:-1，首个片段之前断线也能重连到同一次生成
+    public static final long NO_CHUNK_SEQ = -1;
+
+    private static final String SPILL_KEY_PREFIX = "sse:run:";
+    private static final String SPILL_KEY_SUFFIX = ":chunks";
+
+    // Redis 中片段的过期时间在记录保留时间之外额外延长的时间，覆盖生成本身的耗时
+    private static final Duration SPILL_EXTRA_TTL = Duration.ofHours(1);
+
+    // 每次从 Redis 读取的最大片段数
+    private static final int REDIS_READ_BATCH = 256;
+
+    @Getter
+    private final String runId;
+    @Getter
+    private final long appId;
+    @Getter
+    private final long userId;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SseStreamConfig sseStreamConfig;
+    private final Consumer<GenerationRun> onTerminate;
+    private final String spillKey;
+
+    // 内存中保留的片段数，超过时较早的一半写入 Redis
+    private final int capacity;
+
+    private final Object lock = new Object();
+    // 以下状态都由 lock 保护
+    // 环形缓冲，序号为 seq 的片段位于 seq % 长度 处，保存 [memoryStartSeq, nextSeq) 范围内的片段；
+    // 长度是 capacity 的两倍，正在写入 Redis 的片段确认写入前仍留在内存中
+    private final String[] ring;
+    private long memoryStartSeq;
+    private long nextSeq;
+    // [0, redisEndSeq) 范围内的片段已确认写入 Redis，正常情况下与 memoryStartSeq 相等，二者之间的片段无法补发
+    private long redisEndSeq;
+    // 已经交给写入队列的片段的结束序号
+    private long spillQueuedSeq;
+    // 等待写入 Redis 的批次，由一个线程按顺序写入，保证列表下标与序号一致
+    private final ArrayDeque<SpillBatch> spillQueue = new ArrayDeque<>();
+    private boolean spilling;
+    // 写入 Redis 失败或跟不上后不再写入
+    private boolean spillBroken;
+    private boolean spilled;
+    private boolean terminated;
+    private Throwable error;
+    @Getter
+    private String outcome;
+    private Disposable upstream;
+    private Disposable detachTimer;
+
+    private final List<Tailer> tailers = new CopyOnWriteArrayList<>();
+
+    public GenerationRun(String runId, long appId, long userId, StringRedisTemplate stringRedisTemplate,
+                         SseStreamConfig sseStreamConfig, Consumer<GenerationRun> onTerminate) {
+        this.runId = runId;
+        this.appId = appId;
+        this.userId = userId;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.sseStreamConfig = sseStreamConfig;
+        this.onTerminate = onTerminate;
+        this.spillKey = SPILL_KEY_PREFIX + runId + SPILL_KEY_SUFFIX;
+        this.capacity = Math.max(2, sseStreamConfig.getReplayBufferSize());
+        this.ring = new String[capacity * 2];
+    }
+
+    /**
+     * 从事件ID中解析运行ID
+     *
+     * @param eventId 事件ID
+     * @return 运行ID，格式不正确时返回null
+     */
+    public static String parseRunId(String eventId) {
+        int index = eventId == null ? -1 : eventId.lastIndexOf(EVENT_ID_SEPARATOR);
+        return index > 0 ? eventId.substring(0, index) : null;
+    }
+
+    /**
+     * 从事件ID中解析序号
+     *
+     * @param eventId 事件ID
+     * @return 序号，还没有收到片段时为 {@link #NO_CHUNK_SEQ}；格式不正确时返回null
+     */
+    public static Long parseSeq(String eventId) {
+        int index = eventId == null ? -1 : eventId.lastIndexOf(EVENT_ID_SEPARATOR);
+        if (index < 0) {
+            return null;
+        }
+        try {
+            long seq = Long.parseLong(eventId.substring(index + 1).trim());
+            return seq >= NO_CHUNK_SEQ ? seq : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 开始订阅生成流
+     *
+     * @param contentFlux 生成流
+     */
+    public void start(Flux<String> contentFlux) {
+        Disposable subscription = contentFlux.subscribe(this::append, this::fail, this::complete);
+        synchronized (lock) {
+            upstream = subscription;
+        }
+    }
+
+    /**
+     * 从指定序号开始接收片段，先补发已有的内容，再继续接收后续内容，生成结束时流随之结束
+     *
+     * @param fromSeq 起始序号（包含）
+     * @return 片段流
+     */
+    public Flux<GenerationChunk> subscribe(long fromSeq) {
+        return Flux.<GenerationChunk>create(sink -> {
+                    Tailer tailer = new Tailer(sink, Math.max(0, fromSeq));
+                    attach(tailer);
+                    sink.onRequest(n -> tailer.drain(true));
+                    sink.onDispose(() -> detach(tailer));
+                    tailer.drain(true);
+                }, FluxSink.OverflowStrategy.ERROR)
+                // 在单独的线程上写出，读取位置按下游的请求量推进，写出较慢时不会阻塞生成
+                .publishOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 以事件ID的形式表示序号
+     *
+     * @param seq 序号
+     * @return 事件ID
+     */
+    public String eventId(long seq) {
+        return runId + EVENT_ID_SEPARATOR + seq;
+    }
+
+    /**
+     * 中止生成（服务停止时调用）
+     */
+    public void cancel() {
+        abort("cancelled", "服务正在重启，生成已中止");
+    }
+
+    /**
+     * 删除写入 Redis 的片段，记录过期后调用
+     */
+    public void cleanup() {
+        boolean hasSpilled;
+        synchronized (lock) {
+            hasSpilled = spilled;
+        }
+        if (hasSpilled) {
+            try {
+                stringRedisTemplate.delete(spillKey);
+            } catch (Exception e) {
+                log.warn("删除生成记录缓存失败:{}，error:{}", runId, e.getMessage());
+            }
+        }
+    }
+
+    private void append(String chunk) {
+        boolean startSpilling = false;
+        synchronized (lock) {
+            if (terminated) {
+                return;
+            }
+            long limit = spillBroken ? capacity : ring.length;
+            if (nextSeq - memoryStartSeq >= limit) {
+                if (!spillBroken) {
+                    log.warn("生成记录写入 Redis 跟不上，较早的内容将无法补发:{}", runId);
+                    stopSpilling();
+                }
+                dropBefore(nextSeq - capacity / 2);
+            }
+            if (!spillBroken && nextSeq - spillQueuedSeq >= capacity) {
+                startSpilling = queueSpill();
+            }
+            ring[(int) (nextSeq % ring.length)] = chunk;
+            nextSeq++;
+        }
+        if (startSpilling) {
+            Schedulers.boundedElastic().schedule(this::drainSpills);
+        }
+        drainAll(false);
+    }
+
+    private void complete() {
+        terminate("completed", null);
+    }
+
+    private void fail(Throwable throwable) {
+        terminate("failed", throwable);
+    }
+
+    private void terminate(String outcome, Throwable throwable) {
+        synchronized (lock) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            this.outcome = outcome;
+            error = throwable;
+            if (detachTimer != null) {
+                detachTimer.dispose();
+                detachTimer = null;
+            }
+        }
+        drainAll(false);
+        onTerminate.accept(this);
+    }
+
+    /**
+     * 取消上游并以错误结束
+     */
+    private void abort(String outcome, String message) {
+        Disposable subscription;
+        synchronized (lock) {
+            if (terminated) {
+                return;
+            }
+            subscription = upstream;
+        }
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        terminate(outcome, new BusinessException(ErrorCode.OPERATION_ERROR, message));
+    }
+
+    /**
+     * 把尚未写入的较早一半片段复制为一个批次放入写入队列，调用方需持有锁
+     *
+     * @return 需要启动写入线程时返回true
+     */
+    private boolean queueSpill() {
+        int count = capacity / 2;
+        List<String> chunks = new ArrayList<>(count);
+        for (long seq = spillQueuedSeq; seq < spillQueuedSeq + count; seq++) {
+            chunks.add(ring[(int) (seq % ring.length)]);
+        }
+        spillQueue.add(new SpillBatch(spillQueuedSeq, chunks));
+        spillQueuedSeq += count;
+        spilled = true;
+        if (spilling) {
+            return false;
+        }
+        spilling = true;
+        return true;
+    }
+
+    /**
+     * 按顺序把写入队列中的批次写入 Redis，同一时间只有一个线程在写入
+     * 写入确认后推进 redisEndSeq 并释放内存中对应的片段
+     */
+    private void drainSpills() {
+        Duration ttl = Duration.ofMinutes(sseStreamConfig.getRunRetentionMinutes()).plus(SPILL_EXTRA_TTL);
+        while (true) {
+            SpillBatch batch;
+            synchronized (lock) {
+                batch = spillBroken ? null : spillQueue.poll();
+                if (batch == null) {
+                    spilling = false;
+                    return;
+                }
+            }
+            boolean written;
+            try {
+                stringRedisTemplate.opsForList().rightPushAll(spillKey, batch.chunks());
+                stringRedisTemplate.expire(spillKey, ttl);
+                written = true;
+            } catch (Exception e) {
+                log.warn("生成记录写入 Redis 失败，较早的内容将无法补发:{}，error:{}", runId, e.getMessage());
+                written = false;
+            }
+            synchronized (lock) {
+                if (spillBroken) {
+                    //写入期间已经因为跟不上而放弃写入，列表下标不再可靠
+                    spilling = false;
+                    return;
+                }
+                if (!written) {
+                    //列表下标必须与序号一致，写入失败后不再写入，内存中的片段在后续追加时逐步丢弃
+                    stopSpilling();
+                    spilling = false;
+                    return;
+                }
+                redisEndSeq = batch.startSeq() + batch.chunks().size();
+                for (long seq = memoryStartSeq; seq < redisEndSeq; seq++) {
+                    ring[(int) (seq % ring.length)] = null;
+                }
+                memoryStartSeq = redisEndSeq;
+            }
+        }
+    }
+
+    /**
+     * 放弃写入 Redis，调用方需持有锁
+     */
+    private void stopSpilling() {
+        spillBroken = true;
+        spillQueue.clear();
+    }
+
+    /**
+     * 丢弃内存中 seq 之前的片段，调用方需持有锁
+     *
+     * @param seq 保留的第一个序号
+     */
+    private void dropBefore(long seq) {
+        for (long i = memoryStartSeq; i < seq; i++) {
+            ring[(int) (i % ring.length)] = null;
+        }
+        memoryStartSeq = seq;
+        spillQueuedSeq = Math.max(spillQueuedSeq, seq);
+    }
+
+    /**
+     * 读取从 from 开始的片段
+     *
+     * @param from       起始序号
+     * @param max        最多读取的数量
+     * @param allowRedis 是否允许在当前线程读取 Redis
+     * @return 读取结果
+     */
+    private ReadResult read(long from, int max, boolean allowRedis) {
+        long redisEnd;
+        synchronized (lock) {
+            if (from >= memoryStartSeq) {
+                long end = Math.min(nextSeq, from + max);
+                if (end <= from) {
+                    return terminated ? ReadResult.finished(error) : ReadResult.EMPTY;
+                }
+                String[] chunks = new String[(int) (end - from)];
+                for (long seq = from; seq < end; seq++) {
+                    chunks[(int) (seq - from)] = ring[(int) (seq % ring.length)];
+                }
+                return new ReadResult(Arrays.asList(chunks), false, null);
+            }
+            if (from >= redisEndSeq) {
+                return ReadResult.failed(new BusinessException(ErrorCode.NOT_FOUND_ERROR, "断线期间的内容已无法补发，请刷新页面查看结果"));
+            }
+            if (!allowRedis) {
+                return ReadResult.DEFERRED;
+            }
+            redisEnd = Math.min(redisEndSeq, from + Math.min(max, REDIS_READ_BATCH));
+        }
+        //已写入 Redis 的片段不会再变化，不需要持有锁
+        List<String> chunks = null;
+        try {
+            chunks = stringRedisTemplate.opsForList().range(spillKey, from, redisEnd - 1);
+        } catch (Exception e) {
+            log.warn("读取生成记录失败:{}，error:{}", runId, e.getMessage());
+        }
+        if (chunks == null || chunks.size() != redisEnd - from) {
+            return ReadResult.failed(new BusinessException(ErrorCode.NOT_FOUND_ERROR, "断线期间的内容已无法补发，请刷新页面查看结果"));
+        }
+        return new ReadResult(chunks, false, null);
+    }
+
+    /**
+     * 通知所有客户端有新的片段或生成已结束
+     *
+     * @param allowRedis 是否允许在当前线程读取 Redis，接收模型输出的线程上为false
+     */
+    private void drainAll(boolean allowRedis) {
+        for (Tailer tailer : tailers) {
+            tailer.drain(allowRedis);
+        }
+    }
+
+    private void attach(Tailer tailer) {
+        tailers.add(tailer);
+        synchronized (lock) {
+            if (detachTimer != null) {
+                detachTimer.dispose();
+                detachTimer = null;
+            }
+        }
+    }
+
+    private void detach(Tailer tailer) {
+        tailers.remove(tailer);
+        synchronized (lock) {
+            if (terminated || !tailers.isEmpty() || detachTimer != null) {
+                return;
+            }
+            //所有客户端都已断开，宽限时间内没有重连时中止生成
+            detachTimer = Schedulers.boundedElastic().schedule(this::abandonIfDetached,
+                    sseStreamConfig.getDetachGraceSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    private void abandonIfDetached() {
+        synchronized (lock) {
+            detachTimer = null;
+            if (terminated || !tailers.isEmpty()) {
+                return;
+            }
+        }
+        log.info("生成记录已没有客户端，中止生成:{}", runId);
+        abort("abandoned", "客户端已断开，生成已中止");
+    }
+
+    /**
+     * 读取结果
+     *
+     * @param chunks   片段
+     * @param finished 生成已结束且没有更多片段
+     * @param error    以错误结束时的异常
+     */
+    private record ReadResult(List<String> chunks, boolean finished, Throwable error) {
+
+        static final ReadResult EMPTY = new ReadResult(List.of(), false, null);
+
+        // 需要读取 Redis，但当前线程不允许，交给客户端的线程读取
+        static final ReadResult DEFERRED = new ReadResult(List.of(), false, null);
+
+        static ReadResult finished(Throwable error) {
+            return new ReadResult(List.of(), true, error);
+        }
+
+        static ReadResult failed(Throwable error) {
+            return new ReadResult(List.of(), true, error);
+        }
+    }
+
+    /**
+     * 等待写入 Redis 的一批片段
+     *
+     * @param startSeq 第一个片段的序号
+     * @param chunks   片段
+     */
+    private record SpillBatch(long startSeq, List<String> chunks) {
+    }
+
+    /**
+     * 客户端的读取位置
+     * 新片段到达或下游请求更多时读取，同一时间只有一个线程在读取；
+     * 需要从 Redis 补发时不在接收模型输出的线程上读取，改为在阻塞线程池中继续
+     */
+    private final class Tailer {
+
+        private final FluxSink<GenerationChunk> sink;
+        private final AtomicInteger wip = new AtomicInteger();
+        private long cursor;
+        private boolean done;
+        // 是否已经安排了在阻塞线程池中读取
+        private final AtomicBoolean deferredDrainScheduled = new AtomicBoolean();
+
+        private Tailer(FluxSink<GenerationChunk> sink, long cursor) {
+            this.sink = sink;
+            this.cursor = cursor;
+        }
+
+        void drain(boolean allowRedis) {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!done && !sink.isCancelled()) {
+                    long demand = sink.requestedFromDownstream();
+                    if (demand <= 0) {
+                        break;
+                    }
+                    ReadResult result = read(cursor, (int) Math.min(demand, Integer.MAX_VALUE), allowRedis);
+                    if (result == ReadResult.DEFERRED) {
+                        if (deferredDrainScheduled.compareAndSet(false, true)) {
+                            Schedulers.boundedElastic().schedule(this::deferredDrain);
+                        }
+                        break;
+                    }
+                    for (String chunk : result.chunks()) {
+                        sink.next(new GenerationChunk(cursor++, chunk));
+                    }
+                    if (result.finished()) {
+                        done = true;
+                        if (result.error() != null) {
+                            sink.error(result.error());
+                        } else {
+                            sink.complete();
+                        }
+                    } else if (result.chunks().isEmpty()) {
+                        //已经读到最新的位置，等待新片段
+                        break;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deferredDrain() {
+            deferredDrainScheduled.set(false);
+            drain(true);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ruhuo.xuaizerobackend.core.sse;
+
+import com.ruhuo.xuaizerobackend.config.SseStreamConfig;
+
+/**
+ * SSE 帧合并策略
+ * 模型输出较快时，把一个窗口内到达的多个片段合并为一帧，减少小帧的写出和 flush 次数；
+ * 距离上一帧已经超过窗口时片段立即发送，输出较慢时不会增加延迟。
+ *
+ * @param windowMillis 合并窗口（毫秒），0 表示不合并
+ * @param maxBytes     单帧的字节上限，达到后立即发送
+ */
+public record SseCoalescePolicy(long windowMillis, int maxBytes) {
+
+    /**
+     * 不合并，每个片段单独一帧
+     */
+    public static final SseCoalescePolicy IMMEDIATE = new SseCoalescePolicy(0, 0);
+
+    /**
+     * 根据配置和客户端参数确定合并策略
+     *
+     * @param config           SSE 输出配置
+     * @param coalesceMs       客户端指定的合并窗口（毫秒），为空时使用默认值，超过上限时取上限
+     * @param latencySensitive 客户端是否对延迟敏感，敏感时不合并
+     * @return 合并策略
+     */
+    public static SseCoalescePolicy resolve(SseStreamConfig config, Long coalesceMs, boolean latencySensitive) {
+        long windowMillis = coalesceMs != null ? coalesceMs : config.getCoalesceWindowMillis();
+        windowMillis = Math.min(windowMillis, config.getMaxCoalesceWindowMillis());
+        if (latencySensitive || windowMillis <= 0) {
+            return IMMEDIATE;
+        }
+        return new SseCoalescePolicy(windowMillis, config.getCoalesceMaxBytes());
+    }
+
+    /**
+     * 是否合并片段
+     *
+     * @return 合并窗口大于0时返回true
+     */
+    public boolean isCoalescing() {
+        return windowMillis > 0;
+    }
+
+    /**
+     * 指标中区分策略的标签值
+     *
+     * @return coalesced 或 immediate
+     */
+    public String mode() {
+        return isCoalescing() ? "coalesced" : "immediate";
+    }
+}
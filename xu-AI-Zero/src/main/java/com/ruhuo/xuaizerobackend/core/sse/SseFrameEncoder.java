@@ -0,0 +1,273 @@
+package com.ruhuo.xuaizerobackend.core.sse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * SSE 帧编码器
+ * 把一帧 SSE（id / event / data 行）直接编码为 UTF-8 字节，JSON 字符串转义时逐字符写入缓冲区，
+ * 不经过 Map、JSON 对象树和中间字符串。
+ * <p>
+ * 编码器内部的缓冲区可以复用：通过 {@link #acquire()} 从池中取出，流结束后 {@link #release(SseFrameEncoder)} 归还。
+ * 同一个编码器只能被一个流串行使用。
+ */
+public final class SseFrameEncoder {
+
+    // 池中最多保留的编码器数量
+    private static final int POOL_SIZE = 64;
+
+    // 初始缓冲区大小，能放下绝大多数 token 帧
+    private static final int INITIAL_CAPACITY = 512;
+
+    // 缓冲区超过这个大小的编码器不再放回池中，避免长期占用大块内存
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+
+    private static final BlockingQueue<SseFrameEncoder> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final byte[] ID_PREFIX = "id:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EVENT_PREFIX = "event:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+    private int position;
+
+    private SseFrameEncoder(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * 从池中取出一个编码器，池为空时新建
+     *
+     * @return 已清空的编码器
+     */
+    public static SseFrameEncoder acquire() {
+        SseFrameEncoder encoder = POOL.poll();
+        return encoder == null ? new SseFrameEncoder(INITIAL_CAPACITY) : encoder.reset();
+    }
+
+    /**
+     * 归还编码器，池已满或缓冲区过大时直接丢弃
+     *
+     * @param encoder 编码器
+     */
+    public static void release(SseFrameEncoder encoder) {
+        if (encoder != null && encoder.buffer.length <= MAX_POOLED_CAPACITY) {
+            POOL.offer(encoder.reset());
+        }
+    }
+
+    /**
+     * 清空缓冲区，开始编码新的一帧
+     *
+     * @return 当前编码器
+     */
+    public SseFrameEncoder reset() {
+        position = 0;
+        return this;
+    }
+
+    /**
+     * 写入 id 行
+     *
+     * @param id 事件ID，不能包含换行
+     * @return 当前编码器
+     */
+    public SseFrameEncoder id(String id) {
+        writeBytes(ID_PREFIX);
+        writeUtf8(id, false);
+        writeByte('\n');
+        return this;
+    }
+
+    /**
+     * 写入 event 行
+     *
+     * @param event 事件名称，不能包含换行
+     * @return 当前编码器
+     */
+    public SseFrameEncoder event(String event) {
+        writeBytes(EVENT_PREFIX);
+        writeUtf8(event, false);
+        writeByte('\n');
+        return this;
+    }
+
+    /**
+     * 写入只有一个字符串字段的 JSON 数据行，例如 data:{"d":"..."}
+     *
+     * @param key   字段名，只能是不需要转义的 ASCII 字符
+     * @param value 字段值
+     * @return 当前编码器
+     */
+    public SseFrameEncoder jsonData(String key, String value) {
+        return beginJsonData(key).appendJsonValue(value).endJsonData();
+    }
+
+    /**
+     * 开始一个单字段的 JSON 数据行，写入 data:{"key":"
+     * 之后可以多次调用 {@link #appendJsonValue(String)} 追加字段值，最后用 {@link #endJsonData()} 结束，
+     * 合并多个片段时不需要先拼接成一个字符串
+     *
+     * @param key 字段名，只能是不需要转义的 ASCII 字符
+     * @return 当前编码器
+     */
+    public SseFrameEncoder beginJsonData(String key) {
+        writeBytes(DATA_PREFIX);
+        writeByte('{');
+        writeByte('"');
+        writeUtf8(key, false);
+        writeByte('"');
+        writeByte(':');
+        writeByte('"');
+        return this;
+    }
+
+    /**
+     * 向已开始的 JSON 数据行追加字段值，按 JSON 字符串规则转义
+     *
+     * @param value 字段值片段
+     * @return 当前编码器
+     */
+    public SseFrameEncoder appendJsonValue(String value) {
+        writeUtf8(value, true);
+        return this;
+    }
+
+    /**
+     * 结束 JSON 数据行，写入 "}
+     *
+     * @return 当前编码器
+     */
+    public SseFrameEncoder endJsonData() {
+        writeByte('"');
+        writeByte('}');
+        writeByte('\n');
+        return this;
+    }
+
+    /**
+     * 写入原样输出的数据行
+     *
+     * @param data 数据，不能包含换行
+     * @return 当前编码器
+     */
+    public SseFrameEncoder data(String data) {
+        writeBytes(DATA_PREFIX);
+        writeUtf8(data, false);
+        writeByte('\n');
+        return this;
+    }
+
+    /**
+     * 当前帧已写入的字节数
+     *
+     * @return 字节数
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * 结束当前帧（写入空行），返回帧内容并清空缓冲区
+     *
+     * @return 帧的字节内容
+     */
+    public byte[] finishFrame() {
+        writeByte('\n');
+        byte[] frame = Arrays.copyOf(buffer, position);
+        position = 0;
+        return frame;
+    }
+
+    /**
+     * 将字符串按 UTF-8 写入缓冲区
+     *
+     * @param value      字符串
+     * @param escapeJson 是否按 JSON 字符串的规则转义
+     */
+    private void writeUtf8(String value, boolean escapeJson) {
+        int length = value.length();
+        // 每个 char 最多编码为 6 个字节（\\u00XX 转义），预先扩容一次
+        ensureCapacity(length * 6);
+        byte[] buf = buffer;
+        int pos = position;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (escapeJson && (c < 0x20 || c == '"' || c == '\\')) {
+                    pos = writeEscaped(buf, pos, c);
+                } else {
+                    buf[pos++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符按 UTF-8 规范替换为 ?
+                buf[pos++] = '?';
+            } else if (escapeJson && (c == 0x2028 || c == 0x2029)) {
+                // 行分隔符在部分 JS 解析器中会被当成换行
+                pos = writeUnicodeEscape(buf, pos, c);
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = pos;
+    }
+
+    private int writeEscaped(byte[] buf, int pos, char c) {
+        buf[pos++] = '\\';
+        switch (c) {
+            case '"' -> buf[pos++] = '"';
+            case '\\' -> buf[pos++] = '\\';
+            case '\n' -> buf[pos++] = 'n';
+            case '\r' -> buf[pos++] = 'r';
+            case '\t' -> buf[pos++] = 't';
+            case '\b' -> buf[pos++] = 'b';
+            case '\f' -> buf[pos++] = 'f';
+            default -> {
+                return writeUnicodeEscape(buf, pos - 1, c);
+            }
+        }
+        return pos;
+    }
+
+    private int writeUnicodeEscape(byte[] buf, int pos, char c) {
+        buf[pos++] = '\\';
+        buf[pos++] = 'u';
+        buf[pos++] = HEX_DIGITS[(c >> 12) & 0xF];
+        buf[pos++] = HEX_DIGITS[(c >> 8) & 0xF];
+        buf[pos++] = HEX_DIGITS[(c >> 4) & 0xF];
+        buf[pos++] = HEX_DIGITS[c & 0xF];
+        return pos;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = position + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.ruhuo.xuaizerobackend.core.sse;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.ruhuo.xuaizerobackend.exception.BusinessException;
+import com.ruhuo.xuaizerobackend.exception.ErrorCode;
+import com.ruhuo.xuaizerobackend.monitor.SseStreamMetricsCollector;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码生成流的 SSE 输出
+ * 订阅生成记录的片段流，每个片段用 {@link SseFrameEncoder} 编码为 data:{"d":"..."} 帧后直接写出，
+ * 流结束时发送 done 事件，出错时发送与全局异常处理一致的 business-error 事件。
+ * 每个内容帧带有 id:{runId}:{帧中最后一个片段的序号}，EventSource 重连时通过 Last-Event-ID 回传，从下一个片段继续。
+ * 订阅时先发送一个只有 id 行的帧（新的生成为 {runId}:-1），首个片段到达前断线重连也会带上事件ID，不会重新发起生成。
+ * <p>
+ * 按 {@link SseCoalescePolicy} 合并片段：距离上一帧不足一个窗口时，片段追加到待发送的帧中，
+ * 窗口到期或帧达到字节上限时发送，输出较慢时每个片段仍然立即发送。
+ * <p>
+ * 每处理完一个片段再向上游请求下一个；客户端断开、超时或写出失败时取消订阅。
+ * 片段和定时任务会在不同线程上发送帧，编码、发送和归还编码器都在编码器的锁内进行，保证帧的顺序，
+ * 编码器归还后可能立即被其他流取出，归还后不再使用。
+ */
+@Slf4j
+public class SseStreamWriter extends BaseSubscriber<GenerationChunk> {
+
+    private static final MediaType EVENT_STREAM_UTF8 = new MediaType("text", "event-stream", StandardCharsets.UTF_8);
+
+    // 内容片段在 JSON 中的字段名，用最短的合法 key 降低每帧的固定开销
+    private static final String DATA_KEY = "d";
+
+    // 与 Spring MVC 返回 Flux 时一致，流式响应不设超时，由流自身结束
+    private static final long NO_TIMEOUT = -1L;
+
+    private final ResponseBodyEmitter emitter;
+    private final String runId;
+    // 连接建立时客户端已经收到的最后一个片段的序号
+    private final long initialSeq;
+    private final SseCoalescePolicy policy;
+    private final long windowNanos;
+    private final SseStreamMetricsCollector metricsCollector;
+    private final SseFrameEncoder encoder = SseFrameEncoder.acquire();
+
+    // 以下状态都由编码器的锁保护
+    // 编码器是否已归还
+    private boolean released;
+    // 待发送的帧中已合并的片段数，0 表示没有待发送的帧
+    private int pendingChunks;
+    // 待发送的帧中最后一个片段的序号
+    private long pendingLastSeq;
+    // 上一帧的发送时间
+    private long lastFlushNanos;
+    // 窗口到期时发送待发送帧的定时任务
+    private Disposable flushTask;
+    // 已发送的内容帧数
+    private int frameCount;
+
+    private SseStreamWriter(ResponseBodyEmitter emitter, String runId, long initialSeq, SseCoalescePolicy policy,
+                            SseStreamMetricsCollector metricsCollector) {
+        this.emitter = emitter;
+        this.runId = runId;
+        this.initialSeq = initialSeq;
+        this.policy = policy;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(policy.windowMillis());
+        this.metricsCollector = metricsCollector;
+        // 第一个片段立即发送
+        this.lastFlushNanos = System.nanoTime() - windowNanos;
+    }
+
+    /**
+     * 把生成记录的片段流写为 SSE 响应
+     *
+     * @param chunkFlux        片段流
+     * @param runId            生成记录ID，用于组成事件ID
+     * @param initialSeq       客户端已经收到的最后一个片段的序号，新的生成为 {@link GenerationRun#NO_CHUNK_SEQ}
+     * @param policy           帧合并策略
+     * @param metricsCollector 指标收集器
+     * @return SSE 响应，由 Spring MVC 负责异步输出
+     */
+    public static ResponseEntity<ResponseBodyEmitter> write(Flux<GenerationChunk> chunkFlux, String runId, long initialSeq,
+                                                            SseCoalescePolicy policy,
+                                                            SseStreamMetricsCollector metricsCollector) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(NO_TIMEOUT);
+        SseStreamWriter writer = new SseStreamWriter(emitter, runId, initialSeq, policy, metricsCollector);
+        emitter.onCompletion(writer::shutdown);
+        emitter.onTimeout(writer::shutdown);
+        emitter.onError(error -> writer.shutdown());
+        chunkFlux.subscribe(writer);
+        return ResponseEntity.ok()
+                .contentType(EVENT_STREAM_UTF8)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                // 关闭 Nginx 的响应缓冲，否则帧会攒在代理中
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        //立即告诉浏览器事件ID，空 data 的帧不会触发 message 事件
+        byte[] idFrame;
+        synchronized (encoder) {
+            idFrame = released ? null : encoder.id(runId + GenerationRun.EVENT_ID_SEPARATOR + initialSeq).finishFrame();
+        }
+        if (send(idFrame)) {
+            request(1);
+        }
+    }
+
+    @Override
+    protected void hookOnNext(GenerationChunk chunk) {
+        synchronized (encoder) {
+            if (released) {
+                return;
+            }
+            if (pendingChunks == 0) {
+                encoder.beginJsonData(DATA_KEY);
+            }
+            encoder.appendJsonValue(chunk.content());
+            pendingChunks++;
+            pendingLastSeq = chunk.seq();
+            long elapsed = System.nanoTime() - lastFlushNanos;
+            if (elapsed >= windowNanos || encoder.size() >= policy.maxBytes()) {
+                if (!flushPending()) {
+                    return;
+                }
+            } else if (flushTask == null) {
+                //窗口内的后续片段继续合并，窗口到期时由定时任务发送
+                //发送会阻塞在慢客户端的写出上，放在可伸缩的阻塞线程池中，不占用 CPU 密集的 parallel 线程
+                flushTask = Schedulers.boundedElastic().schedule(this::flushOnTimer, windowNanos - elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+        request(1);
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        synchronized (encoder) {
+            //先发出合并中的内容，再发送结束事件，标记数据传输完成
+            if (flushPending() && send(controlFrame("done", ""))) {
+                emitter.complete();
+            }
+        }
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+        log.error("代码生成流异常", throwable);
+        int code = ErrorCode.SYSTEM_ERROR.getCode();
+        String message = "系统错误";
+        if (throwable instanceof BusinessException businessException) {
+            code = businessException.getCode();
+            message = StrUtil.blankToDefault(businessException.getMessage(), message);
+        }
+        //与全局异常处理的 SSE 错误格式保持一致
+        String errorJson = JSONUtil.toJsonStr(Map.of("error", true, "code", code, "message", message));
+        synchronized (encoder) {
+            if (flushPending() && send(controlFrame("business-error", errorJson)) && send(controlFrame("done", "{}"))) {
+                emitter.complete();
+            }
+        }
+    }
+
+    @Override
+    protected void hookFinally(SignalType type) {
+        synchronized (encoder) {
+            if (!released) {
+                metricsCollector.recordResponse(policy.mode(), frameCount);
+            }
+        }
+        releaseEncoder();
+    }
+
+    /**
+     * 合并窗口到期，发送待发送的帧
+     */
+    private void flushOnTimer() {
+        synchronized (encoder) {
+            flushTask = null;
+            if (!released) {
+                flushPending();
+            }
+        }
+    }
+
+    /**
+     * 发送待发送的帧，调用方需持有编码器的锁
+     *
+     * @return 没有待发送的帧或发送成功时返回true；客户端已断开时返回false
+     */
+    private boolean flushPending() {
+        if (released || pendingChunks == 0) {
+            return !released;
+        }
+        if (flushTask != null) {
+            flushTask.dispose();
+            flushTask = null;
+        }
+        //SSE 字段的顺序不影响解析，id 行写在 data 行之后，不需要预先知道帧中最后一个片段
+        byte[] frame = encoder.endJsonData().id(runId + GenerationRun.EVENT_ID_SEPARATOR + pendingLastSeq).finishFrame();
+        metricsCollector.recordFrame(policy.mode(), frame.length, pendingChunks);
+        pendingChunks = 0;
+        frameCount++;
+        lastFlushNanos = System.nanoTime();
+        return send(frame);
+    }
+
+    /**
+     * 编码带事件名称的控制帧
+     *
+     * @param event 事件名称
+     * @param data  数据
+     * @return 帧内容，编码器已归还时返回null
+     */
+    private byte[] controlFrame(String event, String data) {
+        synchronized (encoder) {
+            return released ? null : encoder.event(event).data(data).finishFrame();
+        }
+    }
+
+    /**
+     * 写出一帧
+     *
+     * @param frame 帧内容
+     * @return 写出成功返回true；客户端已断开时返回false，并取消订阅
+     */
+    private boolean send(byte[] frame) {
+        if (frame == null) {
+            return false;
+        }
+        try {
+            emitter.send(frame, EVENT_STREAM_UTF8);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // 客户端断开或响应已结束，容器会通过 onError / onCompletion 回调结束请求
+            log.info("SSE 客户端已断开，停止输出:{}", e.getMessage());
+            cancel();
+            return false;
+        }
+    }
+
+    /**
+     * 请求结束（完成、超时或出错）时取消上游并归还缓冲区
+     */
+    private void shutdown() {
+        dispose();
+        releaseEncoder();
+    }
+
+    private void releaseEncoder() {
+        synchronized (encoder) {
+            if (flushTask != null) {
+                flushTask.dispose();
+                flushTask = null;
+            }
+            if (!released) {
+                released = true;
+                SseFrameEncoder.release(encoder);
+            }
+        }
+    }
+}
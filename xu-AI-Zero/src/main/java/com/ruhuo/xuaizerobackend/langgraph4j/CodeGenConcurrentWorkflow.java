@@ -1,22 +1,21 @@
 package com.ruhuo.xuaizerobackend.langgraph4j;
 
-import cn.hutool.core.thread.ExecutorBuilder;
-import cn.hutool.core.thread.ThreadFactoryBuilder;
 import com.ruhuo.xuaizerobackend.exception.BusinessException;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
+import com.ruhuo.xuaizerobackend.langgraph4j.executor.ImageCollectExecutor;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.QualityResult;
 import com.ruhuo.xuaizerobackend.langgraph4j.node.*;
 import com.ruhuo.xuaizerobackend.langgraph4j.node.concurrent.*;
 import com.ruhuo.xuaizerobackend.langgraph4j.state.WorkflowContext;
 import com.ruhuo.xuaizerobackend.model.enums.CodeGenTypeEnum;
+import com.ruhuo.xuaizerobackend.utils.SpringContextUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.*;
 import org.bsc.langgraph4j.prebuilt.MessagesState;
 import org.bsc.langgraph4j.prebuilt.MessagesStateGraph;
+import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import static org.bsc.langgraph4j.StateGraph.END;
 import static org.bsc.langgraph4j.StateGraph.START;
@@ -26,7 +25,59 @@ import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
  * 使用@Slf4j注解的日志记录类，用于生成并发工作流
  */
 @Slf4j
+@Component
 public class CodeGenConcurrentWorkflow {
+
+    /**
+     * 编译后的并发工作流，启动时构建一次，所有请求共用
+     */
+    private final CompiledGraph<MessagesState<String>> compiledWorkflow = createWorkflow();
+
+    /**
+     * 可运行配置，image_plan 之后的并行分支在应用共用的图片收集执行器中执行，首次执行时创建
+     */
+    private volatile RunnableConfig runnableConfig;
+
+    // 工作流的 Mermaid 图，首次需要时才渲染
+    private volatile String workflowGraph;
+
+    /**
+     * 获取编译后的并发工作流
+     *
+     * @return 编译后的工作流
+     */
+    public CompiledGraph<MessagesState<String>> getCompiledWorkflow() {
+        return compiledWorkflow;
+    }
+
+    /**
+     * 获取并发工作流的 Mermaid 图
+     *
+     * @return Mermaid 格式的工作流图
+     */
+    public String getWorkflowGraph() {
+        if (workflowGraph == null) {
+            workflowGraph = compiledWorkflow.getGraph(GraphRepresentation.Type.MERMAID).content();
+        }
+        return workflowGraph;
+    }
+
+    /**
+     * 获取可运行配置
+     * 并行分支使用 {@link ImageCollectExecutor} 的虚拟线程执行器，不再单独创建线程池
+     *
+     * @return 可运行配置
+     */
+    private RunnableConfig getRunnableConfig() {
+        if (runnableConfig == null) {
+            ImageCollectExecutor collectExecutor = SpringContextUtil.getBean(ImageCollectExecutor.class);
+            runnableConfig = RunnableConfig.builder()
+                    .addParallelNodeExecutor("image_plan", collectExecutor.getExecutor())
+                    .build();
+        }
+        return runnableConfig;
+    }
+
     /**
      * 创建并发工作流的方法
      *
@@ -113,8 +164,8 @@ public class CodeGenConcurrentWorkflow {
      * @return WorkflowContext 最终的工作流上下文，包含执行结果
      */
     public WorkflowContext executeWorkflow(String originalPrompt) {
-        // 创建一个编译好的工作流，其状态类型为MessagesState<String>
-        CompiledGraph<MessagesState<String>> workflow = createWorkflow();
+        // 使用已编译的工作流，其状态类型为MessagesState<String>
+        CompiledGraph<MessagesState<String>> workflow = compiledWorkflow;
 
         /**
          * 创建工作流初始上下文，包含原始提示和当前步骤信息
@@ -124,37 +175,19 @@ public class CodeGenConcurrentWorkflow {
                 .currentStep("初始化")           // 设置当前步骤为初始化
                 .build();
 
-        // 获取工作流的Mermaid图并记录日志
-        GraphRepresentation graph = workflow.getGraph(GraphRepresentation.Type.MERMAID);
-        log.info("并发工作流图：\n{}", graph.content());  // 输出工作流图内容
+        // 工作流图只在调试日志开启时渲染
+        if (log.isDebugEnabled()) {
+            log.debug("并发工作流图：\n{}", getWorkflowGraph());
+        }
         log.info("开始执行并发代码生成工作流");           // 记录工作流开始执行
 
         WorkflowContext finalContext = null;  // 用于存储最终的工作流上下文
         int stepCounter = 1;                 // 步骤计数器，用于跟踪执行进度
 
-        /**
-         * 创建一个线程池执行器，配置核心线程数为10，最大线程数为20，
-         * 工作队列使用容量为100的LinkedBlockingQueue，
-         * 线程工厂设置线程名前缀为"Parallel-Image-Collect"
-         */
-        ExecutorService pool = ExecutorBuilder.create()
-                .setCorePoolSize(10)    // 设置核心线程池大小为10
-                .setMaxPoolSize(20)     // 设置最大线程池大小为20
-                .setWorkQueue(new LinkedBlockingQueue<>(100))  // 设置工作队列，容量为100
-                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("Parallel-Image-Collect").build())  // 配置线程工厂，设置线程名前缀
-                .build();
-
-        /**
-         * 构建可运行配置，添加并行节点执行器，使用上面创建的线程池
-         */
-        RunnableConfig runnableConfig = RunnableConfig.builder()
-                .addParallelNodeExecutor("image_plan", pool)  // 添加并行节点执行器，名称为"image_plan"
-                .build();
-
         // 遍历工作流流，执行工作流步骤
         for (NodeOutput<MessagesState<String>> step : workflow.stream(
                 Map.of(WorkflowContext.WORKFLOW_CONTEXT_KEY, initialContext),  // 初始化工作流上下文
-                runnableConfig)) {  // 使用可运行配置执行工作流
+                getRunnableConfig())) {  // 使用可运行配置执行工作流
             log.info("--- 第 {} 步完成 ---", stepCounter);  // 记录每一步完成的信息
 
             //显示当前状态
@@ -11,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.*;
 import org.bsc.langgraph4j.prebuilt.MessagesState;
 import org.bsc.langgraph4j.prebuilt.MessagesStateGraph;
+import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
@@ -19,7 +20,38 @@ import static org.bsc.langgraph4j.StateGraph.START;
 import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
 
 @Slf4j
+@Component
 public class CodeGenSubgraphWorkflow {
+
+    /**
+     * 编译后的子图工作流，启动时构建一次（子图随父图一起编译）
+     */
+    private final CompiledGraph<MessagesState<String>> compiledWorkflow = createWorkflow();
+
+    // 工作流的 Mermaid 图，首次需要时才渲染
+    private volatile String workflowGraph;
+
+    /**
+     * 获取编译后的子图工作流
+     *
+     * @return 编译后的工作流
+     */
+    public CompiledGraph<MessagesState<String>> getCompiledWorkflow() {
+        return compiledWorkflow;
+    }
+
+    /**
+     * 获取子图工作流的 Mermaid 图
+     *
+     * @return Mermaid 格式的工作流图
+     */
+    public String getWorkflowGraph() {
+        if (workflowGraph == null) {
+            workflowGraph = compiledWorkflow.getGraph(GraphRepresentation.Type.MERMAID).content();
+        }
+        return workflowGraph;
+    }
+
     /**
      * 创建内容图片收集子图
      * 该方法用于构建一个用于收集内容图片的状态图，包含一个节点和两个边
@@ -194,8 +226,8 @@ public class CodeGenSubgraphWorkflow {
      * @return WorkflowContext 最终的工作流上下文
      */
     public WorkflowContext executeWorkflow(String originalPrompt) {
-        // 创建工作流实例
-        CompiledGraph<MessagesState<String>> workflow = createWorkflow();
+        // 使用已编译的工作流
+        CompiledGraph<MessagesState<String>> workflow = compiledWorkflow;
 
         //初始化WorkflowContext
         WorkflowContext initialContext = WorkflowContext.builder()
@@ -206,10 +238,10 @@ public class CodeGenSubgraphWorkflow {
                 // 构建工作流上下文
                 .build();
 
-        // 获取工作流的图形表示，使用MERMAID类型
-        GraphRepresentation graph = workflow.getGraph(GraphRepresentation.Type.MERMAID);
-        // 记录子图工作流图的日志信息
-        log.info("子图工作流图：\n{}", graph.content());
+        // 工作流图只在调试日志开启时渲染
+        if (log.isDebugEnabled()) {
+            log.debug("子图工作流图：\n{}", getWorkflowGraph());
+        }
         // 记录开始执行子图代码生成工作流的日志信息
         log.info("开始执行子图代码生成工作流");
 
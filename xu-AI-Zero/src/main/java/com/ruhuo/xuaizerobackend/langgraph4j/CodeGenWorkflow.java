@@ -1,12 +1,15 @@
 package com.ruhuo.xuaizerobackend.langgraph4j;
 
 import cn.hutool.json.JSONUtil;
+import com.ruhuo.xuaizerobackend.ai.stream.ModelStreamBridge;
+import com.ruhuo.xuaizerobackend.config.SseStreamConfig;
 import com.ruhuo.xuaizerobackend.exception.BusinessException;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.QualityResult;
 import com.ruhuo.xuaizerobackend.langgraph4j.node.*;
 import com.ruhuo.xuaizerobackend.langgraph4j.state.WorkflowContext;
 import com.ruhuo.xuaizerobackend.model.enums.CodeGenTypeEnum;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphRepresentation;
@@ -14,6 +17,7 @@ import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.NodeOutput;
 import org.bsc.langgraph4j.prebuilt.MessagesState;
 import org.bsc.langgraph4j.prebuilt.MessagesStateGraph;
+import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.publisher.Flux;
 
@@ -28,7 +32,42 @@ import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
  * 使用@Slf4j注解的日志工具类
  */
 @Slf4j
+@Component
 public class CodeGenWorkflow {
+
+    /**
+     * 编译后的代码生成工作流，启动时构建一次
+     * 节点和路由方法都是无状态的，每次执行的状态只存在于 stream 的入参中，可以在并发执行之间安全共享
+     */
+    private final CompiledGraph<MessagesState<String>> compiledWorkflow = createWorkflow();
+
+    // 工作流的 Mermaid 图，首次需要时才渲染
+    private volatile String workflowGraph;
+
+    @Resource
+    private SseStreamConfig sseStreamConfig;
+
+    /**
+     * 获取编译后的代码生成工作流（全局共享，不要在每次请求时调用 createWorkflow 重新编译）
+     *
+     * @return 编译后的工作流
+     */
+    public CompiledGraph<MessagesState<String>> getCompiledWorkflow() {
+        return compiledWorkflow;
+    }
+
+    /**
+     * 获取工作流的 Mermaid 图，只在需要时渲染并缓存
+     *
+     * @return Mermaid 格式的工作流图
+     */
+    public String getWorkflowGraph() {
+        if (workflowGraph == null) {
+            workflowGraph = compiledWorkflow.getGraph(GraphRepresentation.Type.MERMAID).content();
+        }
+        return workflowGraph;
+    }
+
     /**
      * 创建并编译一个代码生成工作流
      *
@@ -75,8 +114,8 @@ public class CodeGenWorkflow {
      * @return WorkflowContext 最终的工作流上下文
      */
     public WorkflowContext executeWorkflow(String originalPrompt) {
-        // 创建工作流图
-        CompiledGraph<MessagesState<String>> workflow = createWorkflow();
+        // 使用已编译的工作流
+        CompiledGraph<MessagesState<String>> workflow = compiledWorkflow;
 
         //初始化WorkflowContext
         WorkflowContext initialContext = WorkflowContext.builder()
@@ -87,10 +126,10 @@ public class CodeGenWorkflow {
                 // 构建工作流初始上下文
                 .build();
 
-        // 获取工作流的图形表示，使用MERMAID格式
-        GraphRepresentation graph = workflow.getGraph(GraphRepresentation.Type.MERMAID);
-        // 记录工作流图形信息到日志
-        log.info("工作流图：\n{}", graph.content());
+        // 工作流图只在调试日志开启时渲染
+        if (log.isDebugEnabled()) {
+            log.debug("工作流图：\n{}", getWorkflowGraph());
+        }
         // 记录开始执行代码生成工作流的信息
         log.info("开始执行代码生成工作流");
 
@@ -168,18 +207,19 @@ public class CodeGenWorkflow {
 
     /**
      * 使用Flux执行工作流并返回事件流
+     * 事件进入有界缓冲；客户端断开时中断工作流线程，并中断代码生成节点中正在进行的模型请求
      *
      * @param originalPrompt 原始提示词
      * @return 返回一个Flux流，包含工作流执行过程中的各种事件
      */
     public Flux<String> executeWorkflowWithFlux(String originalPrompt) {
-        // 使用Flux.create创建一个响应式流
-        return Flux.create(sink -> {
-            // 使用虚拟线程异步执行工作流
-            Thread.startVirtualThread(() -> {
+        // 创建有界缓冲、可取消的响应式流
+        return ModelStreamBridge.<String>create((sink, cancellation) -> {
+            // 使用虚拟线程异步执行工作流，线程内绑定取消句柄，节点发起的模型请求随工作流一起取消
+            Thread worker = Thread.startVirtualThread(() -> cancellation.runBound(() -> {
                 try {
-                    // 创建工作流实例
-                    CompiledGraph<MessagesState<String>> workflow = createWorkflow();
+                    // 使用已编译的工作流
+                    CompiledGraph<MessagesState<String>> workflow = compiledWorkflow;
 
                     // 构建初始工作流上下文
                     WorkflowContext initialContext = WorkflowContext.builder()
@@ -192,9 +232,10 @@ public class CodeGenWorkflow {
                             "originalPrompt", originalPrompt     // 原始提示词
                     )));
 
-                    // 获取并记录工作流图
-                    GraphRepresentation graph = workflow.getGraph(GraphRepresentation.Type.MERMAID);
-                    log.info("工作流图：\n{}", graph.content());
+                    // 工作流图只在调试日志开启时渲染
+                    if (log.isDebugEnabled()) {
+                        log.debug("工作流图：\n{}", getWorkflowGraph());
+                    }
 
                     // 初始化步骤计数器
                     int stepCounter = 1;
@@ -228,6 +269,11 @@ public class CodeGenWorkflow {
                     // 完成流
                     sink.complete();
                 } catch (Exception e) {
+                    if (cancellation.isCancelled()) {
+                        // 客户端已断开，工作流被主动中断
+                        log.info("代码生成工作流已取消");
+                        return;
+                    }
                     // 记录错误信息
                     log.error("工作流执行失败：{}", e.getMessage(), e);
                     // 发送错误事件
@@ -238,8 +284,9 @@ public class CodeGenWorkflow {
                     // 以错误结束流
                     sink.error(e);
                 }
-            });
-        });
+            }));
+            cancellation.onCancel(worker::interrupt);
+        }, sseStreamConfig.getMaxBufferedMessages());
     }
 
 
@@ -278,8 +325,8 @@ public class CodeGenWorkflow {
         // 使用虚拟线程异步执行工作流
         Thread.startVirtualThread(() -> {
             try {
-                // 创建工作流实例
-                CompiledGraph<MessagesState<String>> workflow = createWorkflow();
+                // 使用已编译的工作流
+                CompiledGraph<MessagesState<String>> workflow = compiledWorkflow;
 
                 // 构建初始工作流上下文，包含原始提示和当前步骤
                 WorkflowContext initialContext = WorkflowContext.builder()
@@ -292,9 +339,10 @@ public class CodeGenWorkflow {
                         "originalPrompt", originalPrompt
                 ));
 
-                // 获取并记录工作流的图形表示
-                GraphRepresentation graph = workflow.getGraph(GraphRepresentation.Type.MERMAID);
-                log.info("工作流图：\n{}", graph.content());
+                // 工作流图只在调试日志开启时渲染
+                if (log.isDebugEnabled()) {
+                    log.debug("工作流图：\n{}", getWorkflowGraph());
+                }
 
                 // 初始化步骤计数器
                 int stepCounter = 1;
@@ -0,0 +1,235 @@
+package com.ruhuo.xuaizerobackend.langgraph4j.executor;
+
+import com.ruhuo.xuaizerobackend.config.ImageCollectConfig;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
+import com.ruhuo.xuaizerobackend.monitor.ImageCollectMetricsCollector;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 图片收集执行器
+ * 整个应用共用一个基于虚拟线程的执行器执行图片收集中的阻塞调用（HTTP 请求、Mermaid CLI 等），
+ * 不再占用公共 ForkJoinPool，也不再每次执行工作流都创建线程池。
+ * <p>
+ * 1. 舱壁隔离：每个提供方有独立的并发名额，某个提供方变慢时只会让自己的任务排队
+ * 2. 超时：每个任务从提交开始计时，超过提供方的超时时间后中断执行并返回兜底结果
+ * 3. 监控：按提供方记录等待名额的时间、实际调用时间和任务结果
+ * 4. 节点内并发：{@link #fanOut} 在单个收集节点内并发执行多个任务，支持提前结束和截止时间
+ */
+@Slf4j
+@Component
+public class ImageCollectExecutor {
+
+    @Resource
+    private ImageCollectConfig imageCollectConfig;
+
+    @Resource
+    private ImageCollectMetricsCollector imageCollectMetricsCollector;
+
+    // 每个任务一个虚拟线程，实际并发由各提供方的名额限制
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("image-collect-", 0).factory());
+
+    // 各提供方的并发名额
+    private final Map<ImageProviderEnum, Semaphore> bulkheads = new EnumMap<>(ImageProviderEnum.class);
+
+    /**
+     * 按配置初始化各提供方的并发名额
+     */
+    @PostConstruct
+    public void init() {
+        for (ImageProviderEnum provider : ImageProviderEnum.values()) {
+            bulkheads.put(provider, new Semaphore(imageCollectConfig.getMaxConcurrency(provider), true));
+        }
+    }
+
+    /**
+     * 停机时中断所有未完成的任务
+     */
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取底层执行器，供工作流并行分支使用
+     *
+     * @return 执行器
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 异步执行一个图片收集任务
+     * 返回的 Future 不会异常结束：任务失败、超时或被拒绝时都以兜底结果完成
+     *
+     * @param provider 提供方
+     * @param task     任务
+     * @param fallback 兜底结果
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> submit(ImageProviderEnum provider, Supplier<T> task, T fallback) {
+        String providerValue = provider.getValue();
+        long submitTime = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running;
+        try {
+            running = executor.submit(() -> run(provider, task, result, submitTime));
+        } catch (RejectedExecutionException e) {
+            log.warn("图片收集执行器已关闭，任务被拒绝，provider:{}", providerValue);
+            imageCollectMetricsCollector.recordTask(providerValue, "rejected");
+            return CompletableFuture.completedFuture(fallback);
+        }
+        CompletableFuture<T> handled = result
+                .orTimeout(imageCollectConfig.getTimeoutSeconds(provider), TimeUnit.SECONDS)
+                .handle((value, throwable) -> {
+                    if (throwable == null) {
+                        imageCollectMetricsCollector.recordTask(providerValue, "success");
+                        return value;
+                    }
+                    Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    if (cause instanceof TimeoutException) {
+                        //超时后中断仍在排队或执行的任务，尽快归还并发名额
+                        running.cancel(true);
+                        log.warn("图片收集任务超时，provider:{}，超时时间:{}秒", providerValue, imageCollectConfig.getTimeoutSeconds(provider));
+                        imageCollectMetricsCollector.recordTask(providerValue, "timeout");
+                    } else {
+                        log.error("图片收集任务失败，provider:{}，error:{}", providerValue, cause.getMessage(), cause);
+                        imageCollectMetricsCollector.recordTask(providerValue, "error");
+                    }
+                    return fallback;
+                });
+        //调用方取消返回的 Future 时（例如收集节点已经收集够），同时中断实际执行的任务
+        handled.whenComplete((value, throwable) -> {
+            if (handled.isCancelled()) {
+                running.cancel(true);
+                imageCollectMetricsCollector.recordTask(providerValue, "cancelled");
+            }
+        });
+        return handled;
+    }
+
+    /**
+     * 在收集节点内并发执行同一提供方的多个任务
+     * 同时执行的任务数不超过节点并发上限，任务完成一个补充一个；
+     * 收集到足够的图片或到达节点截止时间后立即返回已有结果，并取消剩余任务。
+     * 这样节点耗时取决于最慢的单个调用，而不是所有调用耗时之和。
+     *
+     * @param provider 提供方
+     * @param tasks    任务列表
+     * @param action   执行单个任务，返回收集到的结果
+     * @return 收集到的结果，按完成顺序排列
+     */
+    public <S, T> List<T> fanOut(ImageProviderEnum provider, List<S> tasks, Function<S, List<T>> action) {
+        List<T> collected = new ArrayList<>();
+        if (tasks == null || tasks.isEmpty()) {
+            return collected;
+        }
+        int parallelism = Math.max(1, imageCollectConfig.getNodeParallelism());
+        int maxResults = imageCollectConfig.getNodeMaxResults(provider);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(imageCollectConfig.getNodeDeadlineSeconds(provider));
+
+        Iterator<S> pending = tasks.iterator();
+        List<CompletableFuture<List<T>>> running = new ArrayList<>();
+        // 已完成的任务，由完成回调放入，当前线程依次取出
+        BlockingQueue<CompletableFuture<List<T>>> completed = new LinkedBlockingQueue<>();
+        String outcome = "complete";
+        try {
+            while (true) {
+                //补充任务直到达到节点并发上限
+                while (running.size() < parallelism && pending.hasNext()) {
+                    S task = pending.next();
+                    CompletableFuture<List<T>> future = submit(provider, () -> action.apply(task), List.of());
+                    running.add(future);
+                    future.whenComplete((value, throwable) -> completed.offer(future));
+                }
+                if (running.isEmpty()) {
+                    break;
+                }
+                long remaining = deadline - System.nanoTime();
+                CompletableFuture<List<T>> future = remaining > 0 ? completed.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (future == null) {
+                    outcome = "deadline";
+                    log.warn("图片收集节点到达截止时间，provider:{}，已收集{}个结果，{}个任务未完成",
+                            provider.getValue(), collected.size(), running.size());
+                    break;
+                }
+                running.remove(future);
+                List<T> values = future.getNow(List.of());
+                if (values != null) {
+                    collected.addAll(values);
+                }
+                if (maxResults > 0 && collected.size() >= maxResults) {
+                    outcome = "enough";
+                    log.info("图片收集节点已收集够{}个结果，provider:{}，取消{}个剩余任务",
+                            maxResults, provider.getValue(), running.size());
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+        } finally {
+            for (CompletableFuture<List<T>> future : running) {
+                future.cancel(true);
+            }
+        }
+        imageCollectMetricsCollector.recordFanOut(provider.getValue(), outcome);
+        if (maxResults > 0 && collected.size() > maxResults) {
+            return new ArrayList<>(collected.subList(0, maxResults));
+        }
+        return collected;
+    }
+
+    /**
+     * 同步执行一个图片收集任务，同样受并发名额和超时时间限制
+     *
+     * @param provider 提供方
+     * @param task     任务
+     * @param fallback 兜底结果
+     * @return 任务结果，失败或超时时返回兜底结果
+     */
+    public <T> T call(ImageProviderEnum provider, Supplier<T> task, T fallback) {
+        return submit(provider, task, fallback).join();
+    }
+
+    /**
+     * 在虚拟线程中获取并发名额后执行任务
+     *
+     * @param provider   提供方
+     * @param task       任务
+     * @param result     任务结果
+     * @param submitTime 提交时间（纳秒）
+     */
+    private <T> void run(ImageProviderEnum provider, Supplier<T> task, CompletableFuture<T> result, long submitTime) {
+        Semaphore bulkhead = bulkheads.get(provider);
+        try {
+            bulkhead.acquire();
+        } catch (InterruptedException e) {
+            //排队期间已超时，不再执行
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+        long startTime = System.nanoTime();
+        imageCollectMetricsCollector.recordDuration(provider.getValue(), "wait", Duration.ofNanos(startTime - submitTime));
+        try {
+            result.complete(task.get());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        } finally {
+            bulkhead.release();
+            imageCollectMetricsCollector.recordDuration(provider.getValue(), "call", Duration.ofNanos(System.nanoTime() - startTime));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ruhuo.xuaizerobackend.langgraph4j.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片服务提供方枚举类
+ * 每个提供方在图片收集时使用独立的并发上限和超时时间
+ */
+@Getter
+public enum ImageProviderEnum {
+    // Pexels 图片搜索
+    PEXELS("Pexels图片搜索", "pexels"),
+    // unDraw 插画搜索
+    UNDRAW("unDraw插画搜索", "undraw"),
+    // Mermaid CLI 架构图渲染
+    MERMAID("Mermaid架构图渲染", "mermaid"),
+    // DashScope Logo 生成
+    DASHSCOPE("DashScope图片生成", "dashscope");
+
+    // 枚举的显示文本
+    private final String text;
+    // 枚举的值，同时作为配置项的键和监控指标的标签
+    private final String value;
+
+    ImageProviderEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据枚举值获取对应的枚举对象
+     * @param value 枚举值
+     * @return 对应的枚举对象，如果找不到则返回null
+     */
+    public static ImageProviderEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (ImageProviderEnum anEnum : ImageProviderEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
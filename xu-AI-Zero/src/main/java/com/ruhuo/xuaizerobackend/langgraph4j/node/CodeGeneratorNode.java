@@ -1,5 +1,6 @@
 package com.ruhuo.xuaizerobackend.langgraph4j.node;
 
+import com.ruhuo.xuaizerobackend.ai.model.message.StreamMessage;
 import com.ruhuo.xuaizerobackend.constant.AppConstant;
 import com.ruhuo.xuaizerobackend.core.AiCodeGeneratorFacade;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.QualityResult;
@@ -44,7 +45,7 @@ public class CodeGeneratorNode {
             Long appId = 0L;  // 临时使用固定appId，后续将整合到业务逻辑中
 
             //调用了流式代码生成
-            Flux<String> codeStream = codeGeneratorFacade.generateAndSaveCodeStream(userMessage, generationType, appId);  // 调用代码生成服务，获取流式输出
+            Flux<StreamMessage> codeStream = codeGeneratorFacade.generateAndSaveCodeStream(userMessage, generationType, appId);  // 调用代码生成服务，获取流式输出
 
             //同步等待流式输出完成，最多等待10分钟
             codeStream.blockLast(Duration.ofMinutes(10));//最多等待 10 分钟
@@ -2,9 +2,11 @@ package com.ruhuo.xuaizerobackend.langgraph4j.node;
 
 import com.ruhuo.xuaizerobackend.langgraph4j.ai.ImageCollectionPlanService;
 import com.ruhuo.xuaizerobackend.langgraph4j.ai.ImageCollectionService;
+import com.ruhuo.xuaizerobackend.langgraph4j.executor.ImageCollectExecutor;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageCollectionPlan;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageResource;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageCategoryEnum;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
 import com.ruhuo.xuaizerobackend.langgraph4j.state.WorkflowContext;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.ImageSearchTool;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.LogoGeneratorTool;
@@ -48,6 +50,8 @@ public class ImageCollectorNode {
                 // 根据原始提示词生成图片收集计划
                 ImageCollectionPlan plan = planService.planImageCollection(originalPrompt);
                 log.info("获取到图片收集计划，开始并发执行");
+                // 从Spring上下文获取图片收集执行器，各提供方的任务在其中按并发上限和超时时间执行
+                ImageCollectExecutor collectExecutor = SpringContextUtil.getBean(ImageCollectExecutor.class);
 
                 // 创建Future列表用于存储所有异步任务
                 List<CompletableFuture<List<ImageResource>>> futures = new ArrayList<>();
@@ -60,8 +64,8 @@ public class ImageCollectorNode {
 
                     // 为每个内容图片搜索任务创建异步执行
                     for(ImageCollectionPlan.ImageSearchTask task:plan.getContentImageTasks()){
-                        futures.add(CompletableFuture.supplyAsync(()->
-                        imageSearchTool.searchContentImages(task.query())));
+                        futures.add(collectExecutor.submit(ImageProviderEnum.PEXELS,
+                                ()->imageSearchTool.searchContentImages(task.query()), List.of()));
                     }
                 }
 
@@ -73,7 +77,8 @@ public class ImageCollectorNode {
 
                     // 为每个插画搜索任务创建异步执行
                     for(ImageCollectionPlan.IllustrationTask task : plan.getIllustrationTasks()){
-                        futures.add(CompletableFuture.supplyAsync(()->illustrationTool.searchIllustrations(task.query())));
+                        futures.add(collectExecutor.submit(ImageProviderEnum.UNDRAW,
+                                ()->illustrationTool.searchIllustrations(task.query()), List.of()));
                     }
                 }
 
@@ -84,7 +89,8 @@ public class ImageCollectorNode {
                     MermaidDiagramTool diagramTool = SpringContextUtil.getBean(MermaidDiagramTool.class);
                     // 为每个架构图生成任务创建异步执行
                     for(ImageCollectionPlan.DiagramTask task:plan.getDiagramTasks()){
-                        futures.add(CompletableFuture.supplyAsync(()->diagramTool.generateMermaidDiagram(task.mermaidCode(), task.description())));
+                        futures.add(collectExecutor.submit(ImageProviderEnum.MERMAID,
+                                ()->diagramTool.generateMermaidDiagram(task.mermaidCode(), task.description()), List.of()));
                     }
                 }
 
@@ -95,7 +101,8 @@ public class ImageCollectorNode {
                     LogoGeneratorTool logoTool = SpringContextUtil.getBean(LogoGeneratorTool.class);
                     // 为每个Logo生成任务创建异步执行
                     for(ImageCollectionPlan.LogoTask task:plan.getLogoTasks()){
-                        futures.add(CompletableFuture.supplyAsync(()->logoTool.generateLogos(task.description())));
+                        futures.add(collectExecutor.submit(ImageProviderEnum.DASHSCOPE,
+                                ()->logoTool.generateLogos(task.description()), List.of()));
                     }
                 }
 
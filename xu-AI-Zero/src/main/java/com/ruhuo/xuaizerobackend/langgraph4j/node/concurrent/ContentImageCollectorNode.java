@@ -1,7 +1,9 @@
 package com.ruhuo.xuaizerobackend.langgraph4j.node.concurrent;
 
+import com.ruhuo.xuaizerobackend.langgraph4j.executor.ImageCollectExecutor;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageCollectionPlan;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageResource;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
 import com.ruhuo.xuaizerobackend.langgraph4j.state.WorkflowContext;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.ImageSearchTool;
 import com.ruhuo.xuaizerobackend.utils.SpringContextUtil;
@@ -39,19 +41,14 @@ public class ContentImageCollectorNode {
                 if(plan != null && plan.getContentImageTasks()!=null){
                     // 从Spring上下文获取图片搜索工具
                     ImageSearchTool imageSearchTool = SpringContextUtil.getBean(ImageSearchTool.class);
+                    // 获取图片收集执行器，任务受提供方并发上限、超时时间和节点截止时间限制
+                    ImageCollectExecutor collectExecutor = SpringContextUtil.getBean(ImageCollectExecutor.class);
                     // 记录开始收集图片的日志信息
                     log.info("开始并发收集内容图片，任务数：{}",plan.getContentImageTasks().size());
 
-                    // 遍历所有图片收集任务
-                    for (ImageCollectionPlan.ImageSearchTask task: plan.getContentImageTasks()){
-                        // 使用搜索工具查询内容图片
-                        List<ImageResource> images = imageSearchTool.searchContentImages(task.query());
-
-                        // 如果查询结果不为空，则添加到图片列表中
-                        if(images != null){
-                            contentImage.addAll(images);
-                        }
-                    }
+                    // 节点内并发执行内容图片搜索任务，收集够或到达截止时间后返回已有结果
+                    contentImage.addAll(collectExecutor.fanOut(ImageProviderEnum.PEXELS, plan.getContentImageTasks(),
+                            task -> imageSearchTool.searchContentImages(task.query())));
 
                     // 记录图片收集完成的日志信息
                     log.info("并发图片收集完成，共收集到 {} 张图片",contentImage.size());
@@ -1,7 +1,9 @@
 package com.ruhuo.xuaizerobackend.langgraph4j.node.concurrent;
 
+import com.ruhuo.xuaizerobackend.langgraph4j.executor.ImageCollectExecutor;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageCollectionPlan;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageResource;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
 import com.ruhuo.xuaizerobackend.langgraph4j.state.WorkflowContext;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.MermaidDiagramTool;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.UndrawIllustrationTool;
@@ -39,19 +41,14 @@ public class DiagramCollectorNode {
                 if(plan != null && plan.getDiagramTasks()!=null){
                     // 获取Mermaid图表工具实例
                     MermaidDiagramTool diagramTool = SpringContextUtil.getBean(MermaidDiagramTool.class);
+                    // 获取图片收集执行器，任务受提供方并发上限、超时时间和节点截止时间限制
+                    ImageCollectExecutor collectExecutor = SpringContextUtil.getBean(ImageCollectExecutor.class);
                     // 记录开始生成架构图的信息，包含任务数量
                     log.info("开始并发生成架构图，任务数：{}",plan.getDiagramTasks().size());
 
-                    // 遍历所有图表任务
-                    for (ImageCollectionPlan.DiagramTask task: plan.getDiagramTasks()){
-                        // 使用图表工具生成图表，传入Mermaid代码和描述
-                        List<ImageResource> images = diagramTool.generateMermaidDiagram(task.mermaidCode(), task.description());
-
-                        // 如果生成的图片列表不为空，则添加到总列表中
-                        if(images != null){
-                            diagrams.addAll(images);
-                        }
-                    }
+                    // 节点内并发执行架构图生成任务，收集够或到达截止时间后返回已有结果
+                    diagrams.addAll(collectExecutor.fanOut(ImageProviderEnum.MERMAID, plan.getDiagramTasks(),
+                            task -> diagramTool.generateMermaidDiagram(task.mermaidCode(), task.description())));
 
                     // 记录架构图生成完成的信息，包含生成的图片总数
                     log.info("架构图生成完成，共生成 {} 张图片",diagrams.size());
@@ -1,7 +1,9 @@
 package com.ruhuo.xuaizerobackend.langgraph4j.node.concurrent;
 
+import com.ruhuo.xuaizerobackend.langgraph4j.executor.ImageCollectExecutor;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageCollectionPlan;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageResource;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
 import com.ruhuo.xuaizerobackend.langgraph4j.state.WorkflowContext;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.ImageSearchTool;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.UndrawIllustrationTool;
@@ -38,19 +40,14 @@ public class IllustrationCollectorNode {
                 if(plan != null && plan.getContentImageTasks()!=null){
                     // 从Spring上下文获取插画工具实例
                     UndrawIllustrationTool illustrationTool = SpringContextUtil.getBean(UndrawIllustrationTool.class);
+                    // 获取图片收集执行器，任务受提供方并发上限、超时时间和节点截止时间限制
+                    ImageCollectExecutor collectExecutor = SpringContextUtil.getBean(ImageCollectExecutor.class);
                     // 记录开始收集插画的信息
                     log.info("开始并发收集插画图片，任务数：{}",plan.getIllustrationTasks().size());
 
-                    // 遍历所有插画任务
-                    for (ImageCollectionPlan.IllustrationTask task: plan.getIllustrationTasks()){
-                        // 使用插画工具搜索相关图片
-                        List<ImageResource> images = illustrationTool.searchIllustrations(task.query());
-
-                        // 如果找到图片，添加到结果列表
-                        if(images != null){
-                            illustrations.addAll(images);
-                        }
-                    }
+                    // 节点内并发执行插画搜索任务，收集够或到达截止时间后返回已有结果
+                    illustrations.addAll(collectExecutor.fanOut(ImageProviderEnum.UNDRAW, plan.getIllustrationTasks(),
+                            task -> illustrationTool.searchIllustrations(task.query())));
 
                     // 记录收集完成的信息
                     log.info("插画图片收集完成，共收集到 {} 张图片",illustrations.size());
@@ -1,7 +1,9 @@
 package com.ruhuo.xuaizerobackend.langgraph4j.node.concurrent;
 
+import com.ruhuo.xuaizerobackend.langgraph4j.executor.ImageCollectExecutor;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageCollectionPlan;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageResource;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
 import com.ruhuo.xuaizerobackend.langgraph4j.state.WorkflowContext;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.LogoGeneratorTool;
 import com.ruhuo.xuaizerobackend.langgraph4j.tools.UndrawIllustrationTool;
@@ -39,19 +41,14 @@ public class LogoCollectorNode {
                 if(plan != null && plan.getLogoTasks()!=null){
                     // 从Spring上下文获取Logo生成工具
                     LogoGeneratorTool logoTool = SpringContextUtil.getBean(LogoGeneratorTool.class);
+                    // 获取图片收集执行器，任务受提供方并发上限、超时时间和节点截止时间限制
+                    ImageCollectExecutor collectExecutor = SpringContextUtil.getBean(ImageCollectExecutor.class);
                     // 记录开始生成Logo的信息
                     log.info("开始并发生成Logo，任务数：{}",plan.getLogoTasks().size());
 
-                    // 遍历所有Logo任务
-                    for (ImageCollectionPlan.LogoTask task: plan.getLogoTasks()){
-                        // 为每个任务生成Logo图片
-                        List<ImageResource> images = logoTool.generateLogos(task.description());
-
-                        // 如果生成了图片，则添加到结果列表
-                        if(images != null){
-                            logos.addAll(images);
-                        }
-                    }
+                    // 节点内并发执行Logo生成任务，收集够或到达截止时间后返回已有结果
+                    logos.addAll(collectExecutor.fanOut(ImageProviderEnum.DASHSCOPE, plan.getLogoTasks(),
+                            task -> logoTool.generateLogos(task.description())));
 
                     // 记录Logo生成完成的信息
                     log.info("Logo生成完成，共生成 {} 张图片",logos.size());
@@ -0,0 +1,285 @@
+package com.ruhuo.xuaizerobackend.langgraph4j.renderer;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.ruhuo.xuaizerobackend.config.MermaidRenderConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 常驻 Mermaid 渲染进程池
+ * 渲染请求先进入队列，每个渲染进程对应一个分发线程，从队列中一次取出一批请求交给进程渲染，
+ * 省去每张图都启动 Node 和 Chromium 的开销。
+ * <p>
+ * 1. 批量：分发线程取到一个请求后，顺带取走队列中已有的请求（不超过批次上限）一起渲染，
+ *    整批的超时取批次中最早的截止时间，超时后先强制结束进程再通知调用方，回退时不会重复渲染
+ * 2. 健康检查：分发线程空闲时定时 ping 进程，无响应、超时、退出或渲染次数达到上限的进程自动重建
+ * 3. 回退：进程池不可用或渲染失败时返回null，由调用方回退为执行 mmdc 命令
+ */
+@Slf4j
+@Component
+public class MermaidRenderPool {
+
+    // 渲染脚本在类路径中的位置
+    private static final String WORKER_SCRIPT = "mermaid-worker/render-worker.cjs";
+
+    // 渲染脚本释放到本地的目录（jar 中的资源不能直接被 node 执行）
+    private static final String WORKER_SCRIPT_DIR = System.getProperty("user.dir") + "/tmp/mermaid_worker";
+
+    // 健康检查的超时时间（秒）
+    private static final int PING_TIMEOUT_SECONDS = 5;
+
+    // 截止时间到达后调用方额外等待结果送达的时间（毫秒）
+    private static final long RESULT_GRACE_MILLIS = 500;
+
+    @Resource
+    private MermaidRenderConfig mermaidRenderConfig;
+
+    // 等待渲染的请求
+    private final BlockingQueue<RenderRequest> requestQueue = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger workerIndex = new AtomicInteger();
+
+    private final List<Thread> dispatchers = new ArrayList<>();
+
+    // 当前存活的渲染进程，停机时统一销毁
+    private final Set<MermaidRenderWorker> workers = ConcurrentHashMap.newKeySet();
+
+    private File workerScript;
+
+    // 进程池是否可用（没有安装 mermaid-cli 等情况下为false）
+    private volatile boolean available;
+
+    /**
+     * 渲染请求
+     *
+     * @param mermaidCode   Mermaid 代码
+     * @param result        渲染结果
+     * @param deadlineNanos 截止时间（System.nanoTime），从提交时开始计算，包含排队时间
+     */
+    private record RenderRequest(String mermaidCode, CompletableFuture<String> result, long deadlineNanos) {
+    }
+
+    /**
+     * 释放渲染脚本并启动渲染进程
+     */
+    @PostConstruct
+    public void init() {
+        if (!mermaidRenderConfig.isWorkerEnabled()) {
+            return;
+        }
+        try (InputStream inputStream = new ClassPathResource(WORKER_SCRIPT).getInputStream()) {
+            workerScript = FileUtil.writeFromStream(inputStream, new File(WORKER_SCRIPT_DIR, "render-worker.cjs"));
+        } catch (Exception e) {
+            log.warn("释放 Mermaid 渲染脚本失败，使用 mmdc 命令渲染:{}", e.getMessage());
+            return;
+        }
+        //先同步启动第一个进程，失败说明环境不支持（例如没有安装 mermaid-cli），整个进程池不启用
+        MermaidRenderWorker firstWorker = startWorker();
+        if (firstWorker == null) {
+            log.warn("Mermaid 渲染进程启动失败，使用 mmdc 命令渲染");
+            return;
+        }
+        available = true;
+        int poolSize = Math.max(1, mermaidRenderConfig.getWorkerPoolSize());
+        for (int i = 0; i < poolSize; i++) {
+            MermaidRenderWorker initialWorker = i == 0 ? firstWorker : null;
+            Thread dispatcher = Thread.ofVirtual()
+                    .name("mermaid-render-dispatcher-" + i)
+                    .start(() -> dispatchLoop(initialWorker));
+            dispatchers.add(dispatcher);
+        }
+        log.info("Mermaid 渲染进程池已启动，进程数:{}", poolSize);
+    }
+
+    /**
+     * 停止分发并销毁所有渲染进程
+     */
+    @PreDestroy
+    public void destroy() {
+        available = false;
+        dispatchers.forEach(Thread::interrupt);
+        workers.forEach(MermaidRenderWorker::destroy);
+        RenderRequest request;
+        while ((request = requestQueue.poll()) != null) {
+            request.result().complete(null);
+        }
+    }
+
+    /**
+     * 使用常驻进程渲染 Mermaid 图表
+     *
+     * @param mermaidCode Mermaid 代码
+     * @return SVG 内容；进程池不可用、渲染失败或超时返回null，调用方应回退为 mmdc 命令
+     */
+    public String render(String mermaidCode) {
+        if (!available) {
+            return null;
+        }
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(mermaidRenderConfig.getRenderTimeoutSeconds());
+        requestQueue.offer(new RenderRequest(mermaidCode, result, System.nanoTime() + timeoutNanos));
+        try {
+            //分发线程保证在截止时间前完成结果，这里多等一小段时间让结果送达
+            return result.get(timeoutNanos + TimeUnit.MILLISECONDS.toNanos(RESULT_GRACE_MILLIS), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Mermaid 渲染超时，回退为 mmdc 命令");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Mermaid 渲染失败，回退为 mmdc 命令:{}", e.getMessage());
+        }
+        //还在排队的请求不再渲染
+        result.cancel(false);
+        return null;
+    }
+
+    /**
+     * 分发循环：取出一批请求交给当前进程渲染，进程损坏时重建
+     *
+     * @param initialWorker 初始进程，为null时在循环中启动
+     */
+    private void dispatchLoop(MermaidRenderWorker initialWorker) {
+        MermaidRenderWorker worker = initialWorker;
+        int healthCheckSeconds = Math.max(5, mermaidRenderConfig.getWorkerHealthCheckSeconds());
+        while (available) {
+            try {
+                if (worker == null || !worker.isAlive()) {
+                    worker = replace(worker);
+                    if (worker == null) {
+                        //启动失败时稍后重试，期间请求由其他进程处理或等待超时后回退
+                        TimeUnit.SECONDS.sleep(healthCheckSeconds);
+                        continue;
+                    }
+                }
+                RenderRequest first = requestQueue.poll(healthCheckSeconds, TimeUnit.SECONDS);
+                if (first == null) {
+                    //空闲时做健康检查
+                    if (!worker.ping(PING_TIMEOUT_SECONDS)) {
+                        log.warn("Mermaid 渲染进程健康检查失败，重建:{}", worker.getName());
+                        worker = replace(worker);
+                    }
+                    continue;
+                }
+                worker = renderBatch(worker, collectBatch(first));
+                if (worker != null && worker.getRenderCount() >= mermaidRenderConfig.getWorkerMaxRenders()) {
+                    log.info("回收 Mermaid 渲染进程:{}，已渲染{}张图", worker.getName(), worker.getRenderCount());
+                    worker = replace(worker);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                log.error("Mermaid 渲染分发异常:{}", e.getMessage(), e);
+            }
+        }
+        if (worker != null) {
+            workers.remove(worker);
+            worker.destroy();
+        }
+    }
+
+    /**
+     * 从队列中取出一批请求，跳过调用方已经放弃的请求，已经过了截止时间的请求直接失败
+     *
+     * @param first 第一个请求
+     * @return 本批次的请求
+     */
+    private List<RenderRequest> collectBatch(RenderRequest first) {
+        List<RenderRequest> batch = new ArrayList<>();
+        batch.add(first);
+        requestQueue.drainTo(batch, Math.max(1, mermaidRenderConfig.getMaxBatchSize()) - 1);
+        long now = System.nanoTime();
+        batch.removeIf(request -> {
+            if (request.deadlineNanos() - now <= 0) {
+                //排队期间已经超时，立即回退，不再占用进程
+                request.result().complete(null);
+            }
+            return request.result().isDone();
+        });
+        return batch;
+    }
+
+    /**
+     * 渲染一批请求并完成对应的结果
+     *
+     * @param worker 渲染进程
+     * @param batch  请求
+     * @return 之后使用的进程，进程在渲染中损坏时为重建的进程（重建失败为null）
+     */
+    private MermaidRenderWorker renderBatch(MermaidRenderWorker worker, List<RenderRequest> batch) {
+        if (batch.isEmpty()) {
+            return worker;
+        }
+        List<String> diagrams = batch.stream().map(RenderRequest::mermaidCode).toList();
+        // 整批在最早的截止时间前完成
+        long earliestDeadline = batch.stream().mapToLong(RenderRequest::deadlineNanos)
+                .reduce((a, b) -> a - b < 0 ? a : b).orElseThrow();
+        Duration timeout = Duration.ofNanos(earliestDeadline - System.nanoTime());
+        List<String> svgList = worker.render(diagrams, timeout);
+        if (svgList == null && !worker.isAlive()) {
+            //超时或进程退出：先强制结束进程（不等待关闭浏览器）并重建，再通知调用方回退，
+            //避免调用方执行 mmdc 时旧进程仍在渲染同一批图表
+            log.warn("Mermaid 渲染进程在渲染中损坏，强制结束并重建:{}", worker.getName());
+            workers.remove(worker);
+            worker.kill();
+            worker = available ? startWorker() : null;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(svgList == null ? null : svgList.get(i));
+        }
+        return worker;
+    }
+
+    /**
+     * 销毁旧进程并启动新进程
+     *
+     * @param worker 旧进程，可以为null
+     * @return 新进程，启动失败返回null
+     */
+    private MermaidRenderWorker replace(MermaidRenderWorker worker) {
+        if (worker != null) {
+            workers.remove(worker);
+            worker.destroy();
+        }
+        return available ? startWorker() : null;
+    }
+
+    /**
+     * 启动一个渲染进程，等待浏览器启动完成
+     *
+     * @return 渲染进程，启动失败返回null
+     */
+    private MermaidRenderWorker startWorker() {
+        String name = "mermaid-worker-" + workerIndex.incrementAndGet();
+        Map<String, String> environment = new HashMap<>();
+        if (StrUtil.isNotBlank(mermaidRenderConfig.getCliDir())) {
+            environment.put("MERMAID_CLI_DIR", mermaidRenderConfig.getCliDir());
+        }
+        if (StrUtil.isNotBlank(mermaidRenderConfig.getPuppeteerConfigFile())) {
+            environment.put("MERMAID_PUPPETEER_CONFIG", mermaidRenderConfig.getPuppeteerConfigFile());
+        }
+        try {
+            MermaidRenderWorker worker = MermaidRenderWorker.start(name, "node", workerScript, environment);
+            if (worker.ping(Math.max(PING_TIMEOUT_SECONDS, mermaidRenderConfig.getWorkerStartTimeoutSeconds()))) {
+                workers.add(worker);
+                return worker;
+            }
+            worker.destroy();
+            log.error("Mermaid 渲染进程启动后无响应:{}", name);
+        } catch (Exception e) {
+            log.error("启动 Mermaid 渲染进程失败:{}，error:{}", name, e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.ruhuo.xuaizerobackend.langgraph4j.renderer;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.ruhuo.xuaizerobackend.core.sidecar.JsonLineSidecarWorker;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 常驻 Mermaid 渲染进程
+ * 封装一个长期运行的 Node 进程（render-worker.cjs），进程内持有一个无头浏览器，
+ * 一次请求可以渲染一批图表。
+ */
+@Slf4j
+public class MermaidRenderWorker extends JsonLineSidecarWorker {
+
+    // 协议响应行前缀，与 render-worker.cjs 保持一致
+    private static final String RESPONSE_PREFIX = "@@mermaid-worker@@";
+
+    // 关闭 stdin 后等待脚本关闭浏览器的时间（秒）
+    private static final int SHUTDOWN_GRACE_SECONDS = 5;
+
+    // 已渲染的图表数，超过上限后回收进程
+    private final AtomicInteger renderCount = new AtomicInteger();
+
+    private MermaidRenderWorker(String name, Process process) {
+        super(name, process, RESPONSE_PREFIX);
+    }
+
+    /**
+     * 启动一个渲染进程
+     *
+     * @param name        进程名称，用于日志
+     * @param nodeBinary  node 可执行文件
+     * @param scriptFile  渲染脚本
+     * @param environment 额外的环境变量
+     * @return 渲染进程
+     * @throws IOException 启动失败
+     */
+    public static MermaidRenderWorker start(String name, String nodeBinary, File scriptFile,
+                                            Map<String, String> environment) throws IOException {
+        MermaidRenderWorker worker = new MermaidRenderWorker(name, launch(nodeBinary, scriptFile, environment));
+        worker.startReaders();
+        return worker;
+    }
+
+    /**
+     * 渲染一批图表
+     *
+     * @param diagrams Mermaid 代码列表
+     * @param timeout  整批的超时时间
+     * @return 与输入一一对应的 SVG 内容，单个图表渲染失败时对应位置为null；整批失败时返回null
+     */
+    public List<String> render(List<String> diagrams, Duration timeout) {
+        renderCount.addAndGet(diagrams.size());
+        JSONObject request = new JSONObject();
+        request.set("type", "render");
+        request.set("diagrams", diagrams);
+        request.set("backgroundColor", "transparent");
+        JSONObject response = request(request, timeout);
+        if (response == null) {
+            return null;
+        }
+        if (!response.getBool("success", false)) {
+            log.error("[{}] Mermaid 渲染失败:{}", getName(), response.getStr("error"));
+            return null;
+        }
+        JSONArray results = response.getJSONArray("results");
+        List<String> svgList = new ArrayList<>(diagrams.size());
+        for (int i = 0; i < diagrams.size(); i++) {
+            JSONObject result = results != null && i < results.size() ? results.getJSONObject(i) : null;
+            if (result != null && result.getBool("success", false)) {
+                svgList.add(result.getStr("svg"));
+            } else {
+                log.warn("[{}] Mermaid 图表渲染失败:{}", getName(), result == null ? "缺少结果" : result.getStr("error"));
+                svgList.add(null);
+            }
+        }
+        return svgList;
+    }
+
+    /**
+     * 已渲染的图表数
+     *
+     * @return 图表数
+     */
+    public int getRenderCount() {
+        return renderCount.get();
+    }
+
+    /**
+     * 浏览器是脚本的子进程，stdin 关闭后由脚本负责关闭
+     */
+    @Override
+    protected int shutdownGraceSeconds() {
+        return SHUTDOWN_GRACE_SECONDS;
+    }
+}
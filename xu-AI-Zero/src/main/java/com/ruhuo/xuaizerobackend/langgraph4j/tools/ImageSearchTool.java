@@ -7,8 +7,10 @@ import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageResource;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageCategoryEnum;
+import com.ruhuo.xuaizerobackend.manager.ImageSearchCacheManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import jakarta.annotation.Resource;
 import org.springframework.beans.factory.annotation.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -30,13 +32,26 @@ public class ImageSearchTool {
     @Value("${pexels.api-key}")
     private String pexelsApiKey;
 
+    @Resource
+    private ImageSearchCacheManager imageSearchCacheManager;
+
     /**
      * 搜索内容相关的图片
+     * 结果按关键词缓存，相同关键词不会重复调用 Pexels API
      * @param query 搜索关键词
      * @return 返回图片资源列表
      */
     @Tool("搜索内容相关的图片，用于网站内容展示")
     public List<ImageResource> searchContentImages(@P("搜索关键词")  String query){
+        return imageSearchCacheManager.get(query, this::searchPexels);
+    }
+
+    /**
+     * 调用 Pexels API 搜索图片
+     * @param query 搜索关键词
+     * @return 返回图片资源列表，调用失败时返回null，不写入缓存
+     */
+    private List<ImageResource> searchPexels(String query){
         // 初始化图片列表
         List<ImageResource> imageList = new ArrayList<>();
         // 设置每次搜索的图片数量
@@ -74,11 +89,14 @@ public class ImageSearchTool {
                             .build()
                     );
                 }
+                return imageList;  // 返回图片列表
             }
+            // 记录API返回错误状态的日志
+            log.error("Pexels API 调用失败，状态码：{}", response.getStatus());
         } catch (Exception e) {
             // 记录API调用失败的错误日志
             log.error("Pexels API 调用失败：{}", e.getMessage(), e);
         }
-        return imageList;  // 返回图片列表
+        return null;
     }
 }
@@ -1,15 +1,20 @@
 package com.ruhuo.xuaizerobackend.langgraph4j.tools;
 
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.RuntimeUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import cn.hutool.system.SystemUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.ruhuo.xuaizerobackend.exception.BusinessException;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageResource;
 import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageCategoryEnum;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
+import com.ruhuo.xuaizerobackend.langgraph4j.renderer.MermaidRenderPool;
 import com.ruhuo.xuaizerobackend.manager.CosManager;
+import com.ruhuo.xuaizerobackend.monitor.ImageCollectMetricsCollector;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import jakarta.annotation.Resource;
@@ -17,22 +22,45 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * MermaidDiagramTool 类
  * 用于将 Mermaid 代码转换为架构图图片的工具类
  * 该类提供了将 Mermaid 代码转换为 SVG 图片并上传至云存储的功能
+ * 图片按规范化后代码的哈希保存，相同的代码只会渲染和上传一次
  */
 @Slf4j
 @Component
 public class MermaidDiagramTool {
 
+    // 渲染参数的版本，修改渲染参数（背景色、主题等）后需要同步修改，使旧的缓存失效
+    private static final String RENDER_VERSION = "mmdc-svg-transparent-v1";
+
     @Resource
     private CosManager cosManager;  // 云对象存储管理器，用于上传生成的图片
 
+    @Resource
+    private ImageCollectMetricsCollector imageCollectMetricsCollector;
+
+    @Resource
+    private MermaidRenderPool mermaidRenderPool;  // 常驻渲染进程池
+
+    // Mermaid 代码哈希 -> 图片地址，对象键固定，地址长期有效
+    private final Cache<String, String> diagramUrlCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(Duration.ofDays(1))
+            .build();
+
+    // 正在渲染的 Mermaid 代码哈希
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
     /**
      * 将 Mermaid 代码转换为架构图图片
      * @param mermaidCode Mermaid 图表代码
@@ -48,15 +76,8 @@ public class MermaidDiagramTool {
         }
 
         try{
-            // 将 Mermaid 代码转换为 SVG 文件
-            File diagramFile = convertMermaidToSvg(mermaidCode);
-
-            // 生成随机文件名并上传至云存储
-            String keyName = String.format("/mermaid/%s/%s", RandomUtil.randomString(5),diagramFile.getName());
-            String cosUrl = cosManager.uploadFile(keyName,diagramFile);
-
-            // 删除临时文件
-            FileUtil.del(diagramFile);
+            // 相同的 Mermaid 代码只渲染和上传一次
+            String cosUrl = getOrRenderDiagram(mermaidCode);
 
             // 判断cosUrl是否为非空字符串
             if(StrUtil.isNotBlank(cosUrl)){
@@ -79,12 +100,107 @@ public class MermaidDiagramTool {
         return new ArrayList<>();
     }
 
+    /**
+     * 获取 Mermaid 代码对应的架构图地址
+     * 依次查询本地缓存和云存储中是否已有相同代码渲染的图片，都没有时才渲染并上传；
+     * 相同代码同时只有一个线程渲染，其他线程等待并共用结果
+     * @param mermaidCode Mermaid 图表代码
+     * @return 图片地址，渲染或上传失败时返回null
+     */
+    private String getOrRenderDiagram(String mermaidCode){
+        String hash = DigestUtil.sha256Hex(RENDER_VERSION + "\n" + normalize(mermaidCode));
+        String cachedUrl = diagramUrlCache.getIfPresent(hash);
+        if(cachedUrl != null){
+            recordCache("local");
+            return cachedUrl;
+        }
+
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(hash, flight);
+        if(existing != null){
+            recordCache("shared");
+            return existing.join();
+        }
+        try{
+            String url = loadDiagram(hash, mermaidCode);
+            if(url != null){
+                diagramUrlCache.put(hash, url);
+            }
+            flight.complete(url);
+            return url;
+        }catch (RuntimeException e){
+            flight.completeExceptionally(e);
+            throw e;
+        }finally {
+            inFlight.remove(hash, flight);
+        }
+    }
+
+    /**
+     * 云存储中已有同名对象时直接复用，否则渲染后上传
+     * @param hash Mermaid 代码的哈希
+     * @param mermaidCode Mermaid 图表代码
+     * @return 图片地址
+     */
+    private String loadDiagram(String hash, String mermaidCode){
+        // 对象键只由代码内容决定，同样的代码总是对应同一个对象
+        String keyName = String.format("/mermaid/%s.svg", hash);
+        try{
+            if(cosManager.doesObjectExist(keyName)){
+                recordCache("cos");
+                return cosManager.getObjectUrl(keyName);
+            }
+        }catch (Exception e){
+            // 查询失败时按不存在处理，重新渲染上传会覆盖同名对象，结果一致
+            log.warn("查询架构图是否已存在失败：{}", e.getMessage());
+        }
+
+        recordCache("miss");
+        // 将 Mermaid 代码转换为 SVG 文件
+        File diagramFile = convertMermaidToSvg(mermaidCode);
+        try{
+            return cosManager.uploadFile(keyName, diagramFile);
+        }finally {
+            // 删除临时文件
+            FileUtil.del(diagramFile);
+        }
+    }
+
+    /**
+     * 规范化 Mermaid 代码：统一换行符、去除行尾空白和空行
+     * 只有格式差异的代码会得到同一个哈希
+     * @param mermaidCode Mermaid 图表代码
+     * @return 规范化后的代码
+     */
+    private String normalize(String mermaidCode){
+        StringBuilder normalized = new StringBuilder();
+        for(String line : mermaidCode.replace("\r\n", "\n").replace('\r', '\n').split("\n")){
+            String trimmed = StrUtil.trimEnd(line);
+            if(!trimmed.isBlank()){
+                normalized.append(trimmed).append('\n');
+            }
+        }
+        return normalized.toString();
+    }
+
+    private void recordCache(String result){
+        imageCollectMetricsCollector.recordCache(ImageProviderEnum.MERMAID.getValue(), result);
+    }
+
     /**
      * 将 Mermaid 代码转换为 SVG 图片文件
      * @param mermaidCode Mermaid 图表代码
      * @return 生成的临时 SVG 文件
      */
     private File convertMermaidToSvg(String mermaidCode){
+        // 优先使用常驻渲染进程，不可用或渲染失败时再执行 mmdc 命令
+        String svg = mermaidRenderPool.render(mermaidCode);
+        if(StrUtil.isNotBlank(svg)){
+            File svgFile = FileUtil.createTempFile("mermaid_output_",".svg",true);
+            FileUtil.writeUtf8String(svg,svgFile);
+            return svgFile;
+        }
+
         // 创建临时输入文件
         File tempInputFile = FileUtil.createTempFile("mermaid_input_",".mmd",true); // 创建临时输入文件，扩展名为.mmd
         FileUtil.writeUtf8String(mermaidCode,tempInputFile); // 将Mermaid代码写入临时输入文件
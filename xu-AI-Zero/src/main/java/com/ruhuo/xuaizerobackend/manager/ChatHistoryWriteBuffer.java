@@ -0,0 +1,254 @@
+package com.ruhuo.xuaizerobackend.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONConfig;
+import cn.hutool.json.JSONUtil;
+import com.mybatisflex.core.keygen.IKeyGenerator;
+import com.mybatisflex.core.keygen.KeyGeneratorFactory;
+import com.mybatisflex.core.keygen.KeyGenerators;
+import com.ruhuo.xuaizerobackend.config.ChatHistoryWriteConfig;
+import com.ruhuo.xuaizerobackend.constant.AppConstant;
+import com.ruhuo.xuaizerobackend.mapper.ChatHistoryMapper;
+import com.ruhuo.xuaizerobackend.model.entity.ChatHistory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 对话历史异步批量写入缓冲区（write-behind）
+ * 用户消息和 AI 回复先进入内存队列，由后台线程按批次合并成一条多行 INSERT 写入数据库，
+ * 高峰期的消息数不再一比一地变成数据库往返。
+ * <p>
+ * 1. 有界队列：队列满时调用方最多等待一小段时间，仍然放不进去就同步写入，形成背压
+ * 2. 顺序：所有写入都在同一把锁内按入队顺序执行，主键和 createTime 在入队时确定
+ * 3. 批量：后台线程每个刷盘间隔把队列中的消息拆成若干条多行 INSERT 写入
+ * 4. 读己之写：读取对话历史前调用 {@link #flush()}，保证读到刚写入的消息
+ * 5. 兜底：数据库写入失败或停机时无法写入的消息追加到本地文件，下次启动时重新写入
+ */
+@Slf4j
+@Component
+public class ChatHistoryWriteBuffer {
+
+    // 兜底文件，每行一条 JSON 格式的对话历史
+    private static final File FALLBACK_FILE = new File(AppConstant.CHAT_HISTORY_FALLBACK_DIR, "chat_history.jsonl");
+
+    // 兜底文件使用的序列化配置，时间按固定格式保存便于回放
+    private static final JSONConfig FALLBACK_JSON_CONFIG = JSONConfig.create().setDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    // 与实体类 @Id 注解一致的雪花算法主键生成器，已有主键的实体插入时不会重新生成
+    private static final IKeyGenerator ID_GENERATOR = KeyGeneratorFactory.getKeyGenerator(KeyGenerators.snowFlakeId);
+
+    @Resource
+    private ChatHistoryMapper chatHistoryMapper;
+
+    @Resource
+    private ChatHistoryWriteConfig chatHistoryWriteConfig;
+
+    // 写入缓冲队列
+    private BlockingQueue<ChatHistory> queue;
+
+    // 保证批量写入、同步写入、兜底回放之间按顺序执行
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // 后台刷盘线程
+    private Thread flushThread;
+
+    private volatile boolean running;
+
+    /**
+     * 回放上次未写入的消息并启动后台刷盘线程
+     */
+    @PostConstruct
+    public void init() {
+        replayFallback();
+        if (!chatHistoryWriteConfig.isAsyncEnabled()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(Math.max(1, chatHistoryWriteConfig.getQueueCapacity()));
+        running = true;
+        flushThread = new Thread(this::flushLoop, "chat-history-writer");
+        flushThread.setDaemon(true);
+        flushThread.start();
+        log.info("对话历史异步写入已启动，队列容量:{}，批次大小:{}", chatHistoryWriteConfig.getQueueCapacity(), chatHistoryWriteConfig.getBatchSize());
+    }
+
+    /**
+     * 停机时把缓冲区中的消息全部写入，写入失败的保存到兜底文件
+     */
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (flushThread != null) {
+            flushThread.interrupt();
+            try {
+                flushThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * 添加一条对话历史
+     * 异步写入开启时只入队，队列已满且等待超时后同步写入
+     *
+     * @param chatHistory 对话历史
+     * @return 是否成功
+     */
+    public boolean add(ChatHistory chatHistory) {
+        // 入队时确定主键和时间，保证批量写入后消息顺序与实际发生顺序一致，调用方也能立即拿到消息ID
+        if (chatHistory.getId() == null) {
+            chatHistory.setId((Long) ID_GENERATOR.generate(chatHistory, "id"));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        chatHistory.setCreateTime(now);
+        chatHistory.setUpdateTime(now);
+        chatHistory.setIsDelete(0);
+        if (queue == null || !running) {
+            return writeNow(List.of(chatHistory));
+        }
+        try {
+            if (queue.offer(chatHistory, chatHistoryWriteConfig.getOfferTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                //攒满一个批次时提前唤醒刷盘线程
+                if (queue.size() >= chatHistoryWriteConfig.getBatchSize()) {
+                    LockSupport.unpark(flushThread);
+                }
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("对话历史写入队列已满，改为同步写入，appId:{}", chatHistory.getAppId());
+        return writeNow(List.of(chatHistory));
+    }
+
+    /**
+     * 立即把缓冲区中的消息全部写入数据库
+     */
+    public void flush() {
+        if (queue == null || queue.isEmpty()) {
+            return;
+        }
+        writeNow(List.of());
+    }
+
+    /**
+     * 后台刷盘循环：每个刷盘间隔把队列中的消息整批写入，攒满一个批次时提前唤醒
+     * 消息在写入前一直留在队列中，{@link #flush()} 拿到写锁后即可写入全部未落库的消息
+     */
+    private void flushLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, chatHistoryWriteConfig.getFlushIntervalMillis()));
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                // 停机时由 destroy 负责写入剩余消息
+                return;
+            }
+            try {
+                if (!queue.isEmpty()) {
+                    writeNow(List.of());
+                }
+            } catch (Exception e) {
+                log.error("对话历史批量写入异常:{}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 在写锁内先写入给定的消息，再写入队列中的消息，保证整体顺序
+     *
+     * @param pending 需要同步写入的消息（队列已满时未能入队的消息）
+     * @return 是否全部写入数据库
+     */
+    private boolean writeNow(List<ChatHistory> pending) {
+        writeLock.lock();
+        try {
+            List<ChatHistory> batch = new ArrayList<>();
+            if (queue != null) {
+                queue.drainTo(batch);
+            }
+            //未能入队的消息比队列中的消息更晚产生
+            batch.addAll(pending);
+            return insertBatch(batch);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 按批次大小拆分成多条多行 INSERT 写入，失败的批次保存到兜底文件
+     *
+     * @param batch 对话历史
+     * @return 是否全部写入数据库
+     */
+    private boolean insertBatch(List<ChatHistory> batch) {
+        boolean allSuccess = true;
+        for (List<ChatHistory> part : CollUtil.split(batch, Math.max(1, chatHistoryWriteConfig.getBatchSize()))) {
+            try {
+                chatHistoryMapper.insertBatch(part);
+            } catch (Exception e) {
+                log.error("对话历史写入数据库失败，{}条消息转存到兜底文件，error:{}", part.size(), e.getMessage(), e);
+                saveToFallback(part);
+                allSuccess = false;
+            }
+        }
+        return allSuccess;
+    }
+
+    /**
+     * 追加写入兜底文件
+     *
+     * @param batch 对话历史
+     */
+    private void saveToFallback(List<ChatHistory> batch) {
+        List<String> lines = new ArrayList<>(batch.size());
+        for (ChatHistory chatHistory : batch) {
+            lines.add(JSONUtil.toJsonStr(chatHistory, FALLBACK_JSON_CONFIG));
+        }
+        try {
+            FileUtil.appendLines(lines, FALLBACK_FILE, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("对话历史写入兜底文件失败，{}条消息丢失，error:{}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 启动时回放兜底文件中的消息，全部写入成功后删除文件
+     */
+    private void replayFallback() {
+        if (!FALLBACK_FILE.exists()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            List<ChatHistory> batch = new ArrayList<>();
+            for (String line : FileUtil.readLines(FALLBACK_FILE, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    batch.add(JSONUtil.parseObj(line, FALLBACK_JSON_CONFIG).toBean(ChatHistory.class));
+                }
+            }
+            chatHistoryMapper.insertBatch(batch, Math.max(1, chatHistoryWriteConfig.getBatchSize()));
+            FileUtil.del(FALLBACK_FILE);
+            log.info("已回放兜底文件中的{}条对话历史", batch.size());
+        } catch (Exception e) {
+            log.error("回放对话历史兜底文件失败，保留文件等待下次启动:{}", e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
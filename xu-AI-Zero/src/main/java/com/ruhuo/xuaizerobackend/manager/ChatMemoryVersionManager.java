@@ -0,0 +1,165 @@
+package com.ruhuo.xuaizerobackend.manager;
+
+import jakarta.annotation.Resource;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 对话记忆版本管理
+ * 在 Redis 中为每个应用记录对话历史和对话记忆各自的进度（对话历史的消息ID，雪花算法保证递增），
+ * 创建 AI 服务时据此判断 Redis 中的对话记忆是否已经是最新的，避免每次都查询数据库并重建记忆。
+ * <p>
+ * 字段说明：
+ * latest   - 最新一条对话历史的ID
+ * previous - 最新一条之前的对话历史ID（创建 AI 服务时最新一条是本轮的用户消息，记忆中还没有）
+ * memory   - 对话记忆已包含的最后一条对话历史ID
+ */
+@Slf4j
+@Component
+public class ChatMemoryVersionManager {
+
+    // Redis 键前缀
+    private static final String KEY_PREFIX = "chat_memory:version:";
+
+    private static final String FIELD_LATEST = "latest";
+    private static final String FIELD_PREVIOUS = "previous";
+    private static final String FIELD_MEMORY = "memory";
+
+    // 版本信息的过期时间，过期后按未命中处理，重新从数据库加载
+    private static final Duration VERSION_TTL = Duration.ofDays(7);
+
+    /**
+     * 记录新消息：latest 移到 previous，再写入新的 latest（memory 按需写入），整个过程在 Redis 中原子执行，
+     * 避免同一应用并发生成时丢失更新或写入不匹配的 previous/latest。
+     * 多个实例写入的顺序可能与消息ID顺序不同，较旧的消息只在比 previous 新时更新 previous，不会回退 latest 和 memory。
+     * 雪花ID超出 Lua 数字的精度，按字符串比较大小（长度优先）。
+     * KEYS[1] 版本键；ARGV[1] 消息ID；ARGV[2] 是否同时更新 memory（1/0）；ARGV[3] 过期时间（秒）
+     */
+    private static final RedisScript<Long> RECORD_MESSAGE_SCRIPT = new DefaultRedisScript<>("""
+            local function newer(a, b)
+                if b == false then return true end
+                if #a ~= #b then return #a > #b end
+                return a > b
+            end
+            local id = ARGV[1]
+            local latest = redis.call('HGET', KEYS[1], 'latest')
+            if newer(id, latest) then
+                if latest then redis.call('HSET', KEYS[1], 'previous', latest) end
+                redis.call('HSET', KEYS[1], 'latest', id)
+            elseif id ~= latest and newer(id, redis.call('HGET', KEYS[1], 'previous')) then
+                redis.call('HSET', KEYS[1], 'previous', id)
+            end
+            if ARGV[2] == '1' and newer(id, redis.call('HGET', KEYS[1], 'memory')) then
+                redis.call('HSET', KEYS[1], 'memory', id)
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 记录一条新写入的对话历史
+     *
+     * @param appId        应用ID
+     * @param messageId    对话历史ID
+     * @param memorySynced 对话记忆是否已经包含这条消息之前的全部对话（AI 回复写入时为true）
+     */
+    public void recordMessage(Long appId, Long messageId, boolean memorySynced) {
+        try {
+            stringRedisTemplate.execute(RECORD_MESSAGE_SCRIPT, List.of(buildKey(appId)),
+                    String.valueOf(messageId), memorySynced ? "1" : "0", String.valueOf(VERSION_TTL.toSeconds()));
+        } catch (Exception e) {
+            // 版本信息只用于加速，写入失败时下次创建 AI 服务会回退为从数据库加载
+            log.warn("记录对话记忆版本失败，appId:{}，error:{}", appId, e.getMessage());
+        }
+    }
+
+    /**
+     * 记录对话记忆已包含的最后一条对话历史
+     *
+     * @param appId     应用ID
+     * @param messageId 对话历史ID
+     */
+    public void markMemorySynced(Long appId, Long messageId) {
+        try {
+            String key = buildKey(appId);
+            stringRedisTemplate.opsForHash().put(key, FIELD_MEMORY, String.valueOf(messageId));
+            stringRedisTemplate.expire(key, VERSION_TTL);
+        } catch (Exception e) {
+            log.warn("记录对话记忆版本失败，appId:{}，error:{}", appId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取应用的对话记忆版本
+     *
+     * @param appId 应用ID
+     * @return 版本信息，读取失败时各字段为null
+     */
+    public ChatMemoryVersion getVersion(Long appId) {
+        ChatMemoryVersion version = new ChatMemoryVersion();
+        try {
+            HashOperations<String, String, String> hashOps = stringRedisTemplate.opsForHash();
+            List<String> values = hashOps.multiGet(buildKey(appId), List.of(FIELD_LATEST, FIELD_PREVIOUS, FIELD_MEMORY));
+            version.setLatest(parseId(values.get(0)));
+            version.setPrevious(parseId(values.get(1)));
+            version.setMemory(parseId(values.get(2)));
+        } catch (Exception e) {
+            log.warn("读取对话记忆版本失败，appId:{}，error:{}", appId, e.getMessage());
+        }
+        return version;
+    }
+
+    /**
+     * 清除应用的对话记忆版本
+     *
+     * @param appId 应用ID
+     */
+    public void clear(Long appId) {
+        try {
+            stringRedisTemplate.delete(buildKey(appId));
+        } catch (Exception e) {
+            log.warn("清除对话记忆版本失败，appId:{}，error:{}", appId, e.getMessage());
+        }
+    }
+
+    private String buildKey(Long appId) {
+        return KEY_PREFIX + appId;
+    }
+
+    private Long parseId(String value) {
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    /**
+     * 对话记忆版本
+     */
+    @Data
+    public static class ChatMemoryVersion {
+
+        /**
+         * 最新一条对话历史的ID
+         */
+        private Long latest;
+
+        /**
+         * 最新一条之前的对话历史ID
+         */
+        private Long previous;
+
+        /**
+         * 对话记忆已包含的最后一条对话历史ID
+         */
+        private Long memory;
+    }
+}
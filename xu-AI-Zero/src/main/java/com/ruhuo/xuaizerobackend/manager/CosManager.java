@@ -27,11 +27,31 @@ public class CosManager {
         return cosClient.putObject(putObjectRequest);
     }
 
+    /**
+     * 判断对象是否已经存在
+     *
+     * @param key 对象键
+     * @return 存在返回true
+     */
+    public boolean doesObjectExist(String key){
+        return cosClient.doesObjectExist(cosClientConfig.getBucket(),key);
+    }
+
+    /**
+     * 获取对象的访问地址，与上传成功后返回的地址一致
+     *
+     * @param key 对象键
+     * @return 访问地址
+     */
+    public String getObjectUrl(String key){
+        return String.format("https://%s/%s",cosClientConfig.getHost(), key);
+    }
+
     public String uploadFile(String key,File file){
         PutObjectResult result = putObject(key,file);
 
         if(result!=null){
-            String url = String.format("https://%s/%s",cosClientConfig.getHost(), key);
+            String url = getObjectUrl(key);
             log.info("文件上传 COS 成功:{} -> {}",file.getName(),url);
             return url;
         }else {
@@ -0,0 +1,104 @@
+package com.ruhuo.xuaizerobackend.manager;
+
+import cn.hutool.core.util.IdUtil;
+import com.ruhuo.xuaizerobackend.config.SseStreamConfig;
+import com.ruhuo.xuaizerobackend.core.sse.GenerationRun;
+import com.ruhuo.xuaizerobackend.exception.ErrorCode;
+import com.ruhuo.xuaizerobackend.exception.ThrowUtils;
+import com.ruhuo.xuaizerobackend.monitor.SseStreamMetricsCollector;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码生成记录管理
+ * 每次生成对应一个 {@link GenerationRun}，运行中和结束后保留期内的记录都可以通过 Last-Event-ID 重新连接。
+ * 记录保存在当前实例的内存中（较早的内容写入 Redis），重连请求需要落到同一个实例上。
+ */
+@Slf4j
+@Component
+public class GenerationRunManager {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private SseStreamConfig sseStreamConfig;
+
+    @Resource
+    private SseStreamMetricsCollector sseStreamMetricsCollector;
+
+    private final ConcurrentMap<String, GenerationRun> runs = new ConcurrentHashMap<>();
+
+    /**
+     * 开始一次生成
+     *
+     * @param appId       应用ID
+     * @param userId      用户ID
+     * @param contentFlux 生成流
+     * @return 生成记录
+     */
+    public GenerationRun start(long appId, long userId, Flux<String> contentFlux) {
+        GenerationRun run = new GenerationRun(IdUtil.fastSimpleUUID(), appId, userId,
+                stringRedisTemplate, sseStreamConfig, this::onTerminate);
+        runs.put(run.getRunId(), run);
+        sseStreamMetricsCollector.recordRun("started");
+        run.start(contentFlux);
+        return run;
+    }
+
+    /**
+     * 根据 Last-Event-ID 查找可以重新连接的生成记录
+     *
+     * @param lastEventId 客户端收到的最后一个事件ID
+     * @param appId       应用ID
+     * @param userId      当前用户ID
+     * @return 生成记录
+     */
+    public GenerationRun getResumableRun(String lastEventId, long appId, long userId) {
+        String runId = GenerationRun.parseRunId(lastEventId);
+        //序号为 -1 表示连接建立后还没有收到片段，从头开始接收
+        ThrowUtils.throwIf(runId == null || GenerationRun.parseSeq(lastEventId) == null, ErrorCode.PARAMS_ERROR, "Last-Event-ID 格式错误");
+        GenerationRun run = runs.get(runId);
+        ThrowUtils.throwIf(run == null, ErrorCode.NOT_FOUND_ERROR, "生成记录不存在或已过期，请重新发送消息");
+        ThrowUtils.throwIf(run.getAppId() != appId || run.getUserId() != userId, ErrorCode.NO_AUTH_ERROR);
+        sseStreamMetricsCollector.recordRun("resumed");
+        return run;
+    }
+
+    /**
+     * 生成结束后保留一段时间，供结束前断开的客户端补齐内容
+     */
+    private void onTerminate(GenerationRun run) {
+        sseStreamMetricsCollector.recordRun(run.getOutcome());
+        //清理会访问 Redis，放在阻塞线程池中执行
+        Schedulers.boundedElastic().schedule(() -> {
+            runs.remove(run.getRunId(), run);
+            run.cleanup();
+        }, sseStreamConfig.getRunRetentionMinutes(), TimeUnit.MINUTES);
+    }
+
+    /**
+     * 停机时中止所有进行中的生成
+     */
+    @PreDestroy
+    public void destroy() {
+        List<GenerationRun> snapshot = new ArrayList<>(runs.values());
+        runs.clear();
+        for (GenerationRun run : snapshot) {
+            run.cancel();
+            run.cleanup();
+        }
+        log.info("生成记录已清理，数量:{}", snapshot.size());
+    }
+}
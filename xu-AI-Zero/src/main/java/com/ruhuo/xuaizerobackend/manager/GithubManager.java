@@ -65,13 +65,24 @@ public class GithubManager {
      * @return jsDelivr CDN 访问地址
      */
     public String uploadFile(String key, File file) {
-        // 1. 读取文件并转为 Base64
-        byte[] fileBytes = FileUtil.readBytes(file);
-        String base64Content = Base64.getEncoder().encodeToString(fileBytes);
+        return uploadBytes(key, FileUtil.readBytes(file), file.getName());
+    }
+
+    /**
+     * 上传内存中的数据到 GitHub 仓库，不需要先写入本地文件
+     *
+     * @param key      存储路径 (例如: screenshots/2026/03/test.jpg)
+     * @param content  文件内容
+     * @param fileName 文件名，用于提交信息
+     * @return jsDelivr CDN 访问地址
+     */
+    public String uploadBytes(String key, byte[] content, String fileName) {
+        // 1. 内容转为 Base64
+        String base64Content = Base64.getEncoder().encodeToString(content);
 
         // 2. 构建 GitHub API 请求体
         JSONObject json = new JSONObject();
-        json.put("message", "upload screenshot: " + file.getName());
+        json.put("message", "upload screenshot: " + fileName);
         json.put("content", base64Content);
         json.put("branch", githubConfig.getBranch());
 
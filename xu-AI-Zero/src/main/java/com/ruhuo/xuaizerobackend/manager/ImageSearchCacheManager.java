@@ -0,0 +1,185 @@
+package com.ruhuo.xuaizerobackend.manager;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.ruhuo.xuaizerobackend.config.ImageSearchCacheConfig;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.ImageResource;
+import com.ruhuo.xuaizerobackend.langgraph4j.model.enums.ImageProviderEnum;
+import com.ruhuo.xuaizerobackend.monitor.ImageCollectMetricsCollector;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 图片搜索结果缓存
+ * 以规范化后的搜索关键词为键，缓存 Pexels 的搜索结果，常见关键词不再重复调用 API。
+ * <p>
+ * 1. 两级缓存：先查本地 Caffeine 缓存，再查 Redis，都未命中时才调用 API，结果同时写入两级缓存
+ * 2. 空结果缓存：搜索结果为空时也会缓存，但有效期较短；API 调用失败的结果不缓存
+ * 3. 合并请求：同一关键词同时只有一个线程调用 API，其他线程等待并共用它的结果
+ */
+@Slf4j
+@Component
+public class ImageSearchCacheManager {
+
+    // Redis 键前缀，后接规范化关键词的 MD5
+    private static final String KEY_PREFIX = "image_search:pexels:";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ImageSearchCacheConfig imageSearchCacheConfig;
+
+    @Resource
+    private ImageCollectMetricsCollector imageCollectMetricsCollector;
+
+    // 本地缓存，空结果使用较短的有效期
+    private Cache<String, List<ImageResource>> localCache;
+
+    // 正在调用 API 的关键词
+    private final ConcurrentMap<String, CompletableFuture<List<ImageResource>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 按配置创建本地缓存
+     */
+    @PostConstruct
+    public void init() {
+        long positiveTtlNanos = Duration.ofMinutes(imageSearchCacheConfig.getLocalTtlMinutes()).toNanos();
+        long negativeTtlNanos = Duration.ofMinutes(imageSearchCacheConfig.getNegativeTtlMinutes()).toNanos();
+        localCache = Caffeine.newBuilder()
+                .maximumSize(imageSearchCacheConfig.getLocalMaximumSize())
+                .expireAfter(new Expiry<String, List<ImageResource>>() {
+                    @Override
+                    public long expireAfterCreate(String key, List<ImageResource> value, long currentTime) {
+                        return value.isEmpty() ? negativeTtlNanos : positiveTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, List<ImageResource> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, List<ImageResource> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 获取关键词的搜索结果
+     *
+     * @param query  搜索关键词
+     * @param loader 调用 API 搜索，调用失败时返回null（不会被缓存）
+     * @return 搜索结果，调用失败时为空列表
+     */
+    public List<ImageResource> get(String query, Function<String, List<ImageResource>> loader) {
+        String key = normalize(query);
+        if (!imageSearchCacheConfig.isEnabled() || key.isEmpty()) {
+            return copyOf(loader.apply(query));
+        }
+        List<ImageResource> cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            recordCache(cached.isEmpty() ? "negative" : "local");
+            return copyOf(cached);
+        }
+
+        //同一关键词只允许一个线程继续加载，其他线程等待它的结果
+        CompletableFuture<List<ImageResource>> flight = new CompletableFuture<>();
+        CompletableFuture<List<ImageResource>> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            recordCache("shared");
+            return copyOf(existing.join());
+        }
+        try {
+            List<ImageResource> result = load(key, query, loader);
+            flight.complete(result);
+            return copyOf(result);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 依次查询 Redis 和 API
+     *
+     * @param key    规范化后的关键词
+     * @param query  原始关键词
+     * @param loader 调用 API 搜索
+     * @return 搜索结果，API 调用失败时为null
+     */
+    private List<ImageResource> load(String key, String query, Function<String, List<ImageResource>> loader) {
+        String redisKey = KEY_PREFIX + DigestUtil.md5Hex(key);
+        try {
+            String json = stringRedisTemplate.opsForValue().get(redisKey);
+            if (json != null) {
+                List<ImageResource> result = JSONUtil.toList(json, ImageResource.class);
+                localCache.put(key, result);
+                recordCache(result.isEmpty() ? "negative" : "redis");
+                return result;
+            }
+        } catch (Exception e) {
+            //Redis 不可用时直接调用 API
+            log.warn("读取图片搜索缓存失败，query:{}，error:{}", key, e.getMessage());
+        }
+
+        recordCache("miss");
+        List<ImageResource> result = loader.apply(query);
+        if (result == null) {
+            return null;
+        }
+        localCache.put(key, result);
+        try {
+            Duration ttl = result.isEmpty()
+                    ? Duration.ofMinutes(imageSearchCacheConfig.getNegativeTtlMinutes())
+                    : Duration.ofHours(imageSearchCacheConfig.getRedisTtlHours());
+            stringRedisTemplate.opsForValue().set(redisKey, JSONUtil.toJsonStr(result), ttl);
+        } catch (Exception e) {
+            log.warn("写入图片搜索缓存失败，query:{}，error:{}", key, e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 规范化关键词：去除首尾空白、转为小写、合并连续空白
+     *
+     * @param query 搜索关键词
+     * @return 规范化后的关键词
+     */
+    private String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return query.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    /**
+     * 返回结果的副本，避免调用方修改缓存中的列表
+     */
+    private List<ImageResource> copyOf(List<ImageResource> result) {
+        return result == null ? new ArrayList<>() : new ArrayList<>(result);
+    }
+
+    private void recordCache(String result) {
+        imageCollectMetricsCollector.recordCache(ImageProviderEnum.PEXELS.getValue(), result);
+    }
+}
@@ -0,0 +1,352 @@
+package com.ruhuo.xuaizerobackend.manager;
+
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.ruhuo.xuaizerobackend.config.ScreenshotConfig;
+import com.ruhuo.xuaizerobackend.mapper.AppMapper;
+import com.ruhuo.xuaizerobackend.model.entity.App;
+import com.ruhuo.xuaizerobackend.model.enums.ScreenshotJobStatusEnum;
+import com.ruhuo.xuaizerobackend.model.vo.ScreenshotJobVO;
+import com.ruhuo.xuaizerobackend.monitor.ScreenshotMetricsCollector;
+import com.ruhuo.xuaizerobackend.service.ScreenshotService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应用封面截图任务队列
+ * 截图任务保存在 Redis 中，以应用ID为键，服务重启后未完成的任务会继续执行。
+ * <p>
+ * 1. 合并：同一应用重复部署时只保留一个排队中的任务，执行的是最近一次提交的地址
+ * 2. 限流：固定数量的截图线程从队列中领取任务，不会因为频繁部署同时打开大量页面
+ * 3. 重试：截图失败后按指数退避重新入队，次数用完后标记为失败
+ * 4. 租约：领取任务时记录租约到期时间，执行中的任务因停机等原因没有结束时，到期后重新入队
+ * <p>
+ * Redis 结构：
+ * screenshot:job:{appId} - Hash，任务详情（地址、状态、执行次数、版本号等）
+ * screenshot:queue       - ZSet，等待执行的应用ID，分数为可以执行的时间
+ * screenshot:running     - ZSet，执行中的应用ID，分数为租约到期时间
+ */
+@Slf4j
+@Component
+public class ScreenshotJobManager {
+
+    private static final String JOB_KEY_PREFIX = "screenshot:job:";
+    private static final String QUEUE_KEY = "screenshot:queue";
+    private static final String RUNNING_KEY = "screenshot:running";
+
+    private static final String FIELD_URL = "url";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_ATTEMPTS = "attempts";
+    // 每次提交加一，执行结束时版本号变化说明期间有新的提交，不再覆盖新任务的状态
+    private static final String FIELD_VERSION = "version";
+    private static final String FIELD_COVER = "cover";
+    private static final String FIELD_ERROR = "error";
+    private static final String FIELD_NEXT_RUN_TIME = "nextRunTime";
+    private static final String FIELD_UPDATE_TIME = "updateTime";
+
+    // 失败原因的最大长度
+    private static final int MAX_ERROR_LENGTH = 200;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ScreenshotService screenshotService;
+
+    // 直接使用 Mapper 更新封面，避免与 AppService 循环依赖
+    @Resource
+    private AppMapper appMapper;
+
+    @Resource
+    private ScreenshotConfig screenshotConfig;
+
+    @Resource
+    private ScreenshotMetricsCollector screenshotMetricsCollector;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    /**
+     * 启动截图线程
+     */
+    @PostConstruct
+    public void init() {
+        running = true;
+        int workerCount = Math.max(1, screenshotConfig.getJobWorkerCount());
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("screenshot-job-" + i).start(this::workLoop));
+        }
+    }
+
+    /**
+     * 停止截图线程，执行中的任务在租约到期后由下次启动的服务重新执行
+     */
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * 提交截图任务，同一应用已有排队中的任务时合并为一个
+     *
+     * @param appId  应用ID
+     * @param appUrl 应用访问地址
+     */
+    public void submit(Long appId, String appUrl) {
+        try {
+            String key = buildJobKey(appId);
+            HashOperations<String, String, String> hashOps = stringRedisTemplate.opsForHash();
+            hashOps.increment(key, FIELD_VERSION, 1);
+            Map<String, String> fields = new HashMap<>();
+            fields.put(FIELD_URL, appUrl);
+            fields.put(FIELD_STATUS, ScreenshotJobStatusEnum.PENDING.getValue());
+            fields.put(FIELD_ATTEMPTS, "0");
+            fields.put(FIELD_UPDATE_TIME, String.valueOf(System.currentTimeMillis()));
+            hashOps.putAll(key, fields);
+            hashOps.delete(key, FIELD_ERROR, FIELD_NEXT_RUN_TIME);
+            stringRedisTemplate.expire(key, Duration.ofHours(screenshotConfig.getJobRetentionHours()));
+            // 已在队列中（包括等待重试）的任务只更新为立即执行
+            Boolean added = stringRedisTemplate.opsForZSet().add(QUEUE_KEY, String.valueOf(appId), System.currentTimeMillis());
+            screenshotMetricsCollector.recordJob(Boolean.TRUE.equals(added) ? "submitted" : "coalesced");
+            log.info("提交截图任务，appId:{}，合并:{}", appId, !Boolean.TRUE.equals(added));
+        } catch (Exception e) {
+            // 封面截图不影响部署结果，提交失败只记录日志
+            log.error("提交截图任务失败，appId:{}，error:{}", appId, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询截图任务状态
+     *
+     * @param appId 应用ID
+     * @return 任务状态，没有任务（从未部署或已过期）时返回null
+     */
+    public ScreenshotJobVO getJob(Long appId) {
+        HashOperations<String, String, String> hashOps = stringRedisTemplate.opsForHash();
+        Map<String, String> job = hashOps.entries(buildJobKey(appId));
+        if (job.isEmpty()) {
+            return null;
+        }
+        ScreenshotJobVO jobVO = new ScreenshotJobVO();
+        jobVO.setAppId(appId);
+        jobVO.setStatus(job.get(FIELD_STATUS));
+        jobVO.setAttempts(NumberUtil.parseInt(job.get(FIELD_ATTEMPTS), 0));
+        jobVO.setMaxAttempts(screenshotConfig.getJobMaxAttempts());
+        jobVO.setCover(job.get(FIELD_COVER));
+        jobVO.setErrorMsg(job.get(FIELD_ERROR));
+        jobVO.setNextRunTime(toLocalDateTime(job.get(FIELD_NEXT_RUN_TIME)));
+        jobVO.setUpdateTime(toLocalDateTime(job.get(FIELD_UPDATE_TIME)));
+        return jobVO;
+    }
+
+    /**
+     * 截图线程主循环：领取到期的任务并执行，队列为空时顺带回收租约到期的任务
+     */
+    private void workLoop() {
+        long pollIntervalMillis = Math.max(100, screenshotConfig.getJobPollIntervalMillis());
+        while (running) {
+            try {
+                String appId = claim();
+                if (appId == null) {
+                    requeueExpired();
+                    TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+                    continue;
+                }
+                execute(Long.valueOf(appId));
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                log.error("截图任务调度异常:{}", e.getMessage(), e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 领取一个到期的任务，从队列中删除成功的线程才算领取到
+     *
+     * @return 应用ID，没有可执行的任务时返回null
+     */
+    private String claim() {
+        ZSetOperations<String, String> zSetOps = stringRedisTemplate.opsForZSet();
+        long now = System.currentTimeMillis();
+        Set<String> dueJobs = zSetOps.rangeByScore(QUEUE_KEY, 0, now, 0, screenshotConfig.getJobWorkerCount());
+        if (dueJobs == null) {
+            return null;
+        }
+        for (String appId : dueJobs) {
+            Long removed = zSetOps.remove(QUEUE_KEY, appId);
+            if (removed == null || removed == 0) {
+                // 已被其他线程（或其他服务实例）领取
+                continue;
+            }
+            if (zSetOps.score(RUNNING_KEY, appId) != null) {
+                // 同一应用的上一个任务还没结束，稍后再执行，避免同时截同一个页面
+                zSetOps.add(QUEUE_KEY, appId, now + screenshotConfig.getJobPollIntervalMillis());
+                continue;
+            }
+            zSetOps.add(RUNNING_KEY, appId, now + TimeUnit.SECONDS.toMillis(screenshotConfig.getJobLeaseSeconds()));
+            return appId;
+        }
+        return null;
+    }
+
+    /**
+     * 执行一个截图任务：截图上传、更新封面，失败时重新入队或标记为失败
+     *
+     * @param appId 应用ID
+     */
+    private void execute(Long appId) {
+        String key = buildJobKey(appId);
+        HashOperations<String, String, String> hashOps = stringRedisTemplate.opsForHash();
+        try {
+            Map<String, String> job = hashOps.entries(key);
+            String appUrl = job.get(FIELD_URL);
+            if (StrUtil.isBlank(appUrl)) {
+                log.warn("截图任务已过期，appId:{}", appId);
+                return;
+            }
+            String version = job.get(FIELD_VERSION);
+            int attempts = NumberUtil.parseInt(job.get(FIELD_ATTEMPTS), 0) + 1;
+            updateJob(key, Map.of(
+                    FIELD_STATUS, ScreenshotJobStatusEnum.RUNNING.getValue(),
+                    FIELD_ATTEMPTS, String.valueOf(attempts)));
+
+            String cover = null;
+            String error;
+            try {
+                //调用截图服务生成截图并上传，返回截图URL
+                cover = screenshotService.generateAndUploadScreenshot(appUrl);
+                error = StrUtil.isBlank(cover) ? "截图地址为空" : null;
+            } catch (Exception e) {
+                error = StrUtil.maxLength(StrUtil.blankToDefault(e.getMessage(), e.getClass().getSimpleName()), MAX_ERROR_LENGTH);
+            }
+            if (error == null) {
+                onSuccess(appId, key, version, cover);
+            } else {
+                onFailure(appId, key, version, attempts, error);
+            }
+        } finally {
+            stringRedisTemplate.opsForZSet().remove(RUNNING_KEY, String.valueOf(appId));
+        }
+    }
+
+    /**
+     * 截图成功：更新应用封面，任务没有被新的提交替换时标记为成功
+     */
+    private void onSuccess(Long appId, String key, String version, String cover) {
+        App updateApp = new App();
+        updateApp.setId(appId);
+        updateApp.setCover(cover);
+        if (appMapper.update(updateApp) <= 0) {
+            // 应用已被删除
+            log.warn("更新应用封面失败，appId:{}", appId);
+        }
+        screenshotMetricsCollector.recordJob("success");
+        if (isSuperseded(key, version)) {
+            return;
+        }
+        updateJob(key, Map.of(
+                FIELD_STATUS, ScreenshotJobStatusEnum.SUCCESS.getValue(),
+                FIELD_COVER, cover));
+        log.info("截图任务完成，appId:{}，cover:{}", appId, cover);
+    }
+
+    /**
+     * 截图失败：次数没用完时按指数退避重新入队，否则标记为失败
+     */
+    private void onFailure(Long appId, String key, String version, int attempts, String error) {
+        if (isSuperseded(key, version)) {
+            // 新提交的任务已经在队列中，由它重新执行
+            return;
+        }
+        if (attempts >= screenshotConfig.getJobMaxAttempts()) {
+            updateJob(key, Map.of(
+                    FIELD_STATUS, ScreenshotJobStatusEnum.FAILED.getValue(),
+                    FIELD_ERROR, error));
+            screenshotMetricsCollector.recordJob("failed");
+            log.error("截图任务失败，appId:{}，已执行{}次，error:{}", appId, attempts, error);
+            return;
+        }
+        long backoffMillis = TimeUnit.SECONDS.toMillis(screenshotConfig.getJobRetryBackoffSeconds()) << Math.min(attempts - 1, 10);
+        long nextRunTime = System.currentTimeMillis() + backoffMillis;
+        updateJob(key, Map.of(
+                FIELD_STATUS, ScreenshotJobStatusEnum.RETRYING.getValue(),
+                FIELD_ERROR, error,
+                FIELD_NEXT_RUN_TIME, String.valueOf(nextRunTime)));
+        stringRedisTemplate.opsForZSet().add(QUEUE_KEY, String.valueOf(appId), nextRunTime);
+        screenshotMetricsCollector.recordJob("retry");
+        log.warn("截图任务失败，{}毫秒后重试，appId:{}，第{}次，error:{}", backoffMillis, appId, attempts, error);
+    }
+
+    /**
+     * 将租约到期的任务重新放回队列
+     */
+    private void requeueExpired() {
+        ZSetOperations<String, String> zSetOps = stringRedisTemplate.opsForZSet();
+        long now = System.currentTimeMillis();
+        Set<String> expiredJobs = zSetOps.rangeByScore(RUNNING_KEY, 0, now);
+        if (expiredJobs == null) {
+            return;
+        }
+        for (String appId : expiredJobs) {
+            Long removed = zSetOps.remove(RUNNING_KEY, appId);
+            if (removed != null && removed > 0) {
+                zSetOps.addIfAbsent(QUEUE_KEY, appId, now);
+                screenshotMetricsCollector.recordJob("expired");
+                log.warn("截图任务租约到期，重新入队，appId:{}", appId);
+            }
+        }
+    }
+
+    /**
+     * 执行期间是否有新的提交（版本号已变化）
+     */
+    private boolean isSuperseded(String key, String version) {
+        Object currentVersion = stringRedisTemplate.opsForHash().get(key, FIELD_VERSION);
+        return !StrUtil.equals(version, currentVersion == null ? null : currentVersion.toString());
+    }
+
+    /**
+     * 更新任务字段并刷新更新时间
+     */
+    private void updateJob(String key, Map<String, String> fields) {
+        Map<String, String> updateFields = new HashMap<>(fields);
+        updateFields.put(FIELD_UPDATE_TIME, String.valueOf(System.currentTimeMillis()));
+        stringRedisTemplate.opsForHash().putAll(key, updateFields);
+    }
+
+    private LocalDateTime toLocalDateTime(String epochMillis) {
+        if (StrUtil.isBlank(epochMillis)) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(epochMillis)), ZoneId.systemDefault());
+    }
+
+    private String buildJobKey(Long appId) {
+        return JOB_KEY_PREFIX + appId;
+    }
+}
@@ -0,0 +1,228 @@
+package com.ruhuo.xuaizerobackend.manager;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.ruhuo.xuaizerobackend.config.StaticResourceConfig;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 静态资源预压缩
+ * 部署时为可压缩的文本资源生成 .gz 和 .br 压缩版本，放在原文件旁边，
+ * 预览接口（以及部署目录前的 Nginx gzip_static / brotli_static）按 Accept-Encoding 直接发送压缩版本，
+ * 每次部署只压缩一次，请求时不再消耗 CPU。
+ * <p>
+ * 1. gzip 使用 JDK 自带的 GZIPOutputStream，默认以最高级别压缩
+ * 2. Brotli 的 Java 编码器需要本地库，这里调用 brotli 命令，服务器没有安装时只生成 gzip 版本
+ * 3. 压缩版本先写入临时文件再重命名，正在发送的请求不会读到未写完的文件；压缩后没有变小的不保留
+ */
+@Slf4j
+@Component
+public class StaticAssetCompressor {
+
+    public static final String GZIP_SUFFIX = ".gz";
+    public static final String BROTLI_SUFFIX = ".br";
+
+    // 值得压缩的文件类型，图片、字体等已经压缩过的格式不再处理
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of(
+            "html", "htm", "css", "js", "mjs", "json", "map", "svg", "txt", "xml", "wasm", "ico", "ttf"
+    );
+
+    // 单个文件 brotli 压缩的超时时间（秒）
+    private static final int BROTLI_TIMEOUT_SECONDS = 60;
+
+    @Resource
+    private StaticResourceConfig staticResourceConfig;
+
+    // brotli 命令是否可用，null 表示还没有检查
+    private volatile Boolean brotliAvailable;
+
+    /**
+     * 判断文件是否属于可压缩的类型
+     *
+     * @param fileName 文件名
+     * @return 可压缩返回true
+     */
+    public static boolean isCompressible(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex >= 0 && COMPRESSIBLE_EXTENSIONS.contains(fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 为目录下所有可压缩的文件生成压缩版本，已有且比原文件新的压缩版本不再重复生成
+     * 压缩失败只记录日志，不影响部署
+     *
+     * @param dir 目录
+     */
+    public void compressDirectory(File dir) {
+        if (dir == null || !dir.isDirectory()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        boolean brotli = staticResourceConfig.isBrotliEnabled() && isBrotliAvailable();
+        AtomicInteger compressedCount = new AtomicInteger();
+        try {
+            Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) {
+                    //依赖目录不会被访问
+                    return "node_modules".equals(path.getFileName().toString())
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                    String fileName = path.getFileName().toString();
+                    if (!isCompressible(fileName) || attrs.size() < staticResourceConfig.getCompressMinBytes()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    File source = path.toFile();
+                    boolean compressed = compressGzip(source, attrs.size());
+                    if (brotli) {
+                        compressed |= compressBrotli(source, attrs.size());
+                    }
+                    if (compressed) {
+                        compressedCount.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("预压缩静态资源失败:{}，error:{}", dir, e.getMessage());
+            return;
+        }
+        log.info("预压缩静态资源完成:{}，文件数:{}，brotli:{}，耗时:{}ms",
+                dir, compressedCount.get(), brotli, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 生成 gzip 版本
+     *
+     * @return 生成了新的压缩版本返回true
+     */
+    private boolean compressGzip(File source, long sourceLength) {
+        File target = new File(source.getPath() + GZIP_SUFFIX);
+        if (isUpToDate(source, target)) {
+            return false;
+        }
+        File tempFile = tempFileFor(target);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(source));
+             OutputStream out = new LeveledGzipOutputStream(new FileOutputStream(tempFile), staticResourceConfig.getGzipLevel())) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            FileUtil.del(tempFile);
+            log.warn("gzip 压缩失败:{}，error:{}", source, e.getMessage());
+            return false;
+        }
+        return commit(tempFile, target, sourceLength);
+    }
+
+    /**
+     * 调用 brotli 命令生成 br 版本
+     *
+     * @return 生成了新的压缩版本返回true
+     */
+    private boolean compressBrotli(File source, long sourceLength) {
+        File target = new File(source.getPath() + BROTLI_SUFFIX);
+        if (isUpToDate(source, target)) {
+            return false;
+        }
+        File tempFile = tempFileFor(target);
+        try {
+            Process process = new ProcessBuilder(staticResourceConfig.getBrotliCommand(),
+                    "-q", String.valueOf(staticResourceConfig.getBrotliQuality()),
+                    "-f", "-o", tempFile.getAbsolutePath(), source.getAbsolutePath())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(BROTLI_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                log.warn("brotli 压缩超时:{}", source);
+            } else if (process.exitValue() == 0) {
+                return commit(tempFile, target, sourceLength);
+            } else {
+                log.warn("brotli 压缩失败:{}，退出码:{}", source, process.exitValue());
+            }
+        } catch (IOException e) {
+            log.warn("brotli 压缩失败:{}，error:{}", source, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        FileUtil.del(tempFile);
+        return false;
+    }
+
+    /**
+     * 压缩后变小才保留：重命名为正式文件，否则删除
+     */
+    private boolean commit(File tempFile, File target, long sourceLength) {
+        if (tempFile.length() >= sourceLength) {
+            FileUtil.del(tempFile);
+            FileUtil.del(target);
+            return false;
+        }
+        try {
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            FileUtil.del(tempFile);
+            log.warn("保存压缩文件失败:{}，error:{}", target, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 压缩版本是否存在且不比原文件旧
+     */
+    private boolean isUpToDate(File source, File target) {
+        return target.isFile() && target.lastModified() >= source.lastModified();
+    }
+
+    private File tempFileFor(File target) {
+        return new File(target.getParentFile(), "." + target.getName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+    }
+
+    /**
+     * 检查 brotli 命令是否可用，只检查一次
+     */
+    private boolean isBrotliAvailable() {
+        if (brotliAvailable == null) {
+            boolean available;
+            try {
+                Process process = new ProcessBuilder(staticResourceConfig.getBrotliCommand(), "--version")
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                available = process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+            } catch (Exception e) {
+                available = false;
+            }
+            if (!available) {
+                log.warn("brotli 命令不可用，只生成 gzip 压缩版本");
+            }
+            brotliAvailable = available;
+        }
+        return brotliAvailable;
+    }
+
+    /**
+     * 可以指定压缩级别的 GZIPOutputStream
+     */
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(new BufferedOutputStream(out), 64 * 1024);
+            def.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.ruhuo.xuaizerobackend.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ruhuo.xuaizerobackend.config.StaticResourceConfig;
+import com.ruhuo.xuaizerobackend.constant.AppConstant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * 预览静态文件索引
+ * 按 deployKey 缓存项目中文件的元信息（路径、大小、修改时间、ETag、Content-Type），
+ * 请求静态资源时不必每次都创建 File、判断文件是否存在并推断文件类型。
+ * <p>
+ * 生成代码期间文件会不断变化，所以文件信息超过复查间隔后会重新读取一次文件属性，
+ * 大小和修改时间不变时沿用原来的信息，变化时重新计算。
+ * <p>
+ * 部署时由 {@link StaticAssetCompressor} 生成的 .gz / .br 文件作为压缩版本一并记录，
+ * 压缩版本比原文件旧（原文件部署后又被修改）时不使用。
+ */
+@Slf4j
+@Component
+public class StaticFileIndexManager {
+
+    // 预览文件根目录
+    private static final Path PREVIEW_ROOT = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR).toAbsolutePath().normalize();
+
+    // Vite 构建产物的文件名格式：构建输出目录 dist/assets 下的 [name]-[hash].[ext]，hash 固定为 8 位，内容变化时文件名随之变化
+    // 只认构建输出目录，源码中的 src/assets 等文件会在预览期间被改写，不能长期缓存
+    private static final Pattern HASHED_ASSET_PATTERN = Pattern.compile("^/dist/assets/[^/]+-[A-Za-z0-9_-]{8}\\.[A-Za-z0-9]+$");
+
+    // 常见文件的 Content-Type，其余的交给 Spring 按扩展名推断
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=UTF-8"),
+            Map.entry("htm", "text/html; charset=UTF-8"),
+            Map.entry("css", "text/css; charset=UTF-8"),
+            Map.entry("js", "application/javascript; charset=UTF-8"),
+            Map.entry("mjs", "application/javascript; charset=UTF-8"),
+            Map.entry("json", "application/json; charset=UTF-8"),
+            Map.entry("map", "application/json; charset=UTF-8"),
+            Map.entry("txt", "text/plain; charset=UTF-8"),
+            Map.entry("xml", "application/xml; charset=UTF-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"),
+            Map.entry("ttf", "font/ttf"),
+            Map.entry("wasm", "application/wasm")
+    );
+
+    @Resource
+    private StaticResourceConfig staticResourceConfig;
+
+    // deployKey -> (相对路径 -> 文件信息)
+    private Cache<String, ConcurrentMap<String, StaticFileMeta>> indexCache;
+
+    /**
+     * 静态文件信息
+     */
+    @Getter
+    public static class StaticFileMeta {
+
+        private final File file;
+        private final long length;
+        private final long lastModified;
+        private final String etag;
+        private final String contentType;
+        // 是否为带内容哈希的构建产物，可以让浏览器长期缓存
+        private final boolean immutable;
+        // 预压缩版本，不存在时为null
+        private final CompressedVariant gzip;
+        private final CompressedVariant brotli;
+
+        // 最近一次读取文件属性的时间
+        private volatile long checkedAt;
+
+        private StaticFileMeta(File file, long length, long lastModified, String etag, String contentType,
+                               boolean immutable, CompressedVariant gzip, CompressedVariant brotli, long checkedAt) {
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.immutable = immutable;
+            this.gzip = gzip;
+            this.brotli = brotli;
+            this.checkedAt = checkedAt;
+        }
+
+        /**
+         * 是否有预压缩版本
+         *
+         * @return 有 gzip 或 br 版本时返回true
+         */
+        public boolean hasCompressedVariant() {
+            return gzip != null || brotli != null;
+        }
+    }
+
+    /**
+     * 预压缩版本
+     *
+     * @param file         压缩文件
+     * @param length       压缩文件大小
+     * @param lastModified 压缩文件修改时间
+     * @param encoding     Content-Encoding 的值
+     * @param etag         压缩版本的 ETag，与原文件区分
+     */
+    public record CompressedVariant(File file, long length, long lastModified, String encoding, String etag) {
+    }
+
+    /**
+     * 按配置创建索引缓存
+     */
+    @PostConstruct
+    public void init() {
+        indexCache = Caffeine.newBuilder()
+                .maximumSize(staticResourceConfig.getIndexMaximumSize())
+                .expireAfterAccess(Duration.ofMinutes(staticResourceConfig.getIndexIdleMinutes()))
+                .build();
+    }
+
+    /**
+     * 查找静态文件
+     *
+     * @param deployKey    项目目录名
+     * @param resourcePath 项目内的相对路径，以 / 开头
+     * @return 文件信息，文件不存在、不是普通文件或路径越出项目目录时返回null
+     */
+    public StaticFileMeta lookup(String deployKey, String resourcePath) {
+        ConcurrentMap<String, StaticFileMeta> index = indexCache.get(deployKey, k -> new ConcurrentHashMap<>());
+        StaticFileMeta meta = index.get(resourcePath);
+        long now = System.currentTimeMillis();
+        if (meta != null && now - meta.getCheckedAt() < staticResourceConfig.getRevalidateMillis()) {
+            return meta;
+        }
+        StaticFileMeta fresh = load(deployKey, resourcePath, meta, now);
+        if (fresh == null) {
+            index.remove(resourcePath);
+        } else if (fresh != meta) {
+            index.put(resourcePath, fresh);
+        }
+        return fresh;
+    }
+
+    /**
+     * 读取文件属性，与原有信息一致时只刷新复查时间
+     */
+    private StaticFileMeta load(String deployKey, String resourcePath, StaticFileMeta previous, long now) {
+        Path projectRoot = PREVIEW_ROOT.resolve(deployKey).normalize();
+        Path path = projectRoot.resolve(resourcePath.substring(1)).normalize();
+        //防止 ../ 访问项目目录之外的文件
+        if (!projectRoot.startsWith(PREVIEW_ROOT) || projectRoot.equals(PREVIEW_ROOT) || !path.startsWith(projectRoot)) {
+            return null;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("读取静态文件属性失败:{}，error:{}", path, e.getMessage());
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String tag = Long.toHexString(lastModified) + "-" + Long.toHexString(length);
+        CompressedVariant gzip = null;
+        CompressedVariant brotli = null;
+        if (StaticAssetCompressor.isCompressible(path.getFileName().toString())) {
+            gzip = loadVariant(path, StaticAssetCompressor.GZIP_SUFFIX, "gzip", tag, lastModified);
+            brotli = loadVariant(path, StaticAssetCompressor.BROTLI_SUFFIX, "br", tag, lastModified);
+        }
+        if (previous != null && previous.getLength() == length && previous.getLastModified() == lastModified
+                && Objects.equals(previous.getGzip(), gzip) && Objects.equals(previous.getBrotli(), brotli)) {
+            previous.checkedAt = now;
+            return previous;
+        }
+        boolean immutable = HASHED_ASSET_PATTERN.matcher(resourcePath).matches();
+        return new StaticFileMeta(path.toFile(), length, lastModified, "\"" + tag + "\"",
+                resolveContentType(path.getFileName().toString()), immutable, gzip, brotli, now);
+    }
+
+    /**
+     * 读取预压缩版本的文件属性
+     *
+     * @param path           原文件
+     * @param suffix         压缩文件后缀
+     * @param encoding       Content-Encoding 的值
+     * @param tag            原文件的 ETag（不带引号）
+     * @param sourceModified 原文件修改时间
+     * @return 压缩版本，不存在或比原文件旧时返回null
+     */
+    private CompressedVariant loadVariant(Path path, String suffix, String encoding, String tag, long sourceModified) {
+        Path variantPath = path.resolveSibling(path.getFileName() + suffix);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(variantPath, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (!attributes.isRegularFile() || lastModified < sourceModified) {
+                return null;
+            }
+            return new CompressedVariant(variantPath.toFile(), attributes.size(), lastModified,
+                    encoding, "\"" + tag + "-" + encoding + "\"");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据文件名推断 Content-Type，文本类型带上字符集
+     */
+    private String resolveContentType(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex >= 0) {
+            String contentType = CONTENT_TYPES.get(fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT));
+            if (contentType != null) {
+                return contentType;
+            }
+        }
+        return MediaTypeFactory.getMediaType(fileName)
+                .map(MediaType::toString)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+}
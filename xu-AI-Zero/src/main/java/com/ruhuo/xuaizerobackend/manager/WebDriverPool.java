@@ -0,0 +1,255 @@
+package com.ruhuo.xuaizerobackend.manager;
+
+import com.ruhuo.xuaizerobackend.config.ScreenshotConfig;
+import com.ruhuo.xuaizerobackend.exception.BusinessException;
+import com.ruhuo.xuaizerobackend.exception.ErrorCode;
+import com.ruhuo.xuaizerobackend.monitor.ScreenshotMetricsCollector;
+import io.github.bonigarcia.wdm.WebDriverManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 截图浏览器会话池
+ * 维护有限个无头 Chrome 会话，每次截图借用一个会话，用完归还，不同的截图互不干扰。
+ * <p>
+ * 1. 限流：会话数达到上限时借用方排队等待，超过等待时间后放弃
+ * 2. 懒创建：会话在第一次需要时才创建，空闲会话优先复用最近归还的
+ * 3. 回收：会话截图的页面数达到上限，或截图过程中出错（崩溃、页面卡死等）后关闭，下次借用时重建
+ */
+@Slf4j
+@Component
+public class WebDriverPool {
+
+    // 归还会话时打开的空白页，释放上一个页面占用的内存，同时检查会话是否仍然可用
+    private static final String BLANK_PAGE = "about:blank";
+
+    @Resource
+    private ScreenshotConfig screenshotConfig;
+
+    @Resource
+    private ScreenshotMetricsCollector screenshotMetricsCollector;
+
+    // 会话名额，借用时获取，归还时释放
+    private Semaphore permits;
+
+    // 空闲的会话，后进先出
+    private final BlockingDeque<PooledWebDriver> idleDrivers = new LinkedBlockingDeque<>();
+
+    // 正在使用的会话数
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final AtomicInteger driverIndex = new AtomicInteger();
+
+    // 是否已经下载匹配的 ChromeDriver
+    private volatile boolean driverReady;
+
+    private volatile boolean closed;
+
+    /**
+     * 池中的浏览器会话
+     */
+    public static class PooledWebDriver {
+
+        @Getter
+        private final String name;
+
+        @Getter
+        private final WebDriver driver;
+
+        // 已截图的页面数
+        @Getter
+        private int pageCount;
+
+        // 会话是否已损坏，损坏的会话归还时直接关闭
+        private boolean broken;
+
+        private PooledWebDriver(String name, WebDriver driver) {
+            this.name = name;
+            this.driver = driver;
+        }
+
+        /**
+         * 记录一次页面访问
+         */
+        public void markPageVisited() {
+            pageCount++;
+        }
+
+        /**
+         * 标记会话已损坏（页面卡死、浏览器崩溃等）
+         */
+        public void markBroken() {
+            broken = true;
+        }
+    }
+
+    /**
+     * 初始化会话名额并注册监控指标
+     */
+    @PostConstruct
+    public void init() {
+        int poolSize = Math.max(1, screenshotConfig.getPoolSize());
+        permits = new Semaphore(poolSize, true);
+        screenshotMetricsCollector.registerPoolGauges(activeCount::get, idleDrivers::size, () -> poolSize);
+    }
+
+    /**
+     * 关闭所有空闲会话，正在使用的会话归还时关闭
+     */
+    @PreDestroy
+    public void destroy() {
+        closed = true;
+        PooledWebDriver pooledDriver;
+        while ((pooledDriver = idleDrivers.poll()) != null) {
+            quit(pooledDriver);
+        }
+    }
+
+    /**
+     * 借用一个浏览器会话，使用完毕后必须调用 {@link #release(PooledWebDriver)} 归还
+     *
+     * @return 浏览器会话
+     * @throws BusinessException 等待超时或创建会话失败
+     */
+    public PooledWebDriver borrow() {
+        if (closed) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "截图浏览器已关闭");
+        }
+        long startTime = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(screenshotConfig.getBorrowTimeoutSeconds(), TimeUnit.SECONDS)) {
+                screenshotMetricsCollector.recordBorrow("timeout", Duration.ofNanos(System.nanoTime() - startTime));
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "截图浏览器繁忙，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "等待截图浏览器被中断");
+        }
+        try {
+            PooledWebDriver pooledDriver = idleDrivers.pollFirst();
+            if (pooledDriver == null) {
+                pooledDriver = createDriver();
+            }
+            activeCount.incrementAndGet();
+            screenshotMetricsCollector.recordBorrow("success", Duration.ofNanos(System.nanoTime() - startTime));
+            return pooledDriver;
+        } catch (RuntimeException e) {
+            permits.release();
+            screenshotMetricsCollector.recordBorrow("error", Duration.ofNanos(System.nanoTime() - startTime));
+            throw e;
+        }
+    }
+
+    /**
+     * 归还浏览器会话，已损坏或达到页面数上限的会话直接关闭
+     *
+     * @param pooledDriver 浏览器会话
+     */
+    public void release(PooledWebDriver pooledDriver) {
+        try {
+            if (closed) {
+                quit(pooledDriver);
+                return;
+            }
+            if (pooledDriver.broken) {
+                log.warn("截图浏览器会话已损坏，关闭:{}", pooledDriver.getName());
+                screenshotMetricsCollector.recordRecycle("broken");
+                quit(pooledDriver);
+                return;
+            }
+            if (pooledDriver.getPageCount() >= screenshotConfig.getMaxPagesPerSession()) {
+                log.info("截图浏览器会话已访问{}个页面，关闭:{}", pooledDriver.getPageCount(), pooledDriver.getName());
+                screenshotMetricsCollector.recordRecycle("max_pages");
+                quit(pooledDriver);
+                return;
+            }
+            try {
+                pooledDriver.getDriver().get(BLANK_PAGE);
+                idleDrivers.offerFirst(pooledDriver);
+            } catch (Exception e) {
+                log.warn("截图浏览器会话无法复用，关闭:{}，error:{}", pooledDriver.getName(), e.getMessage());
+                screenshotMetricsCollector.recordRecycle("broken");
+                quit(pooledDriver);
+            }
+        } finally {
+            activeCount.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    /**
+     * 创建一个无头 Chrome 会话
+     *
+     * @return 浏览器会话
+     */
+    private PooledWebDriver createDriver() {
+        try {
+            setupDriverBinary();
+            //配置 Chrome 选项
+            ChromeOptions options = new ChromeOptions();
+            //无头模式
+            options.addArguments("--headless");
+            //禁用 GPU （在某些环境下避免问题）
+            options.addArguments("--disable-gpu");
+            //禁用 沙盒模式（Docker环境需要）
+            options.addArguments("--disable-dev-shm-usage");
+            //设置窗口大小
+            options.addArguments(String.format("--window-size=%d,%d", screenshotConfig.getWindowWidth(), screenshotConfig.getWindowHeight()));
+            //禁用扩展
+            options.addArguments("--disable-extensions");
+            //设置用户代理
+            options.addArguments("--user-agent=Mozilla/5.0(Windows NT 10.0; Win64; x64) AppleWebKit/537.36(KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
+
+            //创建驱动
+            WebDriver driver = new ChromeDriver(options);
+            //设置页面加载超时
+            driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(screenshotConfig.getPageLoadTimeoutSeconds()));
+            //设置异步/同步脚本超时时间
+            driver.manage().timeouts().scriptTimeout(Duration.ofSeconds(30));
+
+            String name = "screenshot-browser-" + driverIndex.incrementAndGet();
+            log.info("创建截图浏览器会话:{}", name);
+            return new PooledWebDriver(name, driver);
+        } catch (Exception e) {
+            log.error("初始化 Chrome 浏览器失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "初始化 Chrome 浏览器失败");
+        }
+    }
+
+    /**
+     * 自动管理ChromeDriver版本，只需要执行一次
+     */
+    private synchronized void setupDriverBinary() {
+        if (!driverReady) {
+            WebDriverManager.chromedriver().setup();
+            driverReady = true;
+        }
+    }
+
+    /**
+     * 关闭浏览器会话
+     *
+     * @param pooledDriver 浏览器会话
+     */
+    private void quit(PooledWebDriver pooledDriver) {
+        try {
+            pooledDriver.getDriver().quit();
+        } catch (Exception e) {
+            log.warn("关闭截图浏览器会话失败:{}，error:{}", pooledDriver.getName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ruhuo.xuaizerobackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 截图任务状态枚举
+ * 应用部署后生成封面截图的任务状态，前端可以据此展示封面是否已经生成
+ */
+@Getter
+public enum ScreenshotJobStatusEnum {
+
+    PENDING("等待截图", "pending"),       // 已进入截图队列，等待空闲的截图线程
+    RUNNING("正在截图", "running"),       // 正在打开页面截图并上传
+    RETRYING("截图失败，等待重试", "retrying"), // 本次截图失败，到达退避时间后重新执行
+    SUCCESS("截图成功", "success"),       // 截图已上传，应用封面已更新
+    FAILED("截图失败", "failed");         // 重试次数用完仍然失败
+
+    private final String text;  // 给用户看的中文描述
+    private final String value; // 给程序使用的标识
+
+    ScreenshotJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据值获取对应的枚举类型
+     *
+     * @param value 枚举的值
+     * @return 匹配的枚举类型，如果不匹配则返回null
+     */
+    public static ScreenshotJobStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (ScreenshotJobStatusEnum anEnum : ScreenshotJobStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ruhuo.xuaizerobackend.model.enums;
+
+import lombok.Getter;
+
+/**
+ * Vue 项目构建路径枚举
+ * 记录一次构建实际走了哪条路径，便于排查和展示
+ */
+@Getter
+public enum VueBuildModeEnum {
+
+    FULL("完整构建", "full"),                                      // 执行 npm install 和 npm run build
+    CACHED_DEPENDENCIES("命中共享依赖缓存，仅执行构建", "cached_dependencies"), // 依赖从共享缓存链接，只执行 npm run build
+    SKIP_INSTALL("依赖未变化，跳过依赖安装", "skip_install"),          // 依赖声明与上次成功构建一致，只执行 npm run build
+    UP_TO_DATE("源码未变化，复用上次构建产物", "up_to_date");            // 源码与上次成功构建一致，直接复用 dist
+
+    private final String text;  // 给用户看的中文描述
+    private final String value; // 给程序使用的标识
+
+    VueBuildModeEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ruhuo.xuaizerobackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * Vue 项目构建状态枚举
+ * 描述一次构建任务从入队到结束的各个阶段，会以流式消息的形式推送给前端
+ */
+@Getter
+public enum VueBuildStatusEnum {
+
+    QUEUED("构建任务已排队", "queued"),           // 已进入构建队列，等待空闲的构建线程
+    SUPERSEDED("构建任务已被新请求合并", "superseded"), // 同一应用有更新的构建请求，本次排队任务被合并
+    BUILDING("正在构建项目", "building"),          // 正在执行 npm install / npm run build
+    SUCCESS("项目构建成功", "success"),            // 构建完成，dist 目录已生成
+    FAILED("项目构建失败", "failed");              // 构建失败（命令失败、超时或队列已满）
+
+    private final String text;  // 给用户看的中文描述
+    private final String value; // 给程序使用的标识
+
+    VueBuildStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据值获取对应的枚举类型
+     *
+     * @param value 枚举的值
+     * @return 匹配的枚举类型，如果不匹配则返回null
+     */
+    public static VueBuildStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (VueBuildStatusEnum anEnum : VueBuildStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否为终态（构建已结束，不会再有后续状态）
+     *
+     * @return 终态返回true
+     */
+    public boolean isFinished() {
+        return this == SUCCESS || this == FAILED;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ruhuo.xuaizerobackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 截图任务视图对象
+ * 应用封面截图任务的当前状态
+ */
+@Data
+public class ScreenshotJobVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long appId;  // 应用ID
+
+    private String status;  // 任务状态：pending / running / retrying / success / failed
+
+    private Integer attempts;  // 已执行的次数
+
+    private Integer maxAttempts;  // 最多执行的次数
+
+    private String cover;  // 截图成功后的封面地址
+
+    private String errorMsg;  // 最近一次失败的原因
+
+    private LocalDateTime nextRunTime;  // 等待重试时下一次执行的时间
+
+    private LocalDateTime updateTime;  // 状态最近一次变化的时间
+}
@@ -0,0 +1,103 @@
+package com.ruhuo.xuaizerobackend.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 图片收集指标收集器
+ * 按提供方记录排队等待时间、实际调用耗时、各结果的任务数、收集节点的结束方式以及结果缓存的命中情况
+ */
+@Component
+@Slf4j
+public class ImageCollectMetricsCollector {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    //缓存已创建的指标，避免重复创建
+    private final ConcurrentMap<String, Counter> taskCountersCache = new ConcurrentHashMap<>(); // 缓存任务结果计数器
+    private final ConcurrentMap<String, Timer> durationTimersCache = new ConcurrentHashMap<>(); // 缓存耗时计时器
+    private final ConcurrentMap<String, Counter> fanOutCountersCache = new ConcurrentHashMap<>(); // 缓存节点结束方式计数器
+    private final ConcurrentMap<String, Counter> cacheCountersCache = new ConcurrentHashMap<>(); // 缓存结果缓存命中计数器
+
+    /**
+     * 记录任务结果（成功、失败、超时、拒绝）
+     *
+     * @param provider 提供方
+     * @param status   任务结果
+     */
+    public void recordTask(String provider, String status) {
+        String key = String.format("%s_%s", provider, status);
+        Counter counter = taskCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("image_collect_tasks_total")
+                        .description("图片收集任务数")
+                        .tag("provider", provider)
+                        .tag("status", status)
+                        .register(meterRegistry)
+        );
+        counter.increment();
+    }
+
+    /**
+     * 记录任务耗时
+     *
+     * @param provider 提供方
+     * @param phase    耗时阶段：wait 为等待并发名额的时间，call 为实际调用时间
+     * @param duration 耗时
+     */
+    public void recordDuration(String provider, String phase, Duration duration) {
+        String key = String.format("%s_%s", provider, phase);
+        Timer timer = durationTimersCache.computeIfAbsent(key, k ->
+                Timer.builder("image_collect_duration_seconds")
+                        .description("图片收集耗时")
+                        .tag("provider", provider)
+                        .tag("phase", phase)
+                        .register(meterRegistry)
+        );
+        timer.record(duration);
+    }
+
+    /**
+     * 记录收集节点的结束方式
+     *
+     * @param provider 提供方
+     * @param outcome  结束方式：complete 为全部完成，enough 为收集够提前结束，deadline 为到达截止时间，interrupted 为被中断
+     */
+    public void recordFanOut(String provider, String outcome) {
+        String key = String.format("%s_%s", provider, outcome);
+        Counter counter = fanOutCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("image_collect_node_total")
+                        .description("图片收集节点执行次数")
+                        .tag("provider", provider)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry)
+        );
+        counter.increment();
+    }
+
+    /**
+     * 记录结果缓存的查询情况
+     *
+     * @param provider 提供方
+     * @param result   查询情况：local/redis 为对应级别命中，negative 为命中空结果，shared 为共用其他线程的结果，miss 为未命中
+     */
+    public void recordCache(String provider, String result) {
+        String key = String.format("%s_%s", provider, result);
+        Counter counter = cacheCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("image_collect_cache_total")
+                        .description("图片收集结果缓存查询次数")
+                        .tag("provider", provider)
+                        .tag("result", result)
+                        .register(meterRegistry)
+        );
+        counter.increment();
+    }
+}
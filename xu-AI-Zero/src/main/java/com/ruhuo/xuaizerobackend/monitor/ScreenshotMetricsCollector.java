@@ -0,0 +1,106 @@
+package com.ruhuo.xuaizerobackend.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 网页截图指标收集器
+ * 记录浏览器会话池的使用情况、等待会话的时间、会话回收次数以及截图任务的执行结果
+ */
+@Component
+@Slf4j
+public class ScreenshotMetricsCollector {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    //缓存已创建的指标，避免重复创建
+    private final ConcurrentMap<String, Counter> borrowCountersCache = new ConcurrentHashMap<>(); // 缓存借用结果计数器
+    private final ConcurrentMap<String, Counter> recycleCountersCache = new ConcurrentHashMap<>(); // 缓存会话回收计数器
+    private final ConcurrentMap<String, Counter> jobCountersCache = new ConcurrentHashMap<>(); // 缓存截图任务计数器
+
+    // 等待浏览器会话的耗时
+    private Timer borrowWaitTimer;
+
+    /**
+     * 注册浏览器会话池相关的实时指标
+     *
+     * @param activeSupplier 正在使用的会话数
+     * @param idleSupplier   空闲的会话数
+     * @param maxSupplier    会话数上限
+     */
+    public void registerPoolGauges(Supplier<Number> activeSupplier, Supplier<Number> idleSupplier, Supplier<Number> maxSupplier) {
+        Gauge.builder("screenshot_browser_sessions_active", activeSupplier)
+                .description("正在使用的截图浏览器会话数")
+                .register(meterRegistry);
+        Gauge.builder("screenshot_browser_sessions_idle", idleSupplier)
+                .description("空闲的截图浏览器会话数")
+                .register(meterRegistry);
+        Gauge.builder("screenshot_browser_sessions_max", maxSupplier)
+                .description("截图浏览器会话数上限")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录借用浏览器会话的结果和等待时间
+     *
+     * @param result   借用结果：success 为成功，timeout 为等待超时，error 为创建会话失败
+     * @param waitTime 等待时间
+     */
+    public void recordBorrow(String result, Duration waitTime) {
+        Counter counter = borrowCountersCache.computeIfAbsent(result, k ->
+                Counter.builder("screenshot_browser_borrow_total")
+                        .description("借用截图浏览器会话次数")
+                        .tag("result", result)
+                        .register(meterRegistry)
+        );
+        counter.increment();
+        if (borrowWaitTimer == null) {
+            borrowWaitTimer = Timer.builder("screenshot_browser_borrow_wait_seconds")
+                    .description("等待截图浏览器会话的时间")
+                    .register(meterRegistry);
+        }
+        borrowWaitTimer.record(waitTime);
+    }
+
+    /**
+     * 记录浏览器会话被关闭重建的原因
+     *
+     * @param reason 回收原因：max_pages 为达到页面数上限，broken 为会话已损坏
+     */
+    public void recordRecycle(String reason) {
+        Counter counter = recycleCountersCache.computeIfAbsent(reason, k ->
+                Counter.builder("screenshot_browser_recycle_total")
+                        .description("截图浏览器会话回收次数")
+                        .tag("reason", reason)
+                        .register(meterRegistry)
+        );
+        counter.increment();
+    }
+
+    /**
+     * 记录截图任务的状态变化
+     *
+     * @param event 事件：submitted 为提交，coalesced 为与排队中的任务合并，success 为成功，
+     *              retry 为失败后等待重试，failed 为重试用完，expired 为租约到期重新入队
+     */
+    public void recordJob(String event) {
+        Counter counter = jobCountersCache.computeIfAbsent(event, k ->
+                Counter.builder("screenshot_jobs_total")
+                        .description("截图任务数")
+                        .tag("event", event)
+                        .register(meterRegistry)
+        );
+        counter.increment();
+    }
+}
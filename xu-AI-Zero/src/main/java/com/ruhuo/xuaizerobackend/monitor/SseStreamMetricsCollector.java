@@ -0,0 +1,82 @@
+package com.ruhuo.xuaizerobackend.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 代码生成 SSE 输出指标收集器
+ * 按合并策略（coalesced / immediate）统计每次响应的帧数、每帧的字节数和每帧合并的片段数，
+ * 用于观察合并窗口的效果；同时统计生成记录的开始、断线重连和结束情况
+ */
+@Component
+@Slf4j
+public class SseStreamMetricsCollector {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    //缓存已创建的指标，避免重复创建
+    private final ConcurrentMap<String, DistributionSummary> framesPerResponseCache = new ConcurrentHashMap<>(); // 每次响应的帧数
+    private final ConcurrentMap<String, DistributionSummary> frameBytesCache = new ConcurrentHashMap<>(); // 每帧的字节数
+    private final ConcurrentMap<String, DistributionSummary> chunksPerFrameCache = new ConcurrentHashMap<>(); // 每帧的片段数
+    private final ConcurrentMap<String, Counter> runCountersCache = new ConcurrentHashMap<>(); // 生成记录事件计数器
+
+    /**
+     * 记录发送的一帧内容
+     *
+     * @param mode   合并策略
+     * @param bytes  帧的字节数
+     * @param chunks 帧中合并的片段数
+     */
+    public void recordFrame(String mode, int bytes, int chunks) {
+        frameBytesCache.computeIfAbsent(mode, k ->
+                DistributionSummary.builder("sse_frame_bytes")
+                        .description("代码生成 SSE 每帧的字节数")
+                        .baseUnit("bytes")
+                        .tag("mode", mode)
+                        .register(meterRegistry)
+        ).record(bytes);
+        chunksPerFrameCache.computeIfAbsent(mode, k ->
+                DistributionSummary.builder("sse_frame_chunks")
+                        .description("代码生成 SSE 每帧合并的片段数")
+                        .tag("mode", mode)
+                        .register(meterRegistry)
+        ).record(chunks);
+    }
+
+    /**
+     * 记录一次响应结束时发送的内容帧数
+     *
+     * @param mode   合并策略
+     * @param frames 内容帧数（不含结束和错误事件）
+     */
+    public void recordResponse(String mode, int frames) {
+        framesPerResponseCache.computeIfAbsent(mode, k ->
+                DistributionSummary.builder("sse_frames_per_response")
+                        .description("代码生成 SSE 每次响应的帧数")
+                        .tag("mode", mode)
+                        .register(meterRegistry)
+        ).record(frames);
+    }
+
+    /**
+     * 记录生成记录的事件
+     *
+     * @param event 事件：started、resumed（断线重连）、completed、failed、abandoned（客户端断开后中止）、cancelled
+     */
+    public void recordRun(String event) {
+        runCountersCache.computeIfAbsent(event, k ->
+                Counter.builder("sse_runs_total")
+                        .description("代码生成记录的事件次数")
+                        .tag("event", event)
+                        .register(meterRegistry)
+        ).increment();
+    }
+}
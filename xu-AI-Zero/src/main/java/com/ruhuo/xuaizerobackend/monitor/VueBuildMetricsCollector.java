@@ -0,0 +1,95 @@
+package com.ruhuo.xuaizerobackend.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Vue 项目构建指标收集器
+ * 记录构建队列深度、正在执行的构建数、构建耗时以及各状态的任务数
+ */
+@Component
+@Slf4j
+public class VueBuildMetricsCollector {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    //缓存已创建的指标，避免重复创建
+    private final ConcurrentMap<String, Counter> taskCountersCache = new ConcurrentHashMap<>(); // 缓存任务状态计数器
+    private final ConcurrentMap<String, Timer> durationTimersCache = new ConcurrentHashMap<>(); // 缓存构建耗时计时器
+    private final ConcurrentMap<String, Counter> modeCountersCache = new ConcurrentHashMap<>(); // 缓存构建路径计数器
+
+    /**
+     * 注册构建队列相关的实时指标
+     *
+     * @param queueDepthSupplier   队列中等待的任务数
+     * @param runningCountSupplier 正在执行的构建数
+     */
+    public void registerQueueGauges(Supplier<Number> queueDepthSupplier, Supplier<Number> runningCountSupplier) {
+        Gauge.builder("vue_build_queue_depth", queueDepthSupplier)
+                .description("Vue项目构建队列中等待的任务数")
+                .register(meterRegistry);
+        Gauge.builder("vue_build_running", runningCountSupplier)
+                .description("正在执行的Vue项目构建数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录构建任务状态（排队、合并、成功、失败等）
+     *
+     * @param status 构建状态
+     */
+    public void recordTask(String status) {
+        Counter counter = taskCountersCache.computeIfAbsent(status, k ->
+                Counter.builder("vue_build_tasks_total")
+                        .description("Vue项目构建任务数")
+                        .tag("status", status)
+                        .register(meterRegistry)
+        );
+        counter.increment();
+    }
+
+    /**
+     * 记录成功构建实际走的路径（完整构建、跳过安装、直接复用等）
+     *
+     * @param mode 构建路径
+     */
+    public void recordMode(String mode) {
+        Counter counter = modeCountersCache.computeIfAbsent(mode, k ->
+                Counter.builder("vue_build_mode_total")
+                        .description("Vue项目构建路径次数")
+                        .tag("mode", mode)
+                        .register(meterRegistry)
+        );
+        counter.increment();
+    }
+
+    /**
+     * 记录构建耗时
+     *
+     * @param status   构建结果
+     * @param phase    耗时阶段：wait 为排队等待时间，build 为实际构建时间
+     * @param duration 耗时
+     */
+    public void recordDuration(String status, String phase, Duration duration) {
+        String key = String.format("%s_%s", status, phase);
+        Timer timer = durationTimersCache.computeIfAbsent(key, k ->
+                Timer.builder("vue_build_duration_seconds")
+                        .description("Vue项目构建耗时")
+                        .tag("status", status)
+                        .tag("phase", phase)
+                        .register(meterRegistry)
+        );
+        timer.record(duration);
+    }
+}
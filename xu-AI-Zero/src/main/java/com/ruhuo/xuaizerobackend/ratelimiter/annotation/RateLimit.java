@@ -48,4 +48,11 @@ public @interface RateLimit {
      * 默认值为"请求过于频繁，请稍后再试"
      */
     String message() default "请求过于频繁，请稍后再试";
+
+    /**
+     * 免于限流的请求头
+     * 请求带有该请求头（且不为空）时不做限流检查，用于不会产生新开销的请求，如断线重连
+     * 默认值为空，表示所有请求都要限流
+     */
+    String exemptHeader() default "";
 }
@@ -44,6 +44,10 @@ public class RateLimitAspect {
      */
     @Before("@annotation(rateLimit)")
     public void doBefore(JoinPoint point, RateLimit rateLimit){
+        //带有免限流请求头的请求不占用配额
+        if (isExempt(rateLimit)) {
+            return;
+        }
         // 根据方法和注解信息生成限流key
         String key = generateRateLimitKey(point,rateLimit);
 
@@ -59,6 +63,23 @@ public class RateLimitAspect {
         }
     }
 
+    /**
+     * 判断当前请求是否带有免限流的请求头
+     * @param rateLimit 限流注解，包含限流配置信息
+     * @return 带有且不为空时返回true
+     */
+    private boolean isExempt(RateLimit rateLimit){
+        if (rateLimit.exemptHeader().isEmpty()) {
+            return false;
+        }
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        String value = attributes.getRequest().getHeader(rateLimit.exemptHeader());
+        return value != null && !value.isBlank();
+    }
+
     /**
      * 生成限流key
      * @param point 连接点，可以获取方法信息
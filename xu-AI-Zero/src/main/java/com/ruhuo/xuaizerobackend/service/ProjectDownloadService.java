@@ -1,5 +1,6 @@
 package com.ruhuo.xuaizerobackend.service;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 public interface ProjectDownloadService {
@@ -8,10 +9,12 @@ public interface ProjectDownloadService {
      * 下载项目为压缩包
      * 该方法用于将指定路径的项目文件打包成ZIP格式，并提供下载功能。
      * 通过HTTP响应将生成的压缩包直接发送给客户端，实现项目文件的下载。
+     * 压缩包按项目内容缓存，支持 ETag 协商缓存和 Range 断点续传。
      *
      * @param projectPath     项目的完整路径，指定需要打包下载的项目文件所在目录
      * @param downloadFileName 下载时显示的文件名，客户端下载后看到的文件名将使用此名称
+     * @param request         HTTP请求对象，用于读取 If-None-Match、Range 等请求头
      * @param response        HTTP响应对象，用于将生成的ZIP文件流返回给客户端
      */
-    void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletResponse response);
+    void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletRequest request, HttpServletResponse response);
 }
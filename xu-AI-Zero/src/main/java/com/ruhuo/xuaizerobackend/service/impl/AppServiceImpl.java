@@ -11,14 +11,18 @@ import com.ruhuo.xuaizerobackend.ai.AiCodeGenTypeRoutingService;
 import com.ruhuo.xuaizerobackend.ai.AiCodeGenTypeRoutingServiceFactory;
 import com.ruhuo.xuaizerobackend.ai.AiAppNameGeneratorService;
 import com.ruhuo.xuaizerobackend.ai.AiAppNameGeneratorServiceFactory;
+import com.ruhuo.xuaizerobackend.ai.model.message.StreamMessage;
 import com.ruhuo.xuaizerobackend.constant.AppConstant;
 import com.ruhuo.xuaizerobackend.core.AiCodeGeneratorFacade;
-import com.ruhuo.xuaizerobackend.core.builder.VueProjectBuilder;
+import com.ruhuo.xuaizerobackend.config.VueProjectBuildConfig;
+import com.ruhuo.xuaizerobackend.core.builder.VueProjectBuildScheduler;
 import com.ruhuo.xuaizerobackend.core.handler.StreamHandlerExecutor;
 import com.ruhuo.xuaizerobackend.exception.BusinessException;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
 import com.ruhuo.xuaizerobackend.exception.ThrowUtils;
 import com.ruhuo.xuaizerobackend.mapper.AppMapper;
+import com.ruhuo.xuaizerobackend.manager.ScreenshotJobManager;
+import com.ruhuo.xuaizerobackend.manager.StaticAssetCompressor;
 import com.ruhuo.xuaizerobackend.model.dto.app.AppAddRequest;
 import com.ruhuo.xuaizerobackend.model.dto.app.AppQueryRequest;
 import com.ruhuo.xuaizerobackend.model.entity.App;
@@ -31,7 +35,6 @@ import com.ruhuo.xuaizerobackend.monitor.MonitorContext;
 import com.ruhuo.xuaizerobackend.monitor.MonitorContextHolder;
 import com.ruhuo.xuaizerobackend.service.AppService;
 import com.ruhuo.xuaizerobackend.service.ChatHistoryService;
-import com.ruhuo.xuaizerobackend.service.ScreenshotService;
 import com.ruhuo.xuaizerobackend.service.UserService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -45,6 +48,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -82,16 +88,28 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     private StreamHandlerExecutor streamHandlerExecutor;
 
     /**
-     * 注入VueProjectBuilder服务，用于构建Vue项目
+     * 注入VueProjectBuildScheduler服务，用于调度Vue项目构建
      */
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueProjectBuildScheduler vueProjectBuildScheduler;
 
     /**
-     * 注入ScreenshotService服务，用于处理截图相关的业务逻辑
+     * 注入VueProjectBuildConfig配置，用于获取部署时等待构建的超时时间
      */
     @Resource
-    private ScreenshotService screenshotService;
+    private VueProjectBuildConfig vueProjectBuildConfig;
+
+    /**
+     * 注入StaticAssetCompressor，用于部署时预压缩静态资源
+     */
+    @Resource
+    private StaticAssetCompressor staticAssetCompressor;
+
+    /**
+     * 注入ScreenshotJobManager，用于提交应用封面截图任务
+     */
+    @Resource
+    private ScreenshotJobManager screenshotJobManager;
 
     /**
      * 注入AiCodeGenTypeRoutingService服务，用于AI代码生成类型的路由服务
@@ -256,7 +274,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
 
         //7.调用AI生成代码（流式）
         // 使用AI代码生成器生成代码流
-        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
+        Flux<StreamMessage> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
 
         //8.收集AI响应内容并在完成后记录到对话记录
         // 使用流处理执行器处理代码流，并在完成后记录对话历史
@@ -329,8 +347,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         // 如果是Vue项目，需要进行特殊处理
         if (codeGenTypeEnum == codeGenTypeEnum.VUE_PROJECT) {
             //Vue项目需要构建
-            // 执行Vue项目的构建，并获取构建结果
-            boolean buildSuccess = vueProjectBuilder.buildProject(sourceDirPath);
+            // 通过构建调度器执行Vue项目的构建（与生成流程共用队列，同一应用排队中的构建会被合并），并等待构建结果
+            boolean buildSuccess = waitForVueBuild(appId, sourceDirPath);
             // 如果构建失败，则抛出系统错误异常
             ThrowUtils.throwIf(!buildSuccess, ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败，请检查代码和依赖");
 
@@ -347,7 +365,10 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             log.info("Vue 项目构建成功，将部署 dist 目录:{}", distDir.getAbsolutePath());
         }
 
-        //8.复制文件到部署目录
+        //8.预压缩静态资源，预览和部署目录都可以直接发送 .br / .gz 版本
+        staticAssetCompressor.compressDirectory(sourceDir);
+
+        //9.复制文件到部署目录
         // 构建部署目录的完整路径
         String deployDirPath = AppConstant.CODE_DEPLOY_ROOT_DIR + File.separator + deployKey;
         try {
@@ -358,7 +379,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
         }
 
-        //9.更新应用的deployKey和部署时间
+        //10.更新应用的deployKey和部署时间
         // 创建应用更新对象
         App updateApp = new App();
         // 设置应用ID
@@ -373,41 +394,47 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         // 如果更新失败，则抛出操作失败异常
         ThrowUtils.throwIf(!updateResult, ErrorCode.OPERATION_ERROR, "更新应用部署信息失败");
 
-        //10.得到可访问的URL地址
+        //11.得到可访问的URL地址
         String appDeployUrl = String.format("%s/%s/", AppConstant.CODE_DEPLOY_HOST, deployKey);
 
-        //11.异步生成截图并更新应用封面
+        //12.异步生成截图并更新应用封面
         generateAppScreenshotAysnc(appId, appDeployUrl);
         // 返回应用部署URL
         return appDeployUrl;
     }
 
     /**
-     * 异步生成应用截图并更新封面
-     * 该方法使用虚拟线程异步执行截图生成和封面更新操作
+     * 提交Vue项目构建任务并等待构建结果
+     *
+     * @param appId       应用ID
+     * @param projectPath 项目路径
+     * @return 构建成功返回true，失败或超时返回false
+     */
+    private boolean waitForVueBuild(Long appId, String projectPath) {
+        try {
+            return vueProjectBuildScheduler.submit(appId, projectPath, null)
+                    .get(vueProjectBuildConfig.getDeployWaitSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.error("等待 Vue 项目构建超时，appId:{}", appId);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            log.error("Vue 项目构建异常，appId:{}，error:{}", appId, e.getMessage());
+            return false;
+        }
+    }
 
- *
+    /**
+     * 异步生成应用截图并更新封面
+     * 提交到截图任务队列，由固定数量的截图线程执行，同一应用重复部署时合并为一个任务
+     *
      * @param appId  应用ID，用于标识需要更新的应用
      * @param appUrl 应用访问URL，用于生成截图
      */
     public void generateAppScreenshotAysnc(Long appId, String appUrl) {
-        //使用虚拟线程异步执行截图生成和更新操作，避免阻塞主线程
-        Thread.startVirtualThread(() -> {
-            //调用截图服务生成截图并上传到云存储，返回截图URL
-            String screenshotUrl = screenshotService.generateAndUploadScreenshot(appUrl);
-
-            //更新应用封面字段
-            // 创建一个新的App对象用于更新
-            App updateApp = new App();
-            // 设置要更新的应用ID
-            updateApp.setId(appId);
-            // 设置新的封面图片URL
-            updateApp.setCover(screenshotUrl);
-            // 执行更新操作，获取更新结果
-            boolean updated = this.updateById(updateApp);
-            // 检查更新是否成功，如果失败则抛出异常
-            ThrowUtils.throwIf(!updated, ErrorCode.OPERATION_ERROR, "更新应用封面字段失败");
-        });
+        screenshotJobManager.submit(appId, appUrl);
     }
 
     @Override
@@ -8,6 +8,8 @@ import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.ruhuo.xuaizerobackend.constant.UserConstant;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
 import com.ruhuo.xuaizerobackend.exception.ThrowUtils;
+import com.ruhuo.xuaizerobackend.manager.ChatHistoryWriteBuffer;
+import com.ruhuo.xuaizerobackend.manager.ChatMemoryVersionManager;
 import com.ruhuo.xuaizerobackend.model.dto.chathistory.ChatHistoryQueryRequest;
 import com.ruhuo.xuaizerobackend.model.entity.App;
 import com.ruhuo.xuaizerobackend.model.entity.ChatHistory;
@@ -42,9 +44,15 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     @Lazy
     private AppService appService; // 应用服务，用于权限验证等操作
 
+    @Resource
+    private ChatHistoryWriteBuffer chatHistoryWriteBuffer; // 对话历史异步批量写入缓冲区
+
+    @Resource
+    private ChatMemoryVersionManager chatMemoryVersionManager; // 对话记忆版本，用于判断 Redis 中的记忆是否最新
+
     /**
      * 将一条聊天消息（无论是用户发的还是 AI 回复的）保存到数据库中
-     * 该方法会进行参数校验，然后构建ChatHistory对象并保存
+     * 该方法会进行参数校验，然后构建ChatHistory对象交给写入缓冲区异步批量保存
      *
      * @param appId       应用id
      * @param message     消息内容
@@ -81,8 +89,11 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                 .messageType(messageType)  // 设置消息类型
                 .userId(userId)    // 设置用户ID
                 .build();          // 构建ChatHistory对象
-        // 保存聊天历史记录并返回保存结果
-        return this.save(chatHistory);
+        // 交给写入缓冲区异步批量保存，不在请求线程上等待数据库
+        boolean result = chatHistoryWriteBuffer.add(chatHistory);
+        // 记录对话历史进度；AI 回复写入时，对话记忆已经包含本轮的用户消息和 AI 回复
+        chatMemoryVersionManager.recordMessage(appId, chatHistory.getId(), messageTypeEnum == ChatHistoryMessageTypeEnum.AI);
+        return result;
     }
 
     /**
@@ -96,9 +107,13 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     public boolean deleteByAppId(Long appId) {
         // 参数校验：检查appId是否为空或小于等于0，如果是则抛出参数异常
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID不能为空");
+        // 先写入缓冲区中的消息，避免删除后又被写入
+        chatHistoryWriteBuffer.flush();
         // 创建查询条件构造器，设置查询条件为appId等于传入的appId值
         QueryWrapper queryWrapper = QueryWrapper.create()
                 .eq("appId", appId);
+        // 对话历史删除后记忆版本随之失效
+        chatMemoryVersionManager.clear(appId);
         // 执行删除操作并返回删除结果
         return this.remove(queryWrapper);
     }
@@ -191,6 +206,9 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         // 如果用户既不是管理员也不是应用创建者，则抛出无权限异常
         ThrowUtils.throwIf(!isAdmin && !isCreator, ErrorCode.NO_AUTH_ERROR, "无权查看该应用的对话历史");
 
+        //先写入缓冲区中的消息，保证能查到刚发送的对话
+        chatHistoryWriteBuffer.flush();
+
         //构建查询条件，设置应用ID和最后创建时间
         ChatHistoryQueryRequest queryRequest = new ChatHistoryQueryRequest();
         queryRequest.setAppId(appId);
@@ -205,15 +223,47 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     /**
      * 查询最近记录 -> 剔除当前消息 -> 时间正序排列 -> 格式转换 -> 填入记忆
      * 该方法用于加载指定应用ID的历史聊天记录到内存中，并按时间顺序组织这些消息
+     * <p>
+     * 对话记忆本身持久化在 Redis 中，这里先根据对话记忆版本判断是否需要访问数据库：
+     * 1. Redis 中的记忆已包含本轮用户消息之前的全部对话：直接复用，不查询数据库
+     * 2. 记忆存在但落后了几条：只查询并追加缺少的部分
+     * 3. 记忆不存在或没有版本信息：从数据库加载最近的对话，重建记忆
+     *
      * @param appId       应用ID，用于标识特定的应用实例
      * @param chatMemory  聊天内存窗口对象，用于存储加载的历史消息
      * @param maxCount   最多加载多少条
-     * @return
+     * @return 本次从数据库加载的条数
      */
 
     @Override
     public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount) {
         try {
+            //先写入缓冲区中的消息，保证最新的用户消息已经落库，下面跳过第1条才是正确的
+            chatHistoryWriteBuffer.flush();
+
+            ChatMemoryVersionManager.ChatMemoryVersion version = chatMemoryVersionManager.getVersion(appId);
+            Long memoryId = version.getMemory();
+            if (memoryId != null && !chatMemory.messages().isEmpty()) {
+                //本轮用户消息之前没有新的对话，Redis 中的记忆就是最新的
+                Long previousId = version.getPrevious();
+                if (previousId == null || previousId <= memoryId) {
+                    log.info("appId:{} 的对话记忆已是最新，跳过加载历史对话", appId);
+                    return 0;
+                }
+                //只追加记忆中缺少的部分（不包含本轮的用户消息）
+                //缺少的条数超过上限时只取最新的部分，先降序查询再反转，与完整加载一致
+                QueryWrapper tailQueryWrapper = QueryWrapper.create()
+                        .eq(ChatHistory::getAppId, appId)
+                        .gt(ChatHistory::getId, memoryId)
+                        .le(ChatHistory::getId, previousId)
+                        .orderBy(ChatHistory::getId, false)
+                        .limit(maxCount);
+                int appendedCount = addToMemory(this.list(tailQueryWrapper).reversed(), chatMemory);
+                chatMemoryVersionManager.markMemorySynced(appId, previousId);
+                log.info("成功为 appId:{}追加了{}条历史对话", appId, appendedCount);
+                return appendedCount;
+            }
+
             //直接构造查询条件，起始点为1而不是0，用于排除最新的用户消息
             QueryWrapper queryWrapper = QueryWrapper.create()
                     .eq(ChatHistory::getAppId, appId)  // 设置应用ID查询条件
@@ -227,23 +277,13 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
             //反转列表，确保按时间正序（老的在前，新的在后）
             historyList = historyList.reversed();
 
-            //按时间顺序添加到记忆中
-            int loadedCount = 0;  // 记录成功加载的消息数量
-
             //先清理历史缓存，防止重复加载
             chatMemory.clear();
 
-            // 遍历历史记录列表，将每条消息添加到聊天记忆中
-            for (ChatHistory history : historyList) {
-                // 判断消息类型为用户消息
-                if (ChatHistoryMessageTypeEnum.USER.getValue().equals(history.getMessageType())) {
-                    chatMemory.add(UserMessage.from(history.getMessage()));  // 添加用户消息到记忆
-                    loadedCount++;  // 增加加载计数
-                } else if (ChatHistoryMessageTypeEnum.AI.getValue().equals(history.getMessageType())) { // 判断消息类型是否为AI消息
-                    chatMemory.add(AiMessage.from(history.getMessage())); // 将AI消息添加到聊天记忆中
-                    loadedCount++; // 成功加载计数器加1
-                }
-            }
+            //按时间顺序添加到记忆中
+            int loadedCount = addToMemory(historyList, chatMemory);
+            //记录记忆已包含的最后一条对话历史，后续创建 AI 服务时可以直接复用
+            chatMemoryVersionManager.markMemorySynced(appId, historyList.getLast().getId());
             log.info("成功为 appId:{}加载了{}条历史对话", appId, loadedCount); // 记录成功加载的历史对话数量
             return loadedCount; // 返回成功加载的历史对话总数
         } catch (Exception e) { // 捕获可能发生的异常
@@ -252,4 +292,27 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
             return 0;
         }
     }
+
+    /**
+     * 按顺序把对话历史添加到记忆中
+     *
+     * @param historyList 对话历史（时间正序）
+     * @param chatMemory  聊天内存窗口对象
+     * @return 成功添加的条数
+     */
+    private int addToMemory(List<ChatHistory> historyList, MessageWindowChatMemory chatMemory) {
+        int loadedCount = 0;  // 记录成功加载的消息数量
+        // 遍历历史记录列表，将每条消息添加到聊天记忆中
+        for (ChatHistory history : historyList) {
+            // 判断消息类型为用户消息
+            if (ChatHistoryMessageTypeEnum.USER.getValue().equals(history.getMessageType())) {
+                chatMemory.add(UserMessage.from(history.getMessage()));  // 添加用户消息到记忆
+                loadedCount++;  // 增加加载计数
+            } else if (ChatHistoryMessageTypeEnum.AI.getValue().equals(history.getMessageType())) { // 判断消息类型是否为AI消息
+                chatMemory.add(AiMessage.from(history.getMessage())); // 将AI消息添加到聊天记忆中
+                loadedCount++; // 成功加载计数器加1
+            }
+        }
+        return loadedCount;
+    }
 }
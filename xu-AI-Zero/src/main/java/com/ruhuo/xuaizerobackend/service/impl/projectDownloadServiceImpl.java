@@ -1,20 +1,34 @@
 package com.ruhuo.xuaizerobackend.service.impl;
 
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.ZipUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.ruhuo.xuaizerobackend.constant.AppConstant;
 import com.ruhuo.xuaizerobackend.exception.BusinessException;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
 import com.ruhuo.xuaizerobackend.exception.ThrowUtils;
 import com.ruhuo.xuaizerobackend.service.ProjectDownloadService;
+import com.ruhuo.xuaizerobackend.utils.FileTransferUtils;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.FileFilter;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 项目下载服务实现类
@@ -52,70 +66,212 @@ public class projectDownloadServiceImpl implements ProjectDownloadService {
             // 临时文件扩展名
             ".tmp",
             // 缓存文件扩展名
-            ".cache"
+            ".cache",
+            // 部署时生成的预压缩文件扩展名
+            ".gz",
+            ".br"
     );
 
 
-/**
- * 检查给定路径是否允许访问
- * @param projectRoot 项目根目录路径
- * @param fullPath 需要检查的完整路径
- * @return 如果路径允许访问返回true，否则返回false
- */
-    private boolean isPathAllowed(Path projectRoot,Path fullPath){
-        // 获取相对于项目根目录的相对路径
-        Path relativePath = projectRoot.relativize(fullPath);
+    /**
+     * 压缩包缓存目录，每个项目一个子目录，压缩包以内容指纹命名
+     */
+    private static final String ARCHIVE_CACHE_DIR = AppConstant.DOWNLOAD_ARCHIVE_CACHE_DIR;
 
-        //检查路径中的每一部分
-        for(Path part:relativePath){
-            String partName = part.toString();
+    /**
+     * 旧压缩包的保留时间，避免删除仍在发送中的文件
+     */
+    private static final long STALE_ARCHIVE_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
 
-            //检查是否在忽略名称列表中
-            if(IGNORED_NAMES.contains(partName)){
-                return false;
-            }
+    /**
+     * 正在生成的压缩包，键为压缩包路径，同一内容只打包一次
+     */
+    private final ConcurrentMap<String, CompletableFuture<File>> inFlight = new ConcurrentHashMap<>();
 
-            //检查文件扩展名是否在忽略的扩展名列表中
-            if(IGNORED_EXTENSIONS.stream().anyMatch(partName::endsWith)){
-                return false;
-            }
+    /**
+     * 检查文件或目录名称是否允许打包
+     * 目录在进入之前就会被检查，被忽略的目录不会再遍历其中的文件，所以只需要检查自身的名称
+     *
+     * @param name 文件或目录名称
+     * @return 允许打包返回true，否则返回false
+     */
+    private boolean isNameAllowed(String name) {
+        //检查是否在忽略名称列表中
+        if (IGNORED_NAMES.contains(name)) {
+            return false;
         }
-        // 如果所有检查都通过，返回true
-        return true;
+        //检查文件扩展名是否在忽略的扩展名列表中
+        int dotIndex = name.lastIndexOf('.');
+        return dotIndex < 0 || !IGNORED_EXTENSIONS.contains(name.substring(dotIndex));
     }
 
     /**
      * 将项目目录打包为zip文件并提供下载
+     * 压缩包按内容指纹缓存，内容不变时直接发送已有的压缩包，支持 ETag 协商缓存和 Range 断点续传
+     *
      * @param projectPath 项目路径
      * @param downloadFileName 下载的文件名（不含扩展名）
+     * @param request HTTP请求对象，用于读取条件请求和 Range 请求头
      * @param response HTTP响应对象，用于向客户端返回下载文件
      */
     @Override
-    public void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletResponse response) {
+    public void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletRequest request, HttpServletResponse response) {
         //基础校验：检查参数有效性
         ThrowUtils.throwIf(StrUtil.isBlank(projectPath), ErrorCode.PARAMS_ERROR,"项目路径不能为空"); // 检查项目路径是否为空
         ThrowUtils.throwIf(StrUtil.isBlank(downloadFileName),ErrorCode.PARAMS_ERROR,"下载文件名不能为空"); // 检查下载文件名是否为空
         File projectDir = new File(projectPath); // 创建项目文件对象
         ThrowUtils.throwIf(!projectDir.exists(),ErrorCode.NOT_FOUND_ERROR,"项目目录不存在"); // 检查项目目录是否存在
         ThrowUtils.throwIf(!projectDir.isDirectory(),ErrorCode.PARAMS_ERROR,"指定路径不是目录"); // 检查是否为目录
-        log.info("开始打包下载项目:{}->{}.zip",projectPath,downloadFileName); // 记录开始下载的日志
+
+        File archive;
+        String fingerprint;
+        try {
+            //计算内容指纹，生成代码写入、修改或删除文件后指纹随之变化，旧的压缩包自然失效
+            fingerprint = computeFingerprint(projectDir.toPath());
+            archive = getOrCreateArchive(projectDir, fingerprint);
+        } catch (Exception e) {
+            log.error("项目打包异常:{}", projectPath, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR,"项目打包下载失败");
+        }
+
+        //内容没有变化时返回304，客户端直接使用本地文件
+        String etag = "\"" + fingerprint + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (FileTransferUtils.isNotModified(request, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return;
+        }
 
         //设置HTTP响应头，告诉浏览器这是一个需要下载的zip文件
-        response.setStatus(HttpServletResponse.SC_OK); // 设置响应状态码为200
         response.setContentType("application/zip"); // 设置响应内容类型为zip
         response.addHeader("Content-Disposition",String.format("attachment;filename=\"%s.zip\"",downloadFileName)); // 设置下载文件名
+        try {
+            FileTransferUtils.transferFile(request, response, archive, etag);
+            log.info("项目下载完成:{}->{}.zip",projectPath,downloadFileName); // 记录下载完成的日志
+        } catch (IOException e) {
+            // 客户端中断下载时只记录日志，可以用 Range 续传
+            log.warn("项目下载中断:{}，error:{}", downloadFileName, e.getMessage());
+        }
+    }
 
-        //定义文件过滤器，只允许通过isPathAllowed检查的文件
-        FileFilter filter = file->isPathAllowed(projectDir.toPath(),file.toPath()); // 创建文件过滤器，只允许通过安全检查的文件
+    /**
+     * 计算项目内容指纹：遍历允许打包的文件和目录，按相对路径、大小和修改时间生成摘要
+     * 只读取文件属性，不读取文件内容
+     *
+     * @param projectRoot 项目根目录
+     * @return 内容指纹
+     * @throws IOException 遍历目录失败
+     */
+    private String computeFingerprint(Path projectRoot) throws IOException {
+        List<String> entries = new ArrayList<>();
+        Files.walkFileTree(projectRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(projectRoot)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (!isNameAllowed(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                entries.add(projectRoot.relativize(dir) + "/");
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (isNameAllowed(file.getFileName().toString())) {
+                    entries.add(projectRoot.relativize(file) + "|" + attrs.size() + "|" + attrs.lastModifiedTime().toMillis());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        //遍历顺序与文件系统有关，排序后指纹才稳定
+        Collections.sort(entries);
+        return DigestUtil.sha256Hex(String.join("\n", entries));
+    }
+
+    /**
+     * 获取与指纹对应的压缩包，不存在时打包生成
+     *
+     * @param projectDir  项目目录
+     * @param fingerprint 内容指纹
+     * @return 压缩包文件
+     */
+    private File getOrCreateArchive(File projectDir, String fingerprint) {
+        File cacheDir = new File(ARCHIVE_CACHE_DIR, projectDir.getName());
+        File archive = new File(cacheDir, fingerprint + ".zip");
+        if (archive.isFile()) {
+            return archive;
+        }
+        String archivePath = archive.getAbsolutePath();
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> existing = inFlight.putIfAbsent(archivePath, future);
+        if (existing != null) {
+            //同一内容已有请求在打包，等待它完成
+            return existing.join();
+        }
+        try {
+            //再次检查，避免刚完成的打包被重复执行
+            if (!archive.isFile()) {
+                createArchive(projectDir, cacheDir, archive);
+                cleanStaleArchives(cacheDir, archive);
+            }
+            future.complete(archive);
+            return archive;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(archivePath, future);
+        }
+    }
+
+    /**
+     * 打包项目目录，先写入临时文件再重命名，其他请求不会读到未写完的压缩包
+     *
+     * @param projectDir 项目目录
+     * @param cacheDir   压缩包缓存目录
+     * @param archive    压缩包文件
+     */
+    private void createArchive(File projectDir, File cacheDir, File archive) {
+        long startTime = System.currentTimeMillis();
+        FileUtil.mkdir(cacheDir);
+        File tempFile = new File(cacheDir, archive.getName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        //定义文件过滤器，只打包允许的文件和目录
+        FileFilter filter = file -> isNameAllowed(file.getName());
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+            //使用 Hutool 的ZipUtil 将过滤后的目录压缩到临时文件
+            ZipUtil.zip(outputStream, StandardCharsets.UTF_8, false, filter, projectDir);
+        } catch (IOException e) {
+            FileUtil.del(tempFile);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "项目打包失败：" + e.getMessage());
+        }
         try {
-            //使用 Hutool 的ZipUtil 直接将过滤后的目录压缩到响应输出流
-            ZipUtil.zip(response.getOutputStream(), StandardCharsets.UTF_8,false,filter,projectDir); // 使用ZipUtil压缩目录并输出到响应流
-            log.info("项目打包下载完成:{}",downloadFileName); // 记录下载完成的日志
-        }catch (Exception e){
-            // 捕获并处理异常
-            log.error("项目打包下载异常",e); // 记录异常日志
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR,"项目打包下载失败"); // 抛出业务异常
+            Files.move(tempFile.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            FileUtil.del(tempFile);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存项目压缩包失败：" + e.getMessage());
         }
+        log.info("项目打包完成:{}，大小:{}字节，耗时:{}ms", projectDir.getName(), archive.length(), System.currentTimeMillis() - startTime);
+    }
 
+    /**
+     * 删除项目的旧压缩包（内容已变化），保留最近生成的，避免删除仍在发送中的文件
+     *
+     * @param cacheDir 压缩包缓存目录
+     * @param current  当前的压缩包
+     */
+    private void cleanStaleArchives(File cacheDir, File current) {
+        File[] archives = cacheDir.listFiles((dir, name) -> name.endsWith(".zip") && !name.equals(current.getName()));
+        if (archives == null) {
+            return;
+        }
+        long expireTime = System.currentTimeMillis() - STALE_ARCHIVE_RETENTION_MILLIS;
+        for (File archive : archives) {
+            if (archive.lastModified() < expireTime) {
+                FileUtil.del(archive);
+            }
+        }
     }
 }
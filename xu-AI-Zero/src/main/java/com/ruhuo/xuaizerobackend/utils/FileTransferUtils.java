@@ -0,0 +1,242 @@
+package com.ruhuo.xuaizerobackend.utils;
+
+import cn.hutool.core.util.StrUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件响应工具类
+ * 处理条件请求（ETag / 304）和断点续传（Range / 206 / 416），并尽量以零拷贝的方式发送文件：
+ * 容器支持 sendfile 时（Tomcat NIO）交给容器直接从文件发送到 socket，否则使用 FileChannel.transferTo。
+ * <p>
+ * 只支持单个区间，多区间请求按整个文件返回（RFC 9110 允许忽略 Range）。
+ */
+public class FileTransferUtils {
+
+    // Tomcat 的 sendfile 请求属性
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    // 区间无效的标记
+    private static final long[] INVALID_RANGE = new long[0];
+
+    private FileTransferUtils() {
+    }
+
+    /**
+     * 根据 If-None-Match 判断客户端缓存是否仍然有效
+     *
+     * @param request HTTP请求
+     * @param etag    当前内容的 ETag（带引号）
+     * @return 客户端缓存有效返回true，此时应返回304
+     */
+    public static boolean isNotModified(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (StrUtil.isBlank(ifNoneMatch) || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag)) {
+                return true;
+            }
+            // If-None-Match 使用弱比较，忽略 W/ 前缀
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断客户端是否接受指定的内容编码（Accept-Encoding 中出现且 q 值大于0）
+     *
+     * @param request  HTTP请求
+     * @param encoding 内容编码，如 gzip、br
+     * @return 接受返回true
+     */
+    public static boolean acceptsEncoding(HttpServletRequest request, String encoding) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (StrUtil.isBlank(acceptEncoding)) {
+            return false;
+        }
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(encoding)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 判断客户端缓存是否仍然有效，优先使用 If-None-Match，没有时使用 If-Modified-Since
+     *
+     * @param request      HTTP请求
+     * @param etag         当前内容的 ETag（带引号）
+     * @param lastModified 内容的修改时间（毫秒）
+     * @return 客户端缓存有效返回true，此时应返回304
+     */
+    public static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            return isNotModified(request, etag);
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            // HTTP 日期只精确到秒
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 发送文件，按请求头返回完整内容（200）、部分内容（206）或区间无效（416）
+     * 调用前应设置好 Content-Type、Content-Disposition、Cache-Control 等与内容相关的响应头
+     *
+     * @param request  HTTP请求
+     * @param response HTTP响应
+     * @param file     要发送的文件，发送期间不能被修改
+     * @param etag     文件内容的 ETag（带引号），用于 If-Range 判断
+     * @throws IOException 写出失败（通常是客户端断开）
+     */
+    public static void transferFile(HttpServletRequest request, HttpServletResponse response,
+                                    File file, String etag) throws IOException {
+        long fileLength = file.length();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+
+        long start = 0;
+        long end = fileLength - 1;
+        long[] range = resolveRange(request, fileLength, etag);
+        if (range == INVALID_RANGE) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength);
+            return;
+        }
+        if (range != null) {
+            start = range[0];
+            end = range[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", start, end, fileLength));
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        long contentLength = end - start + 1;
+        response.setContentLengthLong(contentLength);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || contentLength <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            //交给容器在请求处理结束后直接从文件发送到 socket
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = contentLength;
+            while (remaining > 0) {
+                long transferred = fileChannel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * 解析 Range 请求头
+     *
+     * @param request    HTTP请求
+     * @param fileLength 文件长度
+     * @param etag       当前内容的 ETag
+     * @return 区间 [start, end]（包含 end）；需要返回完整内容时返回null；区间无法满足时返回 {@link #INVALID_RANGE}
+     */
+    private static long[] resolveRange(HttpServletRequest request, long fileLength, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (StrUtil.isBlank(rangeHeader) || !rangeHeader.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+        //If-Range 与当前内容不一致时，客户端手里的部分内容已经过期，返回完整内容
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (StrUtil.isNotBlank(ifRange) && !ifRange.trim().equals(etag)) {
+            return null;
+        }
+        String rangeSpec = rangeHeader.substring(BYTES_UNIT.length()).trim();
+        if (rangeSpec.contains(",")) {
+            return null;
+        }
+        int dashIndex = rangeSpec.indexOf('-');
+        if (dashIndex < 0) {
+            return null;
+        }
+        try {
+            String startPart = rangeSpec.substring(0, dashIndex).trim();
+            String endPart = rangeSpec.substring(dashIndex + 1).trim();
+            long start;
+            long end;
+            if (startPart.isEmpty()) {
+                //bytes=-N 表示最后 N 个字节
+                long suffixLength = Long.parseLong(endPart);
+                if (suffixLength <= 0) {
+                    return INVALID_RANGE;
+                }
+                start = Math.max(0, fileLength - suffixLength);
+                end = fileLength - 1;
+            } else {
+                start = Long.parseLong(startPart);
+                end = fileLength - 1;
+                if (!endPart.isEmpty()) {
+                    long lastPos = Long.parseLong(endPart);
+                    if (lastPos < start) {
+                        //结束位置在起始位置之前属于无效的区间，按规范忽略 Range 返回完整内容
+                        return null;
+                    }
+                    end = Math.min(lastPos, end);
+                }
+            }
+            //起始位置超出文件长度时区间无法满足
+            if (start >= fileLength) {
+                return INVALID_RANGE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            //格式错误的 Range 直接忽略
+            return null;
+        }
+    }
+}
@@ -1,186 +1,179 @@
 package com.ruhuo.xuaizerobackend.utils;
 
-import cn.hutool.core.img.ImgUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
+import com.ruhuo.xuaizerobackend.config.ScreenshotConfig;
 import com.ruhuo.xuaizerobackend.exception.BusinessException;
 import com.ruhuo.xuaizerobackend.exception.ErrorCode;
-import io.github.bonigarcia.wdm.WebDriverManager;
-import jakarta.annotation.PreDestroy;
+import com.ruhuo.xuaizerobackend.manager.WebDriverPool;
 import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptException;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.time.Duration;
 import java.util.UUID;
 
 /**
  * 网页截图工具类，提供网页截图、图片压缩等功能
- * 使用Chrome的无头模式进行网页截图
+ * 使用Chrome的无头模式进行网页截图，浏览器会话由 {@link WebDriverPool} 统一管理
  */
 @Slf4j
 public class WebScreenshotUtils {
-    // WebDriver实例，用于控制浏览器
-    private static final WebDriver webDriver;
-
-    // 静态代码块，初始化Chrome浏览器驱动
-    static {
-        // 设置默认窗口大小
-        final int DEFAULT_WIDTH = 1600;
-        final int DEFAULT_HEIGHT = 900;
-        // 初始化Chrome驱动
-        webDriver = initChromeDriver(DEFAULT_WIDTH, DEFAULT_HEIGHT);
-    }
-
     /**
-     * 销毁方法，在Spring容器销毁时调用
-     * 用于关闭浏览器驱动，释放资源
-     */
-    @PreDestroy
-    public void destroy() {
-        webDriver.quit();
-    }
-
-    /**
-     * 初始化Chrome浏览器驱动
+     * 在内存中把截图编码为 JPEG
+     * 截图按配置的最大宽度等比缩小，透明背景填充为白色，编码结果直接写入字节数组，不经过临时文件
      *
-     * @param width  窗口宽度
-     * @param height 窗口高度
-     * @return 配置好的WebDriver实例
+     * @param screenshotBytes 截图的PNG数据
+     * @param quality         JPEG 压缩质量（0-1）
+     * @param maxWidth        最大宽度，0 表示不缩放
+     * @return JPEG 数据
      */
-    private static WebDriver initChromeDriver(int width, int height) {
+    private static byte[] encodeJpeg(byte[] screenshotBytes, float quality, int maxWidth) {
         try {
-            //自动管理ChromeDriver版本
-            WebDriverManager.chromedriver().setup();
-
-            //配置 Chrome 选项
-            ChromeOptions options = new ChromeOptions();
-
-            //无头模式
-            options.addArguments("--headless");
-
-            //禁用 GPU （在某些环境下避免问题）
-            options.addArguments("--disable-gpu");
-
-            //禁用 沙盒模式（Docker环境需要）
-            options.addArguments("--disable-dev-shm-usage");
-
-            //设置窗口大小
-            options.addArguments(String.format("--window-size=%d,%d", width, height));
-
-            //禁用扩展
-            options.addArguments("--disable-extensions");
-
-            //设置用户代理
-            options.addArguments("--user-agent=Mozilla/5.0(Windows NT 10.0; Win64; x64) AppleWebKit/537.36(KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-
-            //创建驱动
-            WebDriver driver = new ChromeDriver(options);
-
-            //设置页面加载超时
-            driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(60));
-
-            //设置隐式等待
-            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
-
-            //设置异步/同步脚本超时时间
-            driver.manage().timeouts().scriptTimeout(Duration.ofSeconds(30));
-
-            return driver;
-        } catch (Exception e) {
-            log.error("初始化 Chrome 浏览器失败", e);
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "初始化 Chrome 浏览器失败");
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(screenshotBytes));
+            if (source == null) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "无法解析截图数据");
+            }
+            int width = source.getWidth();
+            int height = source.getHeight();
+            if (maxWidth > 0 && width > maxWidth) {
+                height = Math.max(1, Math.round(height * (float) maxWidth / width));
+                width = maxWidth;
+            }
+
+            //JPEG 不支持透明通道，绘制到 RGB 画布上，同时完成缩放
+            BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = target.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(source, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.min(1f, Math.max(0.05f, quality)));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(screenshotBytes.length / 4);
+            try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+                writer.setOutput(imageOutputStream);
+                writer.write(null, new IIOImage(target, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            log.error("压缩图片失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "压缩图片失败");
         }
     }
 
     /**
-     * 该方法用于将字节数组形式的图片数据保存到指定路径
-     * 如果保存过程中出现异常，会记录错误日志并抛出业务异常
-     *
-     * @param imageBytes 图片数据的字节数组
-     * @param imagePath  图片保存的目标路径
+     * 判断页面是否可以截图的脚本，以下条件全部满足时返回true：
+     * 1. document.readyState 为 complete
+     * 2. 字体加载完成
+     * 3. 首屏内的图片加载完成（首屏外懒加载的图片不影响截图）
+     * 4. 网络空闲：最近一个资源加载完成后已经过了 arguments[0] 毫秒
+     * 5. 页面如果定义了 window.__SCREENSHOT_READY__，需要它为真（由页面自己通知就绪）
      */
-    private static void saveImage(byte[] imageBytes, String imagePath) {
-        try {
-            // 使用FileUtil工具类将字节数组写入指定路径
-            FileUtil.writeBytes(imageBytes, imagePath);
-        } catch (Exception e) {
-            // 记录错误日志，包含图片路径和异常信息
-            log.error("保存图片失败:{}", imagePath, e);
-            // 抛出业务异常，提示保存图片失败
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存图片失败");
-        }
-    }
+    private static final String PAGE_READY_SCRIPT = """
+            if (document.readyState !== 'complete') return false;
+            if (document.fonts && document.fonts.status !== 'loaded') return false;
+            if (window.__SCREENSHOT_READY__ !== undefined && !window.__SCREENSHOT_READY__) return false;
+            const viewportHeight = window.innerHeight || document.documentElement.clientHeight;
+            for (const img of document.images) {
+                if (!img.complete && img.getBoundingClientRect().top < viewportHeight) return false;
+            }
+            let lastResponseEnd = 0;
+            for (const entry of performance.getEntriesByType('resource')) {
+                lastResponseEnd = Math.max(lastResponseEnd, entry.responseEnd);
+            }
+            return performance.now() - lastResponseEnd >= arguments[0];
+            """;
 
     /**
-     * 压缩图片方法
-     * 该方法用于将指定路径的图片进行压缩处理，并保存到目标路径
+     * 等待页面就绪
+     * 按固定间隔检查页面状态，页面就绪后立即截图，不再固定等待；超过最长等待时间后也直接截图
      *
-     * @param originalImagePath   原始图片的完整路径，表示需要被压缩的图片文件位置
-     * @param compressedImagePath 压缩后图片的保存路径，表示压缩后的图片将要存放的位置
+     * @param driver WebDriver实例，用于控制浏览器操作
      */
-    private static void compressImage(String originalImagePath, String compressedImagePath) {
-        //压缩图片质量（0.1 = 10% 质量）
-        // 设置压缩质量为30%，这是一个折中的值，既能有效减小文件大小，又能保持较好的图片质量
-        final float COMPRESSION_QUALITY = 0.3f;
-
+    private static void waitForPageLoad(WebDriver driver) {
+        ScreenshotConfig screenshotConfig = SpringContextUtil.getBean(ScreenshotConfig.class);
+        long startTime = System.currentTimeMillis();
         try {
-            // 使用ImgUtil工具类进行图片压缩
-            // 参数说明：
-            // 1. FileUtil.file(originalImagePath) - 将原始图片路径转换为File对象
-            // 2. FileUtil.file(compressedImagePath) - 将目标路径转换为File对象
-            // 3. COMPRESSION_QUALITY - 设置压缩质量参数
-            ImgUtil.compress(
-                    FileUtil.file(originalImagePath),
-                    FileUtil.file(compressedImagePath),
-                    COMPRESSION_QUALITY
-            );
-        } catch (Exception e) {
-            // 记录压缩失败的错误日志，包含原始路径、目标路径和异常信息
-            log.error("压缩图片失败:{} -> {}", originalImagePath, compressedImagePath, e);
-            // 抛出业务异常，提示用户压缩操作失败
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "压缩图片失败");
+            //创建等待页面就绪对象，所有检查共用同一个截止时间
+            WebDriverWait wait = new WebDriverWait(driver,
+                    Duration.ofMillis(screenshotConfig.getReadyTimeoutMillis()),
+                    Duration.ofMillis(screenshotConfig.getReadyPollMillis()));
+            wait.ignoring(JavascriptException.class);
+
+            wait.until(webDriver -> Boolean.TRUE.equals(((JavascriptExecutor) webDriver)
+                    .executeScript(PAGE_READY_SCRIPT, screenshotConfig.getNetworkIdleMillis())));
+            log.info("页面加载完成，耗时{}ms", System.currentTimeMillis() - startTime);
+        } catch (TimeoutException e) {
+            log.warn("等待页面就绪超时({}ms)，继续执行截图", screenshotConfig.getReadyTimeoutMillis());
         }
     }
 
     /**
-     * 等待页面加载完成
-     * 该方法通过检查document.readyState状态和额外等待时间，确保页面完全加载
+     * 从浏览器会话池借用一个会话访问网页并截图，截图完成后归还会话
+     * 截图过程中出现异常的会话会被标记为损坏，归还时关闭，不会影响后续截图
      *
-     * @param driver WebDriver实例，用于控制浏览器操作
+     * @param webUrl 要截图的网页URL
+     * @return 截图的PNG数据
      */
-    private static void waitForPageLoad(WebDriver driver) {
+    private static byte[] captureScreenshot(String webUrl) {
+        WebDriverPool webDriverPool = SpringContextUtil.getBean(WebDriverPool.class);
+        WebDriverPool.PooledWebDriver pooledDriver = webDriverPool.borrow();
         try {
-            //创建等待页面加载对象，设置最长等待时间为10秒
-            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+            WebDriver webDriver = pooledDriver.getDriver();
+            pooledDriver.markPageVisited();
+
+            //访问网页
+            webDriver.get(webUrl);
 
-            //等待 document.readyState 为complete，表示页面已完全加载
-            wait.until(webDriver -> ((JavascriptExecutor) webDriver).executeScript("return document.readyState")
-                    .equals("complete")
-            );
+            //等待页面加载完成
+            waitForPageLoad(webDriver);
 
-            //额外等待一段时间，确保动态内容加载完成
-            Thread.sleep(2000);
-            log.info("页面加载完成");
+            return ((TakesScreenshot) webDriver).getScreenshotAs(OutputType.BYTES);
         } catch (Exception e) {
-            log.error("等待页面加载时出现异常，继续执行截图", e);
+            pooledDriver.markBroken();
+            throw e;
+        } finally {
+            webDriverPool.release(pooledDriver);
         }
     }
 
     /**
-     * 保存网页截图的方法
+     * 网页截图并压缩为 JPEG，全程在内存中完成
      *
      * @param webUrl 要截图的网页URL
-     * @return 返回压缩后的图片保存路径，如果失败则返回null
+     * @return 压缩后的JPEG数据，如果失败则返回null
      */
-    public static String saveWebPageScreenshot(String webUrl) {
+    public static byte[] captureWebPageImage(String webUrl) {
         // 检查URL是否为空
         if (StrUtil.isBlank(webUrl)) {
             log.error("网页URL不能为空");
@@ -188,44 +181,42 @@ public class WebScreenshotUtils {
         }
 
         try {
-            //创建临时目录，使用UUID前8位作为子目录名
-            String rootPath = System.getProperty("user.dir") + File.separator + "tmp" +
-                    File.separator + "screenshots" + File.separator +
-                    UUID.randomUUID().toString().substring(0, 8);
-
-            // 创建目录
-            FileUtil.mkdir(rootPath);
-
-            //图片后缀
-            final String IMAGE_SUFFIX = ".png";
-            //原始截图文件路径
-            String imageSavePath = rootPath + File.separator + RandomUtil.randomNumbers(5) + IMAGE_SUFFIX;
-
-            //访问网页
-            webDriver.get(webUrl);
-
-            //等待页面加载完成
-            waitForPageLoad(webDriver);
-
+            ScreenshotConfig screenshotConfig = SpringContextUtil.getBean(ScreenshotConfig.class);
             //截图
-            byte[] screenshotBytes = ((TakesScreenshot) webDriver).getScreenshotAs(OutputType.BYTES);
-
-            //保存原始图片
-            saveImage(screenshotBytes, imageSavePath);
-            log.info("原始截图保存成功:{}", imageSavePath);
-
+            byte[] screenshotBytes = captureScreenshot(webUrl);
             //压缩图片
-            final String COMPRESSION_SUFFIX = "_compressed.jpg";
-            String compressedImagePath = rootPath + File.separator + RandomUtil.randomNumbers(5) + COMPRESSION_SUFFIX;
+            byte[] imageBytes = encodeJpeg(screenshotBytes, screenshotConfig.getImageQuality(), screenshotConfig.getImageMaxWidth());
+            log.info("网页截图完成:{}，原始大小{}字节，压缩后{}字节", webUrl, screenshotBytes.length, imageBytes.length);
+            return imageBytes;
+        } catch (Exception e) {
+            log.error("网页截图失败:{}", webUrl, e);
+            return null;
+        }
+    }
 
-            compressImage(imageSavePath, compressedImagePath);
+    /**
+     * 保存网页截图的方法
+     * 截图和压缩在内存中完成，只把最终的JPEG写入本地文件
+     *
+     * @param webUrl 要截图的网页URL
+     * @return 返回压缩后的图片保存路径，如果失败则返回null
+     */
+    public static String saveWebPageScreenshot(String webUrl) {
+        byte[] imageBytes = captureWebPageImage(webUrl);
+        if (imageBytes == null) {
+            return null;
+        }
+        try {
+            //使用UUID前8位作为子目录名
+            String compressedImagePath = System.getProperty("user.dir") + File.separator + "tmp" +
+                    File.separator + "screenshots" + File.separator +
+                    UUID.randomUUID().toString().substring(0, 8) + File.separator +
+                    RandomUtil.randomNumbers(5) + "_compressed.jpg";
+            FileUtil.writeBytes(imageBytes, compressedImagePath);
             log.info("压缩图片保存成功:{}", compressedImagePath);
-
-            //删除原始图片，只保留压缩图片
-            FileUtil.del(imageSavePath);
             return compressedImagePath;
         } catch (Exception e) {
-            log.error("网页截图失败:{}", webUrl, e);
+            log.error("保存图片失败:{}", webUrl, e);
             return null;
         }
     }
@@ -0,0 +1,108 @@
+// 常驻 Mermaid 渲染进程
+// 进程启动时打开一个无头浏览器，之后所有图表都在这个浏览器中渲染，不再每张图启动一次 mmdc
+// 通过 stdin/stdout 与 JVM 通信，每行一个 JSON 请求，响应行以固定前缀开头
+// 请求：{"id":"1","type":"render","diagrams":["graph TD; A-->B"]}、{"id":"2","type":"ping"}
+// 响应：@@mermaid-worker@@{"id":"1","success":true,"results":[{"success":true,"svg":"<svg ..."}]}
+const fs = require('fs')
+const path = require('path')
+const readline = require('readline')
+const { execSync } = require('child_process')
+const { createRequire } = require('module')
+const { pathToFileURL } = require('url')
+
+const RESPONSE_PREFIX = '@@mermaid-worker@@'
+const protocolOut = process.stdout.write.bind(process.stdout)
+
+// 日志全部输出到 stderr，stdout 只留给协议响应
+console.log = console.info = console.warn = console.debug = (...args) => {
+  process.stderr.write(args.map(String).join(' ') + '\n')
+}
+
+function respond(message) {
+  protocolOut(RESPONSE_PREFIX + JSON.stringify(message) + '\n')
+}
+
+// 定位 mermaid-cli 的安装目录：优先使用 MERMAID_CLI_DIR，否则使用全局 node_modules 中的 mmdc
+function resolveCliPackage() {
+  const cliDir = process.env.MERMAID_CLI_DIR ||
+    path.join(execSync('npm root -g', { encoding: 'utf8' }).trim(), '@mermaid-js', 'mermaid-cli')
+  return path.join(cliDir, 'package.json')
+}
+
+// 加载 mermaid-cli（只提供 ESM 入口）以及它依赖的 puppeteer
+async function loadRenderer() {
+  const pkgFile = resolveCliPackage()
+  const pkg = require(pkgFile)
+  const entry = (pkg.exports && pkg.exports['.'] && (pkg.exports['.'].import || pkg.exports['.'].default)) || pkg.exports || pkg.main
+  const entryFile = path.join(path.dirname(pkgFile), typeof entry === 'string' ? entry : entry.default)
+  const cli = await import(pathToFileURL(entryFile).href)
+  const cliRequire = createRequire(pkgFile)
+  const puppeteer = cliRequire('puppeteer')
+  // 与 mmdc -p 参数使用相同格式的 puppeteer 配置文件
+  const configFile = process.env.MERMAID_PUPPETEER_CONFIG
+  const launchOptions = configFile ? JSON.parse(fs.readFileSync(configFile, 'utf8')) : {}
+  const browser = await puppeteer.launch({ headless: 'shell', ...launchOptions })
+  // 浏览器意外退出后整个进程退出，由 JVM 重新启动
+  browser.on('disconnected', () => process.exit(1))
+  return { renderMermaid: cli.renderMermaid, browser }
+}
+
+const rendererReady = loadRenderer()
+rendererReady.catch((e) => {
+  console.error('mermaid renderer init failed: ' + ((e && e.stack) || e))
+  process.exit(1)
+})
+
+async function handleRender(request) {
+  const { renderMermaid, browser } = await rendererReady
+  const backgroundColor = request.backgroundColor || 'transparent'
+  const results = []
+  // 同一批次内逐个渲染，单个图表失败不影响其他图表
+  for (const definition of request.diagrams || []) {
+    try {
+      const { data } = await renderMermaid(browser, definition, 'svg', { backgroundColor })
+      results.push({ success: true, svg: Buffer.from(data).toString('utf8') })
+    } catch (e) {
+      results.push({ success: false, error: String((e && e.message) || e) })
+    }
+  }
+  return { id: request.id, success: true, results }
+}
+
+// 串行处理请求，同一时刻浏览器中只渲染一张图
+let queue = Promise.resolve()
+
+readline.createInterface({ input: process.stdin }).on('line', (line) => {
+  if (!line.trim()) {
+    return
+  }
+  let request
+  try {
+    request = JSON.parse(line)
+  } catch (e) {
+    respond({ id: null, success: false, error: 'invalid request: ' + e.message })
+    return
+  }
+  queue = queue.then(async () => {
+    try {
+      if (request.type === 'ping') {
+        // 浏览器启动完成后才算就绪
+        const { browser } = await rendererReady
+        respond({ id: request.id, success: browser.connected !== false })
+      } else if (request.type === 'render') {
+        respond(await handleRender(request))
+      } else {
+        respond({ id: request.id, success: false, error: 'unknown type: ' + request.type })
+      }
+    } catch (e) {
+      respond({ id: request.id, success: false, error: String((e && e.stack) || e) })
+    }
+  })
+}).on('close', async () => {
+  try {
+    const { browser } = await rendererReady
+    await browser.close()
+  } finally {
+    process.exit(0)
+  }
+})
@@ -0,0 +1,74 @@
+// 常驻 Vite 构建进程
+// 通过 stdin/stdout 与 JVM 通信，每行一个 JSON 请求，响应行以固定前缀开头，便于和构建日志区分
+// 请求：{"id":"1","type":"build","projectDir":"/path/to/vue_project_1"}、{"id":"2","type":"ping"}
+// 响应：@@vite-worker@@{"id":"1","success":true,"durationMs":1234}
+const path = require('path')
+const readline = require('readline')
+const { createRequire } = require('module')
+const { pathToFileURL } = require('url')
+
+const RESPONSE_PREFIX = '@@vite-worker@@'
+const protocolOut = process.stdout.write.bind(process.stdout)
+
+// 构建日志全部输出到 stderr，stdout 只留给协议响应
+console.log = console.info = console.warn = console.debug = (...args) => {
+  process.stderr.write(args.map(String).join(' ') + '\n')
+}
+
+function respond(message) {
+  protocolOut(RESPONSE_PREFIX + JSON.stringify(message) + '\n')
+}
+
+// 从项目自身的依赖中加载 vite，相同路径（例如共享 node_modules）只会加载一次
+// 优先使用 CommonJS 入口，新版本只提供 ESM 入口时改用动态 import
+async function loadVite(projectDir) {
+  const projectRequire = createRequire(path.join(projectDir, 'package.json'))
+  try {
+    return projectRequire(projectRequire.resolve('vite'))
+  } catch (e) {
+    const pkgFile = projectRequire.resolve('vite/package.json')
+    const pkg = require(pkgFile)
+    const entry = (pkg.exports && pkg.exports['.'] && pkg.exports['.'].import) || pkg.module || pkg.main
+    const entryFile = path.join(path.dirname(pkgFile), typeof entry === 'string' ? entry : entry.default)
+    return import(pathToFileURL(entryFile).href)
+  }
+}
+
+async function handleBuild(request) {
+  const startTime = Date.now()
+  const projectDir = path.resolve(request.projectDir)
+  // 部分插件依赖当前工作目录，构建前切换到项目目录（单个进程内构建是串行的）
+  process.chdir(projectDir)
+  const vite = await loadVite(projectDir)
+  await vite.build({ root: projectDir, logLevel: 'warn' })
+  return { id: request.id, success: true, durationMs: Date.now() - startTime }
+}
+
+// 串行处理请求，保证同一进程内不会同时执行两次构建
+let queue = Promise.resolve()
+
+readline.createInterface({ input: process.stdin }).on('line', (line) => {
+  if (!line.trim()) {
+    return
+  }
+  let request
+  try {
+    request = JSON.parse(line)
+  } catch (e) {
+    respond({ id: null, success: false, error: 'invalid request: ' + e.message })
+    return
+  }
+  queue = queue.then(async () => {
+    try {
+      if (request.type === 'ping') {
+        respond({ id: request.id, success: true })
+      } else if (request.type === 'build') {
+        respond(await handleBuild(request))
+      } else {
+        respond({ id: request.id, success: false, error: 'unknown type: ' + request.type })
+      }
+    } catch (e) {
+      respond({ id: request.id, success: false, error: String((e && e.stack) || e) })
+    }
+  })
+}).on('close', () => process.exit(0))
@@ -0,0 +1,79 @@
+package com.ruhuo.xuaizerobackend.ai.stream;
+
+import com.ruhuo.xuaizerobackend.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelStreamBridgeTest {
+
+    @Test
+    void cancelClosesRegisteredStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicReference<ModelStreamCancellation> handle = new AtomicReference<>();
+        Flux<String> flux = ModelStreamBridge.create((sink, cancellation) -> {
+            handle.set(cancellation);
+            // 模拟 HTTP 客户端登记的响应流
+            Closeable stream = () -> closed.set(true);
+            ModelStreamCancellation.current().register(stream);
+            sink.next("a");
+            sink.next("b");
+        }, 16);
+
+        List<String> result = flux.take(1).collectList().block();
+
+        assertEquals(List.of("a"), result);
+        assertTrue(handle.get().isCancelled());
+        assertTrue(closed.get());
+        // 绑定只在 emitter 执行期间有效
+        assertNull(ModelStreamCancellation.current());
+    }
+
+    @Test
+    void overflowCancelsUpstream() {
+        AtomicReference<ModelStreamCancellation> handle = new AtomicReference<>();
+        Flux<Integer> flux = ModelStreamBridge.create((sink, cancellation) -> {
+            handle.set(cancellation);
+            for (int i = 0; i < 10; i++) {
+                sink.next(i);
+            }
+        }, 4);
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        // 只请求一个元素，模拟不再读取的客户端
+        BaseSubscriber<Integer> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                error.set(throwable);
+            }
+        };
+        flux.subscribe(subscriber);
+
+        // 缓冲满时立即中断上游
+        assertTrue(handle.get().isCancelled());
+        // 已缓冲的内容读完后收到错误
+        subscriber.request(Long.MAX_VALUE);
+        assertInstanceOf(BusinessException.class, error.get());
+    }
+
+    @Test
+    void childCancelledWithParent() {
+        ModelStreamCancellation parent = new ModelStreamCancellation();
+        ModelStreamCancellation child = parent.callBound(ModelStreamCancellation::create);
+        parent.cancel();
+        assertTrue(child.isCancelled());
+    }
+}
@@ -1,5 +1,7 @@
 package com.ruhuo.xuaizerobackend.core;
 
+import com.ruhuo.xuaizerobackend.ai.model.message.AiResponseMessage;
+import com.ruhuo.xuaizerobackend.ai.model.message.StreamMessage;
 import com.ruhuo.xuaizerobackend.model.enums.CodeGenTypeEnum;
 import jakarta.annotation.Resource;
 import org.junit.jupiter.api.Assertions;
@@ -26,9 +28,9 @@ class AiCodeGeneratorFacadeTest {
 
     @Test
     void generateAndSaveCodeStream() {
-        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream("任务记录网站", CodeGenTypeEnum.MULTI_FILE,1L);
+        Flux<StreamMessage> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream("任务记录网站", CodeGenTypeEnum.MULTI_FILE,1L);
         //阻塞等待所有数据收集完成
-        List<String> result = codeStream.collectList().block();
+        List<String> result = codeStream.ofType(AiResponseMessage.class).map(AiResponseMessage::getData).collectList().block();
         //验证结果
 
         Assertions.assertNotNull(result);
@@ -38,13 +40,13 @@ class AiCodeGeneratorFacadeTest {
 
     @Test
     void generateVueProjectCodeStream(){
-        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(
+        Flux<StreamMessage> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(
                 "简单的链表学习笔记网站，总代码量不超过 200 行",
                 CodeGenTypeEnum.VUE_PROJECT,1L
         );
 
         //阻塞等待所有数据收集完成
-        List<String> result = codeStream.collectList().block();
+        List<String> result = codeStream.ofType(AiResponseMessage.class).map(AiResponseMessage::getData).collectList().block();
         //验证结果
         Assertions.assertNotNull(result);
         String completeContent = String.join("",result);
@@ -0,0 +1,127 @@
+package com.ruhuo.xuaizerobackend.core;
+
+import com.ruhuo.xuaizerobackend.ai.model.HtmlCodeResult;
+import com.ruhuo.xuaizerobackend.ai.model.MultiFileCodeResult;
+import com.ruhuo.xuaizerobackend.core.parser.HtmlCodeParser;
+import com.ruhuo.xuaizerobackend.core.parser.MultiFileCodeParser;
+import com.ruhuo.xuaizerobackend.core.parser.StreamingCodeParser;
+import com.ruhuo.xuaizerobackend.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCodeParserTest {
+
+    private static final String MULTI_FILE_CONTENT = """
+            创建一个完整的网页：
+
+            这是 HTML 代码：
+            ```html
+            <!DOCTYPE html>
+            <html>
+            <body>
+                <h1>欢迎使用</h1>
+                <script src="script.js"></script>
+            </body>
+            </html>
+            ```
+
+            这是 CSS 代码：
+            ```CSS
+            h1 {
+                color: blue;
+            }
+            ```
+
+            示例输出：
+            ```json
+            {"html": "<p>不应被识别</p>"}
+            ```
+
+            这是 JS 代码：
+            ```javascript
+            const tip = `页面${'加载'}完成`;
+            console.log(tip);
+            ```
+
+            ```css
+            h1 { color: red; }
+            ```
+            文件创建完成！
+            """;
+
+    /**
+     * 把内容按固定长度切片后喂给流式解析器
+     */
+    private Map<String, String> parse(String content, CodeGenTypeEnum codeGenType, int chunkSize) {
+        Map<String, String> blocks = new HashMap<>();
+        StreamingCodeParser parser = new StreamingCodeParser(codeGenType, blocks::put);
+        for (int i = 0; i < content.length(); i += chunkSize) {
+            parser.append(content.substring(i, Math.min(content.length(), i + chunkSize)));
+        }
+        parser.finish();
+        return blocks;
+    }
+
+    @Test
+    void parseMultiFileCodeInChunks() {
+        MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(MULTI_FILE_CONTENT);
+        for (int chunkSize = 1; chunkSize <= 16; chunkSize++) {
+            Map<String, String> blocks = parse(MULTI_FILE_CONTENT, CodeGenTypeEnum.MULTI_FILE, chunkSize);
+            assertEquals(expected.getHtmlCode(), blocks.get("html"), "chunkSize=" + chunkSize);
+            assertEquals(expected.getCssCode(), blocks.get("css"), "chunkSize=" + chunkSize);
+            assertEquals("const tip = `页面${'加载'}完成`;\nconsole.log(tip);", blocks.get("js"), "chunkSize=" + chunkSize);
+        }
+    }
+
+    @Test
+    void parseHtmlCodeWithoutFence() {
+        String content = "<!DOCTYPE html>\n<html><body>纯文本输出</body></html>\n";
+        HtmlCodeResult expected = new HtmlCodeParser().parseCode(content);
+        Map<String, String> blocks = parse(content, CodeGenTypeEnum.HTML, 3);
+        assertEquals(expected.getHtmlCode(), blocks.get("html"));
+    }
+
+    @Test
+    void ignoreInlineFenceMentionBeforeRealBlock() {
+        String content = """
+                页面会用 ```html``` 标签包裹代码，样式写在 ```css 块中。
+                ```html
+                <p>正文</p>
+                ```
+
+                ```css
+                p { color: red; }
+                ```
+
+                ```js
+                console.log('ok');
+                ```
+                """;
+        MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(content);
+        for (int chunkSize = 1; chunkSize <= 8; chunkSize++) {
+            Map<String, String> blocks = parse(content, CodeGenTypeEnum.MULTI_FILE, chunkSize);
+            assertEquals("<p>正文</p>", blocks.get("html"), "chunkSize=" + chunkSize);
+            assertEquals(expected.getHtmlCode(), blocks.get("html"), "chunkSize=" + chunkSize);
+            assertEquals(expected.getCssCode(), blocks.get("css"), "chunkSize=" + chunkSize);
+            assertEquals(expected.getJsCode(), blocks.get("js"), "chunkSize=" + chunkSize);
+        }
+    }
+
+    @Test
+    void emitBlockBeforeStreamEnds() {
+        Map<String, String> blocks = new HashMap<>();
+        StreamingCodeParser parser = new StreamingCodeParser(CodeGenTypeEnum.MULTI_FILE, blocks::put);
+        parser.append("说明\n```html\n<p>hi</p>\n``");
+        assertTrue(blocks.isEmpty());
+        parser.append("`\n```css\np { color: red; }");
+        assertEquals("<p>hi</p>", blocks.get("html"));
+        assertTrue(parser.hasEmitted("html"));
+        //未闭合的代码块不输出
+        parser.finish();
+        assertNull(blocks.get("css"));
+    }
+}
@@ -0,0 +1,205 @@
+package com.ruhuo.xuaizerobackend.core.sse;
+
+import com.ruhuo.xuaizerobackend.config.SseStreamConfig;
+import com.ruhuo.xuaizerobackend.exception.BusinessException;
+import com.ruhuo.xuaizerobackend.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class GenerationRunTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void resumeReplaysFromOffsetAndTailsLiveRun() throws InterruptedException {
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationRun run = newRun(config(16, 60), finished -> {
+        });
+        run.start(upstream.asFlux());
+        upstream.tryEmitNext("a");
+        upstream.tryEmitNext("b");
+        upstream.tryEmitNext("c");
+
+        // 客户端收到 seq=0 后断线重连
+        CountDownLatch replayed = new CountDownLatch(2);
+        AtomicReference<List<GenerationChunk>> result = new AtomicReference<>();
+        Disposable subscription = run.subscribe(1)
+                .doOnNext(chunk -> replayed.countDown())
+                .collectList()
+                .subscribe(result::set);
+        assertTrue(replayed.await(5, TimeUnit.SECONDS));
+
+        upstream.tryEmitNext("d");
+        upstream.tryEmitComplete();
+
+        List<GenerationChunk> chunks = run.subscribe(1).collectList().block(TIMEOUT);
+        assertEquals(List.of(new GenerationChunk(1, "b"), new GenerationChunk(2, "c"), new GenerationChunk(3, "d")), chunks);
+        awaitUntil(() -> result.get() != null);
+        assertEquals(chunks, result.get());
+        assertEquals("completed", run.getOutcome());
+        subscription.dispose();
+    }
+
+    @Test
+    void reconnectBeforeFirstChunkResumesSameRun() {
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationRun run = newRun(config(16, 60), finished -> {
+        });
+        run.start(upstream.asFlux());
+
+        // 连接建立时发送的事件ID，首个片段到达前断线，浏览器带着它重连
+        String lastEventId = run.eventId(GenerationRun.NO_CHUNK_SEQ);
+        run.subscribe(0).subscribe().dispose();
+        assertEquals(run.getRunId(), GenerationRun.parseRunId(lastEventId));
+        Long lastSeq = GenerationRun.parseSeq(lastEventId);
+        assertEquals(GenerationRun.NO_CHUNK_SEQ, lastSeq);
+
+        upstream.tryEmitNext("a");
+        upstream.tryEmitNext("b");
+        upstream.tryEmitComplete();
+
+        List<GenerationChunk> chunks = run.subscribe(lastSeq + 1).collectList().block(TIMEOUT);
+        assertEquals(List.of(new GenerationChunk(0, "a"), new GenerationChunk(1, "b")), chunks);
+        assertEquals("completed", run.getOutcome());
+    }
+
+    @Test
+    void failedSpillReportsLostChunksButKeepsRecentOnes() {
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        // 没有 Redis，写入失败后不再写入，内存中只保留最近的片段，较早的内容无法补发
+        GenerationRun run = newRun(config(4, 60), finished -> {
+        });
+        run.start(upstream.asFlux());
+        for (int i = 0; i < 20; i++) {
+            upstream.tryEmitNext("s" + i);
+        }
+        upstream.tryEmitComplete();
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> run.subscribe(0).collectList().block(TIMEOUT));
+        assertEquals(ErrorCode.NOT_FOUND_ERROR.getCode(), exception.getCode());
+
+        List<String> recent = run.subscribe(18).map(GenerationChunk::content).collectList().block(TIMEOUT);
+        assertEquals(List.of("s18", "s19"), recent);
+    }
+
+    @Test
+    void spillsToRedisWithoutBlockingAndReplaysFromRedis() throws InterruptedException {
+        List<String> redisList = new CopyOnWriteArrayList<>();
+        CountDownLatch releasePush = new CountDownLatch(1);
+        AtomicInteger redisReads = new AtomicInteger();
+        ListOperations<String, String> listOperations = mock(ListOperations.class);
+        when(listOperations.rightPushAll(anyString(), ArgumentMatchers.<Collection<String>>any())).thenAnswer(invocation -> {
+            // 模拟变慢的 Redis
+            assertTrue(releasePush.await(5, TimeUnit.SECONDS));
+            redisList.addAll(invocation.getArgument(1));
+            return (long) redisList.size();
+        });
+        when(listOperations.range(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            redisReads.incrementAndGet();
+            int start = (int) (long) invocation.getArgument(1);
+            int end = (int) Math.min(redisList.size() - 1, (long) invocation.getArgument(2));
+            return new ArrayList<>(redisList.subList(start, end + 1));
+        });
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.opsForList()).thenReturn(listOperations);
+
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationRun run = new GenerationRun("run-1", 1L, 1L, stringRedisTemplate, config(4, 60), finished -> {
+        });
+        run.start(upstream.asFlux());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            expected.add("s" + i);
+            upstream.tryEmitNext("s" + i);
+        }
+
+        // Redis 写入还卡着，接收片段和读取内存中的片段都不受影响
+        verify(listOperations, timeout(5000)).rightPushAll(anyString(), ArgumentMatchers.<Collection<String>>any());
+        assertEquals(1, releasePush.getCount());
+        List<String> live = run.subscribe(4).take(4).map(GenerationChunk::content).collectList().block(TIMEOUT);
+        assertEquals(expected.subList(4, 8), live);
+
+        releasePush.countDown();
+        upstream.tryEmitComplete();
+        awaitUntil(() -> redisList.size() == 4);
+        assertEquals(expected.subList(0, 4), redisList);
+
+        // 写入确认后较早的片段从 Redis 补发
+        awaitUntil(() -> {
+            List<String> replay = run.subscribe(0).map(GenerationChunk::content).collectList().block(TIMEOUT);
+            return expected.equals(replay) && redisReads.get() > 0;
+        });
+        run.cleanup();
+        verify(stringRedisTemplate).delete("sse:run:run-1:chunks");
+    }
+
+    @Test
+    void runIsAbandonedWhenNoClientReconnects() throws InterruptedException {
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        CountDownLatch terminated = new CountDownLatch(1);
+        GenerationRun run = newRun(config(16, 0), finished -> terminated.countDown());
+        run.start(upstream.asFlux().doOnCancel(() -> upstreamCancelled.set(true)));
+
+        run.subscribe(0).subscribe().dispose();
+
+        assertTrue(terminated.await(5, TimeUnit.SECONDS));
+        assertTrue(upstreamCancelled.get());
+        assertEquals("abandoned", run.getOutcome());
+    }
+
+    @Test
+    void parsesEventId() {
+        GenerationRun run = newRun(config(16, 60), finished -> {
+        });
+        String eventId = run.eventId(42);
+        assertEquals("run-1", GenerationRun.parseRunId(eventId));
+        assertEquals(42L, GenerationRun.parseSeq(eventId));
+        assertEquals(GenerationRun.NO_CHUNK_SEQ, GenerationRun.parseSeq(run.eventId(GenerationRun.NO_CHUNK_SEQ)));
+        assertNull(GenerationRun.parseRunId("42"));
+        assertNull(GenerationRun.parseSeq("run-1:x"));
+        assertNull(GenerationRun.parseSeq("run-1:-2"));
+    }
+
+    private static GenerationRun newRun(SseStreamConfig config, Consumer<GenerationRun> onTerminate) {
+        return new GenerationRun("run-1", 1L, 1L, null, config, onTerminate);
+    }
+
+    private static SseStreamConfig config(int replayBufferSize, long detachGraceSeconds) {
+        SseStreamConfig config = new SseStreamConfig();
+        config.setReplayBufferSize(replayBufferSize);
+        config.setDetachGraceSeconds(detachGraceSeconds);
+        return config;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
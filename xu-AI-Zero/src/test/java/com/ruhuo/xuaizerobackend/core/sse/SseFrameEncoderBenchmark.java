@@ -0,0 +1,75 @@
+package com.ruhuo.xuaizerobackend.core.sse;
+
+import cn.hutool.json.JSONUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个 token 编码为 SSE 帧的开销对比
+ * legacy：原来的 Map.of + JSONUtil.toJsonStr + ServerSentEvent，再按 Spring 的 SSE 格式转为字节
+ * encoder：SseFrameEncoder 直接转义写入复用的缓冲区
+ * <p>
+ * 运行：mvn test-compile 后执行本类的 main 方法，结果中的 gc.alloc.rate.norm 为每次操作分配的字节数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SseFrameEncoderBenchmark {
+
+    // 模型流式输出中常见的 token：中文、代码片段、带引号和换行的内容
+    private static final String[] TOKENS = {
+            "你好", "，", " function", "() {\n", "  const", " message", " = \"", "欢迎使用", "\";\n",
+            "<div class=\"", "container", "\">", "\n\n", "```", "vue", "\n<template>", " 组件", "}"
+    };
+
+    private SseFrameEncoder encoder;
+    private int index;
+
+    @Setup
+    public void setup() {
+        encoder = SseFrameEncoder.acquire();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SseFrameEncoder.release(encoder);
+    }
+
+    private String nextToken() {
+        String token = TOKENS[index];
+        index = (index + 1) % TOKENS.length;
+        return token;
+    }
+
+    @Benchmark
+    public byte[] legacy() {
+        String jsonData = JSONUtil.toJsonStr(Map.of("d", nextToken()));
+        ServerSentEvent<String> event = ServerSentEvent.<String>builder().data(jsonData).build();
+        return ("data:" + event.data() + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encoder() {
+        return encoder.jsonData("d", nextToken()).finishFrame();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SseFrameEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
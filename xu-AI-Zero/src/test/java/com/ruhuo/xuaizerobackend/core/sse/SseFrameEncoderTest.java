@@ -0,0 +1,50 @@
+package com.ruhuo.xuaizerobackend.core.sse;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseFrameEncoderTest {
+
+    @Test
+    void jsonDataRoundTrip() {
+        String[] samples = {
+                "你好",
+                "const a = \"b\";\n\tif (x) { return '\\\\'; }\r\n",
+                "控制字符\u0001\u001f\b\f",
+                "emoji 😀 与 <script></script>",
+                "行分隔符\u2028段落分隔符\u2029",
+                ""
+        };
+        SseFrameEncoder encoder = SseFrameEncoder.acquire();
+        try {
+            for (String sample : samples) {
+                String frame = new String(encoder.jsonData("d", sample).finishFrame(), StandardCharsets.UTF_8);
+                assertTrue(frame.startsWith("data:"));
+                assertTrue(frame.endsWith("\n\n"));
+                String json = frame.substring("data:".length(), frame.length() - 2);
+                // 一帧只能有一行 data，内容中的换行必须被转义
+                assertFalse(json.contains("\n"));
+                assertEquals(sample, JSONUtil.parseObj(json).getStr("d"));
+            }
+        } finally {
+            SseFrameEncoder.release(encoder);
+        }
+    }
+
+    @Test
+    void controlFrame() {
+        SseFrameEncoder encoder = SseFrameEncoder.acquire();
+        try {
+            byte[] frame = encoder.id("7").event("done").data("").finishFrame();
+            assertEquals("id:7\nevent:done\ndata:\n\n", new String(frame, StandardCharsets.UTF_8));
+            // finishFrame 之后缓冲区已清空，可以继续编码下一帧
+            assertEquals("data:{\"d\":\"a\"}\n\n", new String(encoder.jsonData("d", "a").finishFrame(), StandardCharsets.UTF_8));
+        } finally {
+            SseFrameEncoder.release(encoder);
+        }
+    }
+}
@@ -136,6 +136,8 @@ declare namespace API {
   type chatToGenCodeParams = {
     appId: number
     message: string
+    coalesceMs?: number
+    latencySensitive?: boolean
   }
 
   type DeleteRequest = {